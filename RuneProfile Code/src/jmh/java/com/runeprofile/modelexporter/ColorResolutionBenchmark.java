@@ -0,0 +1,77 @@
+package com.runeprofile.modelexporter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-face color resolution for a smooth shaded model, computing {@link JagexColor#HSLtoRGB} for every
+ * corner as the exporter used to, against indexing the shared palette as it does now.
+ * Run with {@code ./gradlew jmh -Pjmh.include=ColorResolution}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorResolutionBenchmark {
+    @Param({"5000"})
+    private int faceCount;
+
+    private int[] faceColors1;
+    private int[] faceColors2;
+    private int[] faceColors3;
+    private int[] palette;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(48);
+        faceColors1 = new int[faceCount];
+        faceColors2 = new int[faceCount];
+        faceColors3 = new int[faceCount];
+        for (int fi = 0; fi < faceCount; fi++) {
+            faceColors1[fi] = random.nextInt(65536);
+            faceColors2[fi] = random.nextInt(65536);
+            faceColors3[fi] = random.nextInt(65536);
+        }
+        palette = JagexColor.palette(JagexColor.BRIGHTNESS_MIN);
+    }
+
+    @Benchmark
+    public void hslToRgb(Blackhole blackhole) {
+        for (int fi = 0; fi < faceCount; fi++) {
+            blackhole.consume(JagexColor.HSLtoRGB((short) faceColors1[fi], JagexColor.BRIGHTNESS_MIN));
+            blackhole.consume(JagexColor.HSLtoRGB((short) faceColors2[fi], JagexColor.BRIGHTNESS_MIN));
+            blackhole.consume(JagexColor.HSLtoRGB((short) faceColors3[fi], JagexColor.BRIGHTNESS_MIN));
+        }
+    }
+
+    @Benchmark
+    public void paletteLookup(Blackhole blackhole) {
+        for (int fi = 0; fi < faceCount; fi++) {
+            blackhole.consume(palette[faceColors1[fi] & 0xFFFF]);
+            blackhole.consume(palette[faceColors2[fi] & 0xFFFF]);
+            blackhole.consume(palette[faceColors3[fi] & 0xFFFF]);
+        }
+    }
+
+    @Benchmark
+    public void hslToRgbAvg(Blackhole blackhole) {
+        for (int fi = 0; fi < faceCount; fi++) {
+            blackhole.consume(JagexColor.HSLtoRGBAvg(faceColors1[fi], faceColors2[fi], faceColors3[fi]));
+        }
+    }
+}
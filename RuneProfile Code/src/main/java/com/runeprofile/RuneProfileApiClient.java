@@ -3,6 +3,8 @@ package com.runeprofile;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.runeprofile.data.*;
+import com.runeprofile.modelexporter.AnimatedMesh;
+import com.runeprofile.modelexporter.CompactMesh;
 import com.runeprofile.utils.RuneProfileApiException;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +21,11 @@ import java.util.function.Consumer;
 @Slf4j
 public class RuneProfileApiClient {
     private static final MediaType JSON_MEDIA_TYPE = Objects.requireNonNull(MediaType.parse("application/json; charset=utf-8"));
+    private static final MediaType PLY_MEDIA_TYPE = MediaType.parse("model/ply");
+    private static final MediaType COMPACT_MESH_MEDIA_TYPE = MediaType.parse(CompactMesh.MEDIA_TYPE);
+    private static final MediaType ANIMATED_MESH_MEDIA_TYPE = MediaType.parse(AnimatedMesh.MEDIA_TYPE);
+
+    private static final String MODEL_FORMATS_HEADER = "X-Model-Formats";
 
     @Inject
     private OkHttpClient okHttpClient;
@@ -33,6 +40,11 @@ public class RuneProfileApiClient {
     @Inject
     private Gson gson;
 
+    // Whether the last model upload response said compact models are accepted
+    private volatile boolean compactModelsAccepted;
+    // Same for animations, which are only sent along with compact models
+    private volatile boolean animatedModelsAccepted;
+
     @Inject
     public RuneProfileApiClient() {
         boolean isDevMode = false;
@@ -146,27 +158,97 @@ public class RuneProfileApiClient {
                 .thenApply((response) -> handleResponse(response, null));
     }
 
+    public boolean isCompactModelsAccepted() {
+        return compactModelsAccepted;
+    }
+
+    public boolean isAnimatedModelsAccepted() {
+        return compactModelsAccepted && animatedModelsAccepted;
+    }
+
     public CompletableFuture<Void> updateModelAsync(PlayerModelData data) {
         HttpUrl url = buildApiUrl("profiles", "models");
 
-        RequestBody modelFile = RequestBody.create(MediaType.parse("model/ply"), data.getModel());
+        if (!compactModelsAccepted || data.getCompactModel() == null) {
+            return postHttpRequestAsync(url, buildModelBody(data, false))
+                    .thenApplyAsync((response) -> {
+                        readModelFormats(response);
+                        return handleResponse(response, null);
+                    });
+        }
+
+        return postHttpRequestAsync(url, buildModelBody(data, true))
+                .thenComposeAsync((response) -> {
+                    readModelFormats(response);
+                    if (response.code() != 415) {
+                        return CompletableFuture.completedFuture(handleResponse(response, null));
+                    }
+
+                    // The server stopped taking compact models since it said it would, send the PLY instead
+                    log.debug("Compact model upload was rejected, falling back to PLY");
+                    response.close();
+                    compactModelsAccepted = false;
+                    animatedModelsAccepted = false;
+                    return postHttpRequestAsync(url, buildModelBody(data, false))
+                            .thenApplyAsync((fallback) -> {
+                                readModelFormats(fallback);
+                                return handleResponse(fallback, null);
+                            });
+                });
+    }
 
+    private MultipartBody buildModelBody(PlayerModelData data, boolean compact) {
         MultipartBody.Builder bodyBuilder = new MultipartBody.Builder()
                 .setType(MultipartBody.FORM)
-                .addFormDataPart("accountId", data.getAccountHash())
-                .addFormDataPart("model", "model.ply", modelFile);
-
-        @Nullable
-        byte[] petModel = data.getPetModel();
-        if (petModel != null) {
-            RequestBody petFile = RequestBody.create(MediaType.parse("model/ply"), petModel);
-            bodyBuilder.addFormDataPart("petModel", "pet.ply", petFile);
+                .addFormDataPart("accountId", data.getAccountHash());
+
+        if (compact) {
+            bodyBuilder.addFormDataPart("modelFormat", CompactMesh.FORMAT);
+            bodyBuilder.addFormDataPart("model", "model.mesh", RequestBody.create(COMPACT_MESH_MEDIA_TYPE, data.getCompactModel()));
+            @Nullable
+            byte[] petModel = data.getCompactPetModel();
+            if (petModel != null) {
+                bodyBuilder.addFormDataPart("petModel", "pet.mesh", RequestBody.create(COMPACT_MESH_MEDIA_TYPE, petModel));
+            }
+            @Nullable
+            byte[] animation = data.getAnimation();
+            if (animation != null && animatedModelsAccepted) {
+                bodyBuilder.addFormDataPart("animationFormat", AnimatedMesh.FORMAT);
+                bodyBuilder.addFormDataPart("animation", "model.anim", RequestBody.create(ANIMATED_MESH_MEDIA_TYPE, animation));
+            }
+        } else {
+            bodyBuilder.addFormDataPart("model", "model.ply", RequestBody.create(PLY_MEDIA_TYPE, data.getModel()));
+            @Nullable
+            byte[] petModel = data.getPetModel();
+            if (petModel != null) {
+                bodyBuilder.addFormDataPart("petModel", "pet.ply", RequestBody.create(PLY_MEDIA_TYPE, petModel));
+            }
         }
 
-        MultipartBody body = bodyBuilder.build();
+        return bodyBuilder.build();
+    }
+
+    /**
+     * The models endpoint lists the upload formats it accepts besides PLY in a response header.
+     * Compact models and animations are only sent once a response has listed them, so older servers keep getting PLY.
+     */
+    private void readModelFormats(Response response) {
+        String formats = response.header(MODEL_FORMATS_HEADER);
+        if (formats == null) {
+            compactModelsAccepted = false;
+            animatedModelsAccepted = false;
+            return;
+        }
 
-        return postHttpRequestAsync(url, body)
-                .thenApplyAsync((response -> handleResponse(response, null)));
+        boolean compact = false;
+        boolean animated = false;
+        for (String format : formats.split(",")) {
+            String name = format.trim();
+            compact |= CompactMesh.FORMAT.equals(name);
+            animated |= AnimatedMesh.FORMAT.equals(name);
+        }
+        compactModelsAccepted = compact;
+        animatedModelsAccepted = animated;
     }
 
     public CompletableFuture<CollectionLogPage> getCollectionLogPage(String username, String page) {
@@ -24,6 +24,7 @@ import net.runelite.client.plugins.PluginDescriptor;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @PluginDescriptor(
@@ -49,6 +50,15 @@ public class RuneProfilePlugin extends Plugin {
     @Inject
     private PlayerDataService playerDataService;
 
+    @Inject
+    private ModelExportCache modelExportCache;
+
+    @Inject
+    private TextureColorPreloader textureColorPreloader;
+
+    @Inject
+    private AnimationCapture animationCapture;
+
     @Inject
     private AutoSyncScheduler autoSyncScheduler;
 
@@ -86,6 +96,8 @@ public class RuneProfilePlugin extends Plugin {
         runeProfilePanel.startUp();
 
         playerDataService.startUp();
+        textureColorPreloader.startUp();
+        animationCapture.startUp();
 
         autoSyncScheduler.startUp();
         valuableDropSubscriber.startUp();
@@ -103,6 +115,8 @@ public class RuneProfilePlugin extends Plugin {
         runeProfilePanel.shutDown();
 
         playerDataService.shutDown();
+        textureColorPreloader.shutDown();
+        animationCapture.shutDown();
 
         autoSyncScheduler.shutDown();
         valuableDropSubscriber.shutDown();
@@ -193,24 +207,36 @@ public class RuneProfilePlugin extends Plugin {
             throw new IllegalStateException("Invalid player state");
         }
 
-        playerDataService.getPlayerModelDataAsync().thenCompose((data) -> runeProfileApiClient.updateModelAsync(data)
-                .whenComplete((result, ex) -> {
-                    if (ex != null) {
-                        log.error("Error updating model", ex);
+        playerDataService.getPlayerModelDataAsync(runeProfileApiClient.isCompactModelsAccepted(),
+                runeProfileApiClient.isAnimatedModelsAccepted()).thenCompose((data) -> {
+            if (modelExportCache.isUploaded(data.getAccountHash(), data.getContentHash())) {
+                clientThread.invokeLater(() -> {
+                    client.addChatMessage(ChatMessageType.CONSOLE, "RuneProfile", "Your player model is already up to date!", "RuneProfile");
+                });
+                return CompletableFuture.<Void>completedFuture(null);
+            }
 
-                        final String errorMessage = Utils.getApiErrorMessage(ex, "Failed to update your player model.");
+            return runeProfileApiClient.updateModelAsync(data)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            log.error("Error updating model", ex);
 
-                        clientThread.invokeLater(() -> {
-                            client.addChatMessage(ChatMessageType.CONSOLE, "RuneProfile", errorMessage, "RuneProfile");
-                        });
+                            final String errorMessage = Utils.getApiErrorMessage(ex, "Failed to update your player model.");
 
-                        throw new RuneProfileApiException(errorMessage);
-                    }
+                            clientThread.invokeLater(() -> {
+                                client.addChatMessage(ChatMessageType.CONSOLE, "RuneProfile", errorMessage, "RuneProfile");
+                            });
 
-                    clientThread.invokeLater(() -> {
-                        client.addChatMessage(ChatMessageType.CONSOLE, "RuneProfile", "Your player model has been updated!", "RuneProfile");
+                            throw new RuneProfileApiException(errorMessage);
+                        }
+
+                        modelExportCache.markUploaded(data.getAccountHash(), data.getContentHash());
+
+                        clientThread.invokeLater(() -> {
+                            client.addChatMessage(ChatMessageType.CONSOLE, "RuneProfile", "Your player model has been updated!", "RuneProfile");
+                        });
                     });
-                }));
+        });
     }
 
     public void addActivitiesAsync(List<? extends Activity<? extends ActivityData>> activities) {
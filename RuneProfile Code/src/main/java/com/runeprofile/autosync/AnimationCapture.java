@@ -0,0 +1,146 @@
+package com.runeprofile.autosync;
+
+import com.runeprofile.modelexporter.AnimatedMesh;
+import com.runeprofile.modelexporter.ModelCapture;
+import com.runeprofile.modelexporter.ModelExporter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.Model;
+import net.runelite.api.Player;
+import net.runelite.api.events.ClientTick;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Records the local player's poses over the next client ticks and exports them as an {@link AnimatedMesh}.
+ * <p>
+ * Every tick compares the model's vertices in place against the last pose, and only copies them when they moved.
+ * A pose that didn't change just lengthens the last frame. Poses share the first capture's faces and colors, and
+ * the export runs on the executor once recording is done.
+ * Recording stops after {@link #MAX_FRAMES} poses, after {@link #MAX_TICKS} ticks, or when the model's vertex or
+ * face count changes, as it does when the player changes gear.
+ */
+@Slf4j
+@Singleton
+public class AnimationCapture {
+    private static final int MAX_FRAMES = 8;
+    // Client ticks run 50 times a second, so this is 3 seconds
+    private static final int MAX_TICKS = 150;
+
+    @Inject
+    private EventBus eventBus;
+
+    @Inject
+    private Client client;
+
+    @Inject
+    private ClientThread clientThread;
+
+    @Inject
+    private ScheduledExecutorService scheduledExecutorService;
+
+    // Only touched on the client thread
+    private Recording recording;
+
+    public void startUp() {
+        eventBus.register(this);
+    }
+
+    public void shutDown() {
+        eventBus.unregister(this);
+        clientThread.invokeLater(() -> {
+            if (recording != null) {
+                recording.future.complete(null);
+                recording = null;
+            }
+        });
+    }
+
+    /**
+     * Starts recording from {@code first}, the player's current pose. Must be called on the client thread.
+     *
+     * @return the recorded poses as {@link AnimatedMesh}, or null if the player held still
+     */
+    CompletableFuture<byte[]> record(ModelCapture first) {
+        if (recording != null) {
+            recording.finish();
+        }
+        recording = new Recording(first);
+        return recording.future;
+    }
+
+    @Subscribe
+    public void onClientTick(ClientTick event) {
+        if (recording == null) {
+            return;
+        }
+
+        Player player = client.getLocalPlayer();
+        Model model = player != null ? player.getModel() : null;
+        if (recording.add(model)) {
+            recording.finish();
+            recording = null;
+        }
+    }
+
+    private class Recording {
+        private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        private final List<ModelCapture> frames = new ArrayList<>();
+        private final int[] durations = new int[MAX_FRAMES];
+        private int ticks;
+
+        Recording(ModelCapture first) {
+            frames.add(first);
+            durations[0] = 1;
+        }
+
+        /**
+         * @return whether the recording is done
+         */
+        boolean add(@Nullable Model model) {
+            ModelCapture keyframe = frames.get(0);
+            if (model == null || !keyframe.hasSameCounts(model)) {
+                // The player changed gear, and the poses can't share the keyframe's faces
+                return true;
+            }
+
+            if (frames.get(frames.size() - 1).hasSameVertices(model)) {
+                durations[frames.size() - 1]++;
+            } else if (frames.size() == MAX_FRAMES) {
+                return true;
+            } else {
+                durations[frames.size()] = 1;
+                frames.add(keyframe.pose(model));
+            }
+            return ++ticks >= MAX_TICKS;
+        }
+
+        void finish() {
+            if (frames.size() < 2) {
+                future.complete(null);
+                return;
+            }
+
+            int[] frameDurations = Arrays.copyOf(durations, frames.size());
+            scheduledExecutorService.execute(() -> {
+                try {
+                    future.complete(ModelExporter.toAnimatedBytes(frames, frameDurations));
+                } catch (RuntimeException e) {
+                    // The still model is uploaded either way
+                    log.debug("Could not export the player animation", e);
+                    future.complete(null);
+                }
+            });
+        }
+    }
+}
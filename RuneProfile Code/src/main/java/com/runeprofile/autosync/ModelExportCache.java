@@ -0,0 +1,83 @@
+package com.runeprofile.autosync;
+
+import com.runeprofile.data.PlayerModelData;
+import com.runeprofile.modelexporter.ModelCapture;
+import com.runeprofile.modelexporter.ModelExporter;
+import com.runeprofile.modelexporter.ModelHash;
+
+import javax.annotation.Nullable;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the last exported player and pet models by content hash, and the content that was last
+ * uploaded for each account, so unchanged models are neither exported nor uploaded again.
+ * Kept in memory only, the first update after a restart always uploads.
+ */
+@Singleton
+public class ModelExportCache {
+    // Guarded by this, exports run on a background thread
+    private final Entry player = new Entry();
+    private final Entry pet = new Entry();
+
+    private final Map<String, Long> uploadedHashes = new ConcurrentHashMap<>();
+
+    /**
+     * Exports the player and pet models, reusing the previous bytes of whichever didn't change.
+     *
+     * @param compact whether to also export them as {@link com.runeprofile.modelexporter.CompactMesh}
+     */
+    synchronized PlayerModelData export(String accountHash, ModelCapture playerModel, @Nullable ModelCapture petModel, boolean compact) throws IOException {
+        player.update(playerModel);
+        if (petModel != null) {
+            pet.update(petModel);
+        }
+
+        long contentHash = petModel != null ? player.hash * 31 + pet.hash : player.hash;
+        return new PlayerModelData(accountHash, player.ply(), petModel != null ? pet.ply() : null, contentHash,
+                compact ? player.compact() : null, compact && petModel != null ? pet.compact() : null, null);
+    }
+
+    public boolean isUploaded(String accountHash, long contentHash) {
+        Long uploaded = uploadedHashes.get(accountHash);
+        return uploaded != null && uploaded == contentHash;
+    }
+
+    public void markUploaded(String accountHash, long contentHash) {
+        uploadedHashes.put(accountHash, contentHash);
+    }
+
+    private static class Entry {
+        private long hash;
+        private ModelCapture model;
+        // Exported on first use, and dropped when the model changes
+        private byte[] ply;
+        private byte[] compact;
+
+        void update(ModelCapture capture) {
+            long modelHash = ModelHash.of(capture);
+            if (model == null || modelHash != hash) {
+                hash = modelHash;
+                model = capture;
+                ply = null;
+                compact = null;
+            }
+        }
+
+        byte[] ply() throws IOException {
+            if (ply == null) {
+                ply = ModelExporter.toBytes(model);
+            }
+            return ply;
+        }
+
+        byte[] compact() {
+            if (compact == null) {
+                compact = ModelExporter.toCompactBytes(model);
+            }
+            return compact;
+        }
+    }
+}
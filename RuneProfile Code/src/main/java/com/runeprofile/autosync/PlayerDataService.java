@@ -2,7 +2,7 @@ package com.runeprofile.autosync;
 
 import com.runeprofile.RuneProfileConfig;
 import com.runeprofile.data.*;
-import com.runeprofile.modelexporter.ModelExporter;
+import com.runeprofile.modelexporter.ModelCapture;
 import com.runeprofile.utils.AccountHash;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
@@ -14,6 +14,7 @@ import net.runelite.api.gameval.VarbitID;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.eventbus.EventBus;
 import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.events.PluginMessage;
 import net.runelite.client.events.RuneScapeProfileChanged;
 
 import javax.inject.Inject;
@@ -22,6 +23,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Slf4j
 @Singleton
@@ -38,10 +40,22 @@ public class PlayerDataService {
     @Inject
     private RuneProfileConfig config;
 
+    @Inject
+    private ModelExportCache modelExportCache;
+
+    @Inject
+    private AnimationCapture animationCapture;
+
+    @Inject
+    private ScheduledExecutorService scheduledExecutorService;
+
     // Clog items are not available through the client API, so we store them manually on clog open or item collection.
     // See: CollectionLogWidgetSubscriber and CollectionNotificationSubscriber
     private final Map<Integer, Integer> clogItems = new HashMap<>();
 
+    // Reply to the last capture request, see requestSharedCapture. Only touched on the client thread
+    private SharedCapture sharedCapture;
+
     public void startUp() {
         eventBus.register(this);
     }
@@ -60,6 +74,14 @@ public class PlayerDataService {
         reset();
     }
 
+    @Subscribe
+    public void onPluginMessage(PluginMessage event) {
+        if (!SharedCapture.NAMESPACE.equals(event.getNamespace()) || !SharedCapture.CAPTURE.equals(event.getName())) {
+            return;
+        }
+        sharedCapture = SharedCapture.fromMessage(event.getData());
+    }
+
     public void storeItem(int itemId, int quantity) {
         if (quantity <= 0) return;
         clogItems.put(itemId, quantity);
@@ -94,41 +116,12 @@ public class PlayerDataService {
             // clan
             playerData.setClan(getPlayerClanData(player));
 
-            // skills
-            for (Skill skill : Skill.values()) {
-                String name = skill.getName();
-                int xp = client.getSkillExperience(skill);
-                playerData.getSkills().put(name, xp);
-            }
-
-            // quests
-            for (Quest quest : Quest.values()) {
-                int id = quest.getId();
-                QuestState stateEnum = quest.getState(client);
-                int state = 0;
-                if (stateEnum == QuestState.IN_PROGRESS) {
-                    state = 1;
-                } else if (stateEnum == QuestState.FINISHED) {
-                    state = 2;
-                }
-                playerData.getQuests().put(id, state);
-            }
-
-            // combat achievement tiers
-            for (CombatAchievementTier tier : CombatAchievementTier.values()) {
-                int id = tier.getId();
-                int completedCount = tier.getCompletedCount(client);
-                playerData.getCombatAchievementTiers().put(id, completedCount);
-            }
-
-            // achievement diary tiers
-            for (AchievementDiary diary : AchievementDiary.values()) {
-                int areaId = diary.getId();
-                int[] completedCounts = diary.getTiersCompletedCount(client);
-                for (int tierIndex = 0; tierIndex < completedCounts.length; tierIndex++) {
-                    int completedCount = completedCounts[tierIndex];
-                    playerData.getAchievementDiaryTiers().add(new AchievementDiaryTierData(areaId, tierIndex, completedCount));
-                }
+            SharedCapture capture = requestSharedCapture();
+            if (capture != null) {
+                log.debug("Using player data captured by RuneStatus");
+                addCapturedData(playerData, capture);
+            } else {
+                addClientData(playerData);
             }
 
             // items
@@ -140,6 +133,103 @@ public class PlayerDataService {
         return playerDataFuture;
     }
 
+    /**
+     * Asks the RuneStatus plugin, if it is installed, for a capture of the same data we would otherwise
+     * read ourselves. The reply is posted while the request is being handled, so it is here when post returns.
+     */
+    private SharedCapture requestSharedCapture() {
+        sharedCapture = null;
+        Map<String, Object> request = new HashMap<>();
+        request.put("from", "runeprofile");
+        eventBus.post(new PluginMessage(SharedCapture.NAMESPACE, SharedCapture.CAPTURE_REQUEST, request));
+
+        SharedCapture capture = sharedCapture;
+        sharedCapture = null;
+        if (capture == null || capture.getAccountHash() != client.getAccountHash()) return null;
+        return capture;
+    }
+
+    private void addCapturedData(PlayerData playerData, SharedCapture capture) {
+        // skills, falling back to the client for any skill the capture doesn't have (Overall)
+        Map<String, Integer> capturedXp = new HashMap<>();
+        for (int i = 0; i < capture.getSkillNames().length; i++) {
+            capturedXp.put(capture.getSkillNames()[i], capture.getSkillXp()[i]);
+        }
+        for (Skill skill : Skill.values()) {
+            String name = skill.getName();
+            Integer xp = capturedXp.get(name);
+            playerData.getSkills().put(name, xp != null ? xp : client.getSkillExperience(skill));
+        }
+
+        // quests, states use the same 0/1/2 encoding
+        for (int i = 0; i < capture.getQuestIds().length; i++) {
+            playerData.getQuests().put(capture.getQuestIds()[i], (int) capture.getQuestStates()[i]);
+        }
+
+        // combat achievement tiers
+        for (CombatAchievementTier tier : CombatAchievementTier.values()) {
+            int id = tier.getId();
+            int completedCount = capture.hasCombatAchievementTier(id)
+                    ? capture.getCombatAchievementTierCompleted(id)
+                    : tier.getCompletedCount(client);
+            playerData.getCombatAchievementTiers().put(id, completedCount);
+        }
+
+        // achievement diary tiers
+        for (AchievementDiary diary : AchievementDiary.values()) {
+            int areaId = diary.getId();
+            if (!capture.hasDiary(areaId)) {
+                addDiaryTiers(playerData, areaId, diary.getTiersCompletedCount(client));
+                continue;
+            }
+            for (int tierIndex = 0; tierIndex < 4; tierIndex++) {
+                int completedCount = capture.getDiaryTierCompleted(areaId, tierIndex);
+                playerData.getAchievementDiaryTiers().add(new AchievementDiaryTierData(areaId, tierIndex, completedCount));
+            }
+        }
+    }
+
+    private void addClientData(PlayerData playerData) {
+        // skills
+        for (Skill skill : Skill.values()) {
+            String name = skill.getName();
+            int xp = client.getSkillExperience(skill);
+            playerData.getSkills().put(name, xp);
+        }
+
+        // quests
+        for (Quest quest : Quest.values()) {
+            int id = quest.getId();
+            QuestState stateEnum = quest.getState(client);
+            int state = 0;
+            if (stateEnum == QuestState.IN_PROGRESS) {
+                state = 1;
+            } else if (stateEnum == QuestState.FINISHED) {
+                state = 2;
+            }
+            playerData.getQuests().put(id, state);
+        }
+
+        // combat achievement tiers
+        for (CombatAchievementTier tier : CombatAchievementTier.values()) {
+            int id = tier.getId();
+            int completedCount = tier.getCompletedCount(client);
+            playerData.getCombatAchievementTiers().put(id, completedCount);
+        }
+
+        // achievement diary tiers
+        for (AchievementDiary diary : AchievementDiary.values()) {
+            addDiaryTiers(playerData, diary.getId(), diary.getTiersCompletedCount(client));
+        }
+    }
+
+    private static void addDiaryTiers(PlayerData playerData, int areaId, int[] completedCounts) {
+        for (int tierIndex = 0; tierIndex < completedCounts.length; tierIndex++) {
+            int completedCount = completedCounts[tierIndex];
+            playerData.getAchievementDiaryTiers().add(new AchievementDiaryTierData(areaId, tierIndex, completedCount));
+        }
+    }
+
     public PlayerClanData getPlayerClanData(Player player) {
         if (!config.includeClanData()) return new PlayerClanData("", -1, -1, "");
 
@@ -158,37 +248,38 @@ public class PlayerDataService {
         return new PlayerClanData(clanSettings.getName(), rank.getRank(), title.getId(), title.getName());
     }
 
-    public CompletableFuture<PlayerModelData> getPlayerModelDataAsync() {
+    /**
+     * @param compact  whether to also export the models as CompactMesh
+     * @param animated whether to also record the player's next poses as AnimatedMesh, see AnimationCapture
+     */
+    public CompletableFuture<PlayerModelData> getPlayerModelDataAsync(boolean compact, boolean animated) {
         CompletableFuture<PlayerModelData> dataFuture = new CompletableFuture<>();
+        CompletableFuture<byte[]> animationFuture = new CompletableFuture<>();
         clientThread.invokeLater(() -> {
             String accountHash = AccountHash.getHashed(client);
 
+            // Only copy the models here, converting them would stall the client thread
             Player player = client.getLocalPlayer();
-            Model model = player.getModel();
-
-            byte[] modelBytes = null;
-            try {
-                modelBytes = ModelExporter.toBytes(client, model);
-            } catch (IOException e) {
-                dataFuture.completeExceptionally(e);
-                return;
-            }
+            ModelCapture model = ModelCapture.of(client, player.getModel());
 
             NPC pet = client.getFollower();
             Model petModel = pet != null ? pet.getModel() : null;
+            ModelCapture petCapture = petModel != null ? ModelCapture.of(client, petModel) : null;
 
-            byte[] petModelBytes = null;
-            if (petModel != null) {
+            if (animated) {
+                animationCapture.record(model).thenAccept(animationFuture::complete);
+            } else {
+                animationFuture.complete(null);
+            }
+
+            scheduledExecutorService.execute(() -> {
                 try {
-                    petModelBytes = ModelExporter.toBytes(client, petModel);
-                } catch (IOException e) {
+                    dataFuture.complete(modelExportCache.export(accountHash, model, petCapture, compact));
+                } catch (IOException | RuntimeException e) {
                     dataFuture.completeExceptionally(e);
-                    return;
                 }
-            }
-
-            dataFuture.complete(new PlayerModelData(accountHash, modelBytes, petModelBytes));
+            });
         });
-        return dataFuture;
+        return dataFuture.thenCombine(animationFuture, PlayerModelData::withAnimation);
     }
 }
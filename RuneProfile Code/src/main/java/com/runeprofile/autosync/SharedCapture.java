@@ -0,0 +1,81 @@
+package com.runeprofile.autosync;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Player data captured by the RuneStatus plugin and shared as a PluginMessage, so the two plugins
+ * don't both run the quest, diary and combat achievement scripts. Only the fields RuneProfile uses are read.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+class SharedCapture {
+    static final String NAMESPACE = "runestatus";
+    static final String CAPTURE = "capture";
+    static final String CAPTURE_REQUEST = "capture-request";
+
+    private static final int VERSION = 1;
+    private static final int DIARY_TIERS = 4;
+
+    private final long accountHash;
+    private final String[] skillNames;
+    private final int[] skillXp;
+    private final int[] questIds;
+    private final byte[] questStates;
+    // Indexed by diary id * 4 + tier
+    private final int[] diaryCompleted;
+    // Indexed by tier id - 1
+    private final int[] combatAchievementsCompleted;
+
+    /**
+     * @return null if the message isn't a capture this version understands
+     */
+    static SharedCapture fromMessage(Map<String, Object> data) {
+        if (data == null || !Integer.valueOf(VERSION).equals(data.get("version"))) return null;
+
+        Object accountHash = data.get("accountHash");
+        Object skillNames = data.get("skillNames");
+        Object skillXp = data.get("skillXp");
+        Object questIds = data.get("questIds");
+        Object questStates = data.get("questStates");
+        Object diaryCompleted = data.get("diaryCompleted");
+        Object combatAchievementsCompleted = data.get("combatAchievementsCompleted");
+
+        if (!(accountHash instanceof Long)
+                || !(skillNames instanceof String[])
+                || !(skillXp instanceof int[])
+                || !(questIds instanceof int[])
+                || !(questStates instanceof byte[])
+                || !(diaryCompleted instanceof int[])
+                || !(combatAchievementsCompleted instanceof int[])) {
+            return null;
+        }
+
+        if (((String[]) skillNames).length != ((int[]) skillXp).length
+                || ((int[]) questIds).length != ((byte[]) questStates).length) {
+            return null;
+        }
+
+        return new SharedCapture((Long) accountHash, (String[]) skillNames, (int[]) skillXp,
+                (int[]) questIds, (byte[]) questStates, (int[]) diaryCompleted, (int[]) combatAchievementsCompleted);
+    }
+
+    boolean hasDiary(int areaId) {
+        return areaId >= 0 && (areaId + 1) * DIARY_TIERS <= diaryCompleted.length;
+    }
+
+    int getDiaryTierCompleted(int areaId, int tierIndex) {
+        return diaryCompleted[areaId * DIARY_TIERS + tierIndex];
+    }
+
+    boolean hasCombatAchievementTier(int tierId) {
+        return tierId >= 1 && tierId <= combatAchievementsCompleted.length;
+    }
+
+    int getCombatAchievementTierCompleted(int tierId) {
+        return combatAchievementsCompleted[tierId - 1];
+    }
+}
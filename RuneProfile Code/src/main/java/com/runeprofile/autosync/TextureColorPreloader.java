@@ -0,0 +1,177 @@
+package com.runeprofile.autosync;
+
+import com.runeprofile.modelexporter.TextureColor;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.TextureProvider;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.client.RuneLite;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Averages every texture once after the first login, so model exports never have to load textures.
+ * <p>
+ * Averages saved by an earlier session for the same game revision and brightness are read from disk first.
+ * The rest are loaded on the client thread a few textures per frame, then everything is saved for next time.
+ */
+@Slf4j
+@Singleton
+public class TextureColorPreloader {
+    private static final File CACHE_DIR = new File(RuneLite.RUNELITE_DIR, "runeprofile");
+    private static final String FILE_PREFIX = "texture-colors-";
+    private static final int FILE_MAGIC = 0x52505443; // "RPTC"
+
+    // Textures are 128x128, so this stays well under a millisecond per frame
+    private static final int TEXTURES_PER_FRAME = 8;
+
+    @Inject
+    private EventBus eventBus;
+
+    @Inject
+    private Client client;
+
+    @Inject
+    private ClientThread clientThread;
+
+    @Inject
+    private ScheduledExecutorService scheduledExecutorService;
+
+    // Only touched on the client thread
+    private boolean started;
+
+    public void startUp() {
+        eventBus.register(this);
+    }
+
+    public void shutDown() {
+        eventBus.unregister(this);
+    }
+
+    @Subscribe
+    public void onGameStateChanged(GameStateChanged event) {
+        if (started || event.getGameState() != GameState.LOGGED_IN) {
+            return;
+        }
+        started = true;
+
+        TextureProvider textureProvider = client.getTextureProvider();
+        int revision = client.getRevision();
+        double brightness = textureProvider.getBrightness();
+        int textureCount = textureProvider.getTextures().length;
+        File file = new File(CACHE_DIR, FILE_PREFIX + revision + ".bin");
+
+        scheduledExecutorService.execute(() -> {
+            int[] saved = read(file, revision, brightness, textureCount);
+            if (saved != null) {
+                TextureColor.restore(brightness, saved);
+            }
+            clientThread.invoke(new Preload(textureCount, () -> scheduledExecutorService.execute(() ->
+                    write(file, revision, brightness, TextureColor.snapshot(textureCount)))));
+        });
+    }
+
+    /**
+     * Averages the textures that aren't cached yet, a few per frame. Runs until it returns true.
+     */
+    private class Preload implements BooleanSupplier {
+        private final int textureCount;
+        private final Runnable onLoaded;
+        private int next;
+        private boolean loadedAny;
+
+        Preload(int textureCount, Runnable onLoaded) {
+            this.textureCount = textureCount;
+            this.onLoaded = onLoaded;
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            int loaded = 0;
+            while (next < textureCount && loaded < TEXTURES_PER_FRAME) {
+                int textureId = next++;
+                if (!TextureColor.isCached(textureId)) {
+                    TextureColor.getRgb(client, textureId);
+                    loaded++;
+                }
+            }
+            loadedAny |= loaded > 0;
+
+            if (next < textureCount) {
+                return false;
+            }
+            if (loadedAny) {
+                onLoaded.run();
+            }
+            return true;
+        }
+    }
+
+    private static int[] read(File file, int revision, double brightness, int textureCount) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != revision || in.readDouble() != brightness
+                    || in.readInt() != textureCount) {
+                return null;
+            }
+            int[] rgbs = new int[textureCount];
+            for (int i = 0; i < textureCount; i++) {
+                rgbs[i] = in.readInt();
+            }
+            return rgbs;
+        } catch (IOException e) {
+            log.debug("Could not read texture colors from {}", file, e);
+            return null;
+        }
+    }
+
+    private static void write(File file, int revision, double brightness, int[] rgbs) {
+        File temp = new File(CACHE_DIR, file.getName() + ".tmp");
+        try {
+            Files.createDirectories(CACHE_DIR.toPath());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(revision);
+                out.writeDouble(brightness);
+                out.writeInt(rgbs.length);
+                for (int rgb : rgbs) {
+                    out.writeInt(rgb);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.debug("Could not save texture colors to {}", file, e);
+            return;
+        }
+
+        // Colors saved for older revisions will never be read again
+        File[] files = CACHE_DIR.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && !name.equals(file.getName()));
+        if (files != null) {
+            for (File old : files) {
+                if (!old.delete()) {
+                    log.debug("Could not delete old texture colors {}", old);
+                }
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 import javax.annotation.Nullable;
+import java.util.Arrays;
 
 @RequiredArgsConstructor
 @Getter
@@ -13,4 +14,23 @@ public class PlayerModelData {
     private final byte[] model;
     @Nullable
     private final byte[] petModel;
+    // Hash of the exported player and pet models and the animation, see ModelExportCache
+    private final long contentHash;
+    // Same models as CompactMesh, only set when the server accepts that format
+    @Nullable
+    private final byte[] compactModel;
+    @Nullable
+    private final byte[] compactPetModel;
+    // Poses of the player model as AnimatedMesh, only set when the server accepts that format and the player moved
+    @Nullable
+    private final byte[] animation;
+
+    /**
+     * @return a copy carrying {@code animation}, with the animation mixed into the content hash so that
+     * a new animation of an unchanged model isn't skipped as already uploaded
+     */
+    public PlayerModelData withAnimation(@Nullable byte[] animation) {
+        long hash = animation != null ? contentHash * 31 + Arrays.hashCode(animation) : contentHash;
+        return new PlayerModelData(accountHash, model, petModel, hash, compactModel, compactPetModel, animation);
+    }
 }
@@ -0,0 +1,99 @@
+package com.runeprofile.modelexporter;
+
+import lombok.Value;
+
+import java.io.IOException;
+
+/**
+ * Several poses of one model, such as the frames of an idle animation, sharing the first pose's faces and colors.
+ * <p>
+ * Framed like {@link CompactMesh}, with the magic {@code RPMA}. The deflated body holds:
+ * <ul>
+ *     <li>frame count, then each frame's duration in client ticks</li>
+ *     <li>the position quantization step</li>
+ *     <li>the first frame as a {@link CompactMesh} body, the keyframe</li>
+ *     <li>per later frame and vertex, the zigzag deltas of x, y and z from the keyframe, divided by the step</li>
+ * </ul>
+ * Most vertices move little or not at all between poses, so the deltas are mostly zero and a frame
+ * deflates to a small fraction of the keyframe.
+ */
+public final class AnimatedMesh {
+    public static final String MEDIA_TYPE = "model/x-runeprofile-animation";
+    // Name the server advertises when it accepts this version of the format
+    public static final String FORMAT = "anim-v1";
+
+    private static final byte[] MAGIC = {'R', 'P', 'M', 'A'};
+
+    // Deltas are stored in units of this many model units. 1 keeps every pose exact
+    static final int QUANTIZATION_STEP = 1;
+
+    private AnimatedMesh() {
+    }
+
+    @Value
+    public static class Animation {
+        CompactMesh.Mesh keyframe;
+        // Positions of every frame after the keyframe, laid out like the keyframe's
+        short[][] framePositions;
+        // Client ticks each frame is shown for, keyframe first
+        int[] durations;
+
+        public int getFrameCount() {
+            return durations.length;
+        }
+    }
+
+    static byte[] encode(Animation animation) {
+        CompactMesh.Mesh keyframe = animation.getKeyframe();
+        short[] keyPositions = keyframe.getPositions();
+        short[][] framePositions = animation.getFramePositions();
+        int[] durations = animation.getDurations();
+
+        int maxBytes = Varints.MAX_BYTES * (2 + durations.length + framePositions.length * keyPositions.length)
+                + CompactMesh.maxBodyBytes(keyframe);
+        Varints body = new Varints(new byte[maxBytes]);
+
+        body.putVarint(durations.length);
+        for (int duration : durations) {
+            body.putVarint(duration);
+        }
+        body.putVarint(QUANTIZATION_STEP);
+        CompactMesh.writeMesh(body, keyframe);
+
+        for (short[] positions : framePositions) {
+            for (int i = 0; i < keyPositions.length; i++) {
+                body.putZigzag(Math.round((positions[i] - keyPositions[i]) / (float) QUANTIZATION_STEP));
+            }
+        }
+        return CompactMesh.pack(MAGIC, body);
+    }
+
+    public static Animation decode(byte[] data) throws IOException {
+        Varints in = CompactMesh.unpack(MAGIC, data);
+
+        int frameCount = in.getCount(1);
+        if (frameCount == 0) {
+            throw new IOException("Animation has no frames");
+        }
+        int[] durations = new int[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            durations[i] = in.getVarint();
+        }
+        int step = in.getVarint();
+        if (step <= 0) {
+            throw new IOException("Animation quantization step is out of range");
+        }
+        CompactMesh.Mesh keyframe = CompactMesh.readMesh(in);
+
+        short[] keyPositions = keyframe.getPositions();
+        short[][] framePositions = new short[frameCount - 1][];
+        for (int frame = 0; frame < framePositions.length; frame++) {
+            short[] positions = new short[keyPositions.length];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = (short) (keyPositions[i] + in.getZigzag() * step);
+            }
+            framePositions[frame] = positions;
+        }
+        return new Animation(keyframe, framePositions, durations);
+    }
+}
@@ -0,0 +1,231 @@
+package com.runeprofile.modelexporter;
+
+import lombok.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact alternative to the binary PLY upload, holding the same indexed mesh in far fewer bytes.
+ * <p>
+ * Layout: the magic {@code RPME}, a version byte and the little endian int32 length of the body, then
+ * the deflated body. The body is made of unsigned LEB128 varints:
+ * <ul>
+ *     <li>vertex count, then per vertex the zigzag deltas of x, y and z from the previous vertex</li>
+ *     <li>palette size, then each palette color as three bytes (red, green, blue)</li>
+ *     <li>per vertex, the index of its color in the palette</li>
+ *     <li>face count, then per face corner the zigzag delta of its vertex index from the previous corner's</li>
+ * </ul>
+ * Positions are the int16 values the PLY would hold, so nothing is lost. Vertices are in order of first
+ * use, so both the position and the index deltas are mostly small.
+ */
+public final class CompactMesh {
+    public static final String MEDIA_TYPE = "model/x-runeprofile-mesh";
+    // Name the server advertises when it accepts this version of the format
+    public static final String FORMAT = "mesh-v1";
+
+    private static final byte[] MAGIC = {'R', 'P', 'M', 'E'};
+    private static final int VERSION = 1;
+    // Magic, version and body length
+    private static final int HEADER_BYTES = 4 + 1 + 4;
+
+    private CompactMesh() {
+    }
+
+    /**
+     * Indexed mesh in PLY axes: x, y, z per vertex, 0xRRGGBB per vertex and three vertex indices per face.
+     */
+    @Value
+    public static class Mesh {
+        short[] positions;
+        int[] colors;
+        int[] indices;
+
+        public int getVertexCount() {
+            return colors.length;
+        }
+
+        public int getFaceCount() {
+            return indices.length / 3;
+        }
+    }
+
+    static byte[] encode(Mesh mesh) {
+        Varints body = new Varints(new byte[maxBodyBytes(mesh)]);
+        writeMesh(body, mesh);
+        return pack(MAGIC, body);
+    }
+
+    public static Mesh decode(byte[] data) throws IOException {
+        return readMesh(unpack(MAGIC, data));
+    }
+
+    /**
+     * @return the most bytes {@link #writeMesh} can write for {@code mesh}
+     */
+    static int maxBodyBytes(Mesh mesh) {
+        return Varints.MAX_BYTES * (3 + mesh.getPositions().length + 2 * mesh.getVertexCount() + mesh.getIndices().length);
+    }
+
+    static void writeMesh(Varints body, Mesh mesh) {
+        short[] positions = mesh.getPositions();
+        int[] colors = mesh.getColors();
+        int[] indices = mesh.getIndices();
+        int vertexCount = mesh.getVertexCount();
+
+        LongIntHashMap paletteIndices = new LongIntHashMap(vertexCount);
+        int[] palette = new int[vertexCount];
+        int[] vertexPalette = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            int rgb = colors[i] & 0xFFFFFF;
+            int index = paletteIndices.putIfAbsent(rgb, paletteIndices.size());
+            if (index == -1) {
+                index = paletteIndices.size() - 1;
+                palette[index] = rgb;
+            }
+            vertexPalette[i] = index;
+        }
+        int paletteSize = paletteIndices.size();
+
+        body.putVarint(vertexCount);
+        int x = 0;
+        int y = 0;
+        int z = 0;
+        for (int i = 0; i < positions.length; i += 3) {
+            body.putZigzag(positions[i] - x);
+            body.putZigzag(positions[i + 1] - y);
+            body.putZigzag(positions[i + 2] - z);
+            x = positions[i];
+            y = positions[i + 1];
+            z = positions[i + 2];
+        }
+
+        body.putVarint(paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            body.putByte(palette[i] >> 16);
+            body.putByte(palette[i] >> 8);
+            body.putByte(palette[i]);
+        }
+        for (int i = 0; i < vertexCount; i++) {
+            body.putVarint(vertexPalette[i]);
+        }
+
+        body.putVarint(mesh.getFaceCount());
+        int previous = 0;
+        for (int index : indices) {
+            body.putZigzag(index - previous);
+            previous = index;
+        }
+    }
+
+    static Mesh readMesh(Varints in) throws IOException {
+        int vertexCount = in.getCount(3);
+        short[] positions = new short[vertexCount * 3];
+        int x = 0;
+        int y = 0;
+        int z = 0;
+        for (int i = 0; i < positions.length; i += 3) {
+            x += in.getZigzag();
+            y += in.getZigzag();
+            z += in.getZigzag();
+            positions[i] = (short) x;
+            positions[i + 1] = (short) y;
+            positions[i + 2] = (short) z;
+        }
+
+        int paletteSize = in.getCount(3);
+        int[] palette = new int[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            palette[i] = in.getByte() << 16 | in.getByte() << 8 | in.getByte();
+        }
+        int[] colors = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            int index = in.getVarint();
+            if (index < 0 || index >= paletteSize) {
+                throw new IOException("Mesh color is out of range");
+            }
+            colors[i] = palette[index];
+        }
+
+        int faceCount = in.getCount(3);
+        int[] indices = new int[faceCount * 3];
+        int index = 0;
+        for (int i = 0; i < indices.length; i++) {
+            index += in.getZigzag();
+            if (index < 0 || index >= vertexCount) {
+                throw new IOException("Mesh vertex index is out of range");
+            }
+            indices[i] = index;
+        }
+        return new Mesh(positions, colors, indices);
+    }
+
+    /**
+     * Writes the magic, version and body length, then the deflated body.
+     */
+    static byte[] pack(byte[] magic, Varints body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_BYTES + body.position / 4);
+        out.write(magic, 0, magic.length);
+        out.write(VERSION);
+        out.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(body.position).array(), 0, 4);
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(body.bytes, 0, body.position);
+            deflater.finish();
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Checks the magic and version written by {@link #pack} and inflates the body.
+     */
+    static Varints unpack(byte[] magic, byte[] data) throws IOException {
+        if (data.length < HEADER_BYTES) {
+            throw new IOException("Mesh data is truncated");
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (data[i] != magic[i]) {
+                throw new IOException("Unexpected mesh data type");
+            }
+        }
+        if (data[magic.length] != VERSION) {
+            throw new IOException("Unsupported mesh version " + data[magic.length]);
+        }
+        int bodyLength = ByteBuffer.wrap(data, magic.length + 1, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (bodyLength < 0) {
+            throw new IOException("Mesh data is corrupt");
+        }
+
+        byte[] body = new byte[bodyLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_BYTES, data.length - HEADER_BYTES);
+            int read = 0;
+            while (read < bodyLength) {
+                int n = inflater.inflate(body, read, bodyLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Mesh data is truncated");
+                }
+                read += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Mesh data is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        return new Varints(body);
+    }
+}
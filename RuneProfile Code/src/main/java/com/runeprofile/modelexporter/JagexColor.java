@@ -25,6 +25,7 @@
 package com.runeprofile.modelexporter;
 
 import java.awt.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 // Originally from RuneLite cache
 // Additions made for calculating average of 3 colors
@@ -38,6 +39,10 @@ public final class JagexColor
 	private static final double HUE_OFFSET = (.5 / 64.D);
 	private static final double SATURATION_OFFSET = (.5 / 8.D);
 
+	private static final double[] BRIGHTNESS_LEVELS = {BRIGHTNESS_MAX, BRIGHTNESS_HIGH, BRIGHTNESS_LOW, BRIGHTNESS_MIN};
+	// Palette per brightness level, built on first use
+	private static final AtomicReferenceArray<int[]> palettes = new AtomicReferenceArray<>(BRIGHTNESS_LEVELS.length);
+
 	private JagexColor()
 	{
 	}
@@ -45,15 +50,16 @@ public final class JagexColor
 	// take 3 Jagex HSL colors and make a single RGB color to represent them
 	public static Color HSLtoRGBAvg(int hsl1, int hsl2, int hsl3)
 	{
-		Color c1 = new Color(HSLtoRGB((short) hsl1, BRIGHTNESS_MIN));
-		Color c2 = new Color(HSLtoRGB((short) hsl2, BRIGHTNESS_MIN));
-		Color c3 = new Color(HSLtoRGB((short) hsl3, BRIGHTNESS_MIN));
+		int[] palette = palette(BRIGHTNESS_MIN);
+		int c1 = palette[hsl1 & 0xFFFF];
+		int c2 = palette[hsl2 & 0xFFFF];
+		int c3 = palette[hsl3 & 0xFFFF];
 
 		// compute color average using squares
 		// uses squared approach from https://sighack.com/post/averaging-rgb-colors-the-right-way
-		int r = c1.getRed()*c1.getRed() + c2.getRed()*c2.getRed() + c3.getRed()*c3.getRed();
-		int g = c1.getGreen()*c1.getGreen() + c2.getGreen()*c2.getGreen() + c3.getGreen()*c3.getGreen();
-		int b = c1.getBlue()*c1.getBlue() + c2.getBlue()*c2.getBlue() + c3.getBlue()*c3.getBlue();
+		int r = square(c1 >> 16 & 255) + square(c2 >> 16 & 255) + square(c3 >> 16 & 255);
+		int g = square(c1 >> 8 & 255) + square(c2 >> 8 & 255) + square(c3 >> 8 & 255);
+		int b = square(c1 & 255) + square(c2 & 255) + square(c3 & 255);
 
 		r = (int) Math.round(Math.sqrt((double) r / 3.0d));
 		g = (int) Math.round(Math.sqrt((double) g / 3.0d));
@@ -62,6 +68,11 @@ public final class JagexColor
 		return new Color(r, g, b);
 	}
 
+	private static int square(int channel)
+	{
+		return channel * channel;
+	}
+
 	public static short packHSL(int hue, int saturation, int luminance)
 	{
 		return (short) ((short) (hue & 63) << 10
@@ -158,6 +169,29 @@ public final class JagexColor
 				| (int) (b * 256.0D);
 	}
 
+	/**
+	 * Shared palette for one of the BRIGHTNESS constants, built on first use. Index it with the
+	 * HSL value's low 16 bits instead of calling {@link #HSLtoRGB}. The array must not be modified.
+	 */
+	public static int[] palette(double brightness)
+	{
+		for (int level = 0; level < BRIGHTNESS_LEVELS.length; level++)
+		{
+			if (BRIGHTNESS_LEVELS[level] == brightness)
+			{
+				int[] palette = palettes.get(level);
+				if (palette == null)
+				{
+					// Racing threads build the same table, and all but the first one's is dropped
+					palettes.compareAndSet(level, null, createPalette(brightness));
+					palette = palettes.get(level);
+				}
+				return palette;
+			}
+		}
+		throw new IllegalArgumentException("Not a brightness level: " + brightness);
+	}
+
 	public static int[] createPalette(double brightness)
 	{
 		int[] colorPalette = new int[65536];
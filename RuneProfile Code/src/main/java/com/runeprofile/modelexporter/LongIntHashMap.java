@@ -0,0 +1,55 @@
+package com.runeprofile.modelexporter;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative long keys to int values, with linear probing
+ * and no boxing. Sized once for the most keys it will hold and never resized.
+ */
+final class LongIntHashMap {
+    private static final long EMPTY = -1;
+
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+    private int size;
+
+    LongIntHashMap(int maxSize) {
+        // Keep the load factor at or below one half
+        int capacity = Integer.highestOneBit(Math.max(maxSize, 1) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the value already mapped to {@code key}, or -1 after mapping it to {@code value}
+     */
+    int putIfAbsent(long key, int value) {
+        int slot = hash(key) & mask;
+        while (true) {
+            long existing = keys[slot];
+            if (existing == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                size++;
+                return -1;
+            }
+            if (existing == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(long key) {
+        // Fibonacci hashing spreads the packed fields over the high bits
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
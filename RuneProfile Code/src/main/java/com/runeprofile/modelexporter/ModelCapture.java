@@ -0,0 +1,140 @@
+package com.runeprofile.modelexporter;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import net.runelite.api.Client;
+import net.runelite.api.Model;
+
+import java.util.Arrays;
+
+/**
+ * Immutable copy of everything {@link ModelExporter} reads from a model, including the average color
+ * of each textured face.
+ * <p>
+ * Taking one is a handful of array copies, so it is cheap enough for the client thread. Hashing and
+ * exporting the capture can then happen on any thread without touching the client or the live model.
+ */
+@Getter(AccessLevel.PACKAGE)
+public final class ModelCapture {
+    @Getter
+    private final int faceCount;
+    @Getter
+    private final int verticesCount;
+    // The arrays are shared with the exporter rather than copied again, so they aren't public
+    private final float[] verticesX;
+    private final float[] verticesY;
+    private final float[] verticesZ;
+    private final int[] faceIndices1;
+    private final int[] faceIndices2;
+    private final int[] faceIndices3;
+    private final int[] faceColors1;
+    private final int[] faceColors2;
+    private final int[] faceColors3;
+    // Texture id per face, -1 if untextured. Null if the model has no textures
+    private final short[] faceTextures;
+    // Average texture color per textured face, only meaningful where faceTextures isn't -1
+    private final int[] faceTextureColors;
+
+    private ModelCapture(Client client, Model m) {
+        // Model arrays can be longer than the counts, only the part in use is copied
+        faceCount = m.getFaceCount();
+        verticesCount = m.getVerticesCount();
+        verticesX = Arrays.copyOf(m.getVerticesX(), verticesCount);
+        verticesY = Arrays.copyOf(m.getVerticesY(), verticesCount);
+        verticesZ = Arrays.copyOf(m.getVerticesZ(), verticesCount);
+        faceIndices1 = Arrays.copyOf(m.getFaceIndices1(), faceCount);
+        faceIndices2 = Arrays.copyOf(m.getFaceIndices2(), faceCount);
+        faceIndices3 = Arrays.copyOf(m.getFaceIndices3(), faceCount);
+        faceColors1 = Arrays.copyOf(m.getFaceColors1(), faceCount);
+        faceColors2 = Arrays.copyOf(m.getFaceColors2(), faceCount);
+        faceColors3 = Arrays.copyOf(m.getFaceColors3(), faceCount);
+
+        short[] textures = m.getFaceTextures();
+        if (textures == null) {
+            faceTextures = null;
+            faceTextureColors = null;
+        } else {
+            faceTextures = Arrays.copyOf(textures, faceCount);
+            faceTextureColors = new int[faceCount];
+            for (int fi = 0; fi < faceCount; fi++) {
+                if (faceTextures[fi] != -1) {
+                    // Textures are loaded through the client, so this is the only part that needs it
+                    faceTextureColors[fi] = TextureColor.getRgb(client, faceTextures[fi]);
+                }
+            }
+        }
+    }
+
+    /**
+     * A later pose of the same model, with its own vertex positions and every other array shared with {@code faces}.
+     */
+    private ModelCapture(ModelCapture faces, Model m) {
+        faceCount = faces.faceCount;
+        verticesCount = faces.verticesCount;
+        verticesX = Arrays.copyOf(m.getVerticesX(), verticesCount);
+        verticesY = Arrays.copyOf(m.getVerticesY(), verticesCount);
+        verticesZ = Arrays.copyOf(m.getVerticesZ(), verticesCount);
+        faceIndices1 = faces.faceIndices1;
+        faceIndices2 = faces.faceIndices2;
+        faceIndices3 = faces.faceIndices3;
+        faceColors1 = faces.faceColors1;
+        faceColors2 = faces.faceColors2;
+        faceColors3 = faces.faceColors3;
+        faceTextures = faces.faceTextures;
+        faceTextureColors = faces.faceTextureColors;
+    }
+
+    /**
+     * @return whether {@code other} has the same vertex count and faces, which an animated model keeps from pose to pose
+     */
+    public boolean hasSameFaces(ModelCapture other) {
+        return verticesCount == other.verticesCount
+                && Arrays.equals(faceIndices1, other.faceIndices1)
+                && Arrays.equals(faceIndices2, other.faceIndices2)
+                && Arrays.equals(faceIndices3, other.faceIndices3)
+                && Arrays.equals(faceColors1, other.faceColors1)
+                && Arrays.equals(faceColors2, other.faceColors2)
+                && Arrays.equals(faceColors3, other.faceColors3)
+                && Arrays.equals(faceTextures, other.faceTextures);
+    }
+
+    /**
+     * @return whether {@code m} has as many vertices and faces as this capture. Reads two counts, so it is cheap
+     * enough to check every client tick where {@link #hasSameFaces} is not
+     */
+    public boolean hasSameCounts(@NonNull Model m) {
+        return m.getVerticesCount() == verticesCount && m.getFaceCount() == faceCount;
+    }
+
+    /**
+     * @return whether every vertex of {@code m} is where this capture has it, compared in place without copying.
+     * Only meaningful if {@link #hasSameCounts} holds. Must be called on the client thread
+     */
+    public boolean hasSameVertices(@NonNull Model m) {
+        float[] x = m.getVerticesX();
+        float[] y = m.getVerticesY();
+        float[] z = m.getVerticesZ();
+        for (int i = 0; i < verticesCount; i++) {
+            if (x[i] != verticesX[i] || y[i] != verticesY[i] || z[i] != verticesZ[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Captures {@code m} as a pose of this capture's model, copying only its vertex positions and sharing the faces,
+     * colors and textures with this capture. Must be called on the client thread, with {@link #hasSameCounts} holding.
+     */
+    public ModelCapture pose(@NonNull Model m) {
+        return new ModelCapture(this, m);
+    }
+
+    /**
+     * Must be called on the client thread.
+     */
+    public static ModelCapture of(@NonNull Client client, @NonNull Model m) {
+        return new ModelCapture(client, m);
+    }
+}
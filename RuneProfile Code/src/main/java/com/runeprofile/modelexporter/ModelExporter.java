@@ -29,139 +29,440 @@ import lombok.NonNull;
 import net.runelite.api.Client;
 import net.runelite.api.Model;
 
-import java.awt.Color;
-import java.io.PrintWriter;
 import java.io.IOException;
-import java.io.ByteArrayOutputStream;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Objects;
+import java.util.stream.IntStream;
 
+/**
+ * Exports a model as a binary little endian PLY.
+ * <p>
+ * The indexed layout (the default) writes each distinct (x, y, z, red, green, blue) vertex once and has
+ * faces index into that table. The corner layout writes three fresh vertices per face. Face indices are
+ * int16 unless there are too many vertices for that, in which case they are int32.
+ * <p>
+ * {@link #toBytes} writes into a single buffer of the exact output size, without creating per-vertex objects.
+ * Models with at least {@link #PARALLEL_FACE_THRESHOLD} faces have their colors resolved and their vertices
+ * and faces written on the common fork-join pool, with the same output as the sequential path.
+ * <p>
+ * The export reads a {@link ModelCapture} rather than the live model, so only taking the capture has to
+ * happen on the client thread. The overloads taking a {@link Model} take the capture themselves.
+ */
 public class ModelExporter {
-    private final static int[] colorPalette = JagexColor.createPalette(JagexColor.BRIGHTNESS_MIN);
+    private final static int[] colorPalette = JagexColor.palette(JagexColor.BRIGHTNESS_MIN);
+
+    // int16 x, y, z and uint8 red, green, blue
+    private static final int VERTEX_BYTES = 3 * 2 + 3;
+
+    // Vertex indices above this don't fit in int16
+    private static final int MAX_INT16_INDEX = Short.MAX_VALUE;
+
+    // Below this many faces, splitting the work up costs more than it saves
+    static final int PARALLEL_FACE_THRESHOLD = 8192;
+
+    // Faces or vertices per parallel task
+    private static final int PARALLEL_CHUNK = 2048;
 
     public static byte[] toBytes(@NonNull Client client, Model m) throws IOException {
-        List<Vertex> vertices = new ArrayList<>();
-        for (int fi = 0; fi < m.getFaceCount(); fi++) {
-            // determine vertex colors (textured or colored?)
-            Color vc1;
-            Color vc2;
-            Color vc3;
-            int textureId = -1;
-            if (m.getFaceTextures() != null)
-                textureId = m.getFaceTextures()[fi];
-            if (textureId != -1) {
-                // get average color of texture
-                vc1 = TextureColor.getColor(client, textureId);
-                vc2 = vc1;
-                vc3 = vc1;
+        return toBytes(ModelCapture.of(client, m), true);
+    }
+
+    /**
+     * @param indexed whether to share vertices between faces instead of writing three per face
+     */
+    public static byte[] toBytes(@NonNull Client client, Model m, boolean indexed) throws IOException {
+        return toBytes(ModelCapture.of(client, m), indexed);
+    }
+
+    public static byte[] toBytes(@NonNull ModelCapture m) throws IOException {
+        return toBytes(m, true);
+    }
+
+    /**
+     * @param indexed whether to share vertices between faces instead of writing three per face
+     */
+    public static byte[] toBytes(@NonNull ModelCapture m, boolean indexed) throws IOException {
+        return toBytes(m, indexed, m.getFaceCount() >= PARALLEL_FACE_THRESHOLD);
+    }
+
+    /**
+     * @param parallel whether to resolve colors and write vertices and faces on the common fork-join pool.
+     *                 The output is the same either way
+     */
+    static byte[] toBytes(ModelCapture m, boolean indexed, boolean parallel) throws IOException {
+        Ply ply = indexed ? IndexedPly.create(m, parallel, true) : new CornerPly(m, parallel);
+        ByteBuffer buffer = ByteBuffer.allocate(ply.size()).order(ByteOrder.LITTLE_ENDIAN);
+        if (parallel) {
+            ply.writeParallel(buffer);
+        } else {
+            ply.write(buffer);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Exports the indexed layout as a {@link CompactMesh} instead of a PLY.
+     */
+    public static byte[] toCompactBytes(@NonNull ModelCapture m) {
+        return CompactMesh.encode(toMesh(m));
+    }
+
+    /**
+     * @return the vertices and faces the indexed PLY would hold
+     */
+    static CompactMesh.Mesh toMesh(ModelCapture m) {
+        IndexedPly ply = IndexedPly.create(m, m.getFaceCount() >= PARALLEL_FACE_THRESHOLD, true);
+        return ply.toMesh();
+    }
+
+    /**
+     * Exports poses of one model as an {@link AnimatedMesh}, the first one as the keyframe.
+     *
+     * @param frames    captures of the same model, see {@link ModelCapture#hasSameFaces}
+     * @param durations client ticks each frame was shown for
+     */
+    public static byte[] toAnimatedBytes(@NonNull List<ModelCapture> frames, @NonNull int[] durations) {
+        return AnimatedMesh.encode(toAnimation(frames, durations));
+    }
+
+    static AnimatedMesh.Animation toAnimation(List<ModelCapture> frames, int[] durations) {
+        if (frames.isEmpty() || frames.size() != durations.length) {
+            throw new IllegalArgumentException("Need a duration for each of at least one frame");
+        }
+
+        ModelCapture keyframe = frames.get(0);
+        // Vertices that only share a position in the keyframe can move apart in later frames, so they aren't merged
+        IndexedPly ply = IndexedPly.create(keyframe, keyframe.getFaceCount() >= PARALLEL_FACE_THRESHOLD, false);
+
+        short[][] framePositions = new short[frames.size() - 1][];
+        for (int i = 1; i < frames.size(); i++) {
+            ModelCapture frame = frames.get(i);
+            if (!frame.hasSameFaces(keyframe)) {
+                throw new IllegalArgumentException("Frame " + i + " has different faces than the keyframe");
+            }
+            framePositions[i - 1] = ply.positions(frame);
+        }
+        return new AnimatedMesh.Animation(ply.toMesh(), framePositions, durations.clone());
+    }
+
+    private abstract static class Ply {
+        final ModelCapture model;
+        final int faceCount;
+        final int vertexCount;
+        final int indexBytes;
+        final int faceBytes;
+        final byte[] header;
+        // Color of each face corner, face index * 3 + corner within the face
+        final int[] cornerColors;
+
+        Ply(ModelCapture model, int vertexCount, int[] cornerColors) {
+            this.model = model;
+            this.faceCount = model.getFaceCount();
+            this.vertexCount = vertexCount;
+            this.indexBytes = vertexCount - 1 > MAX_INT16_INDEX ? 4 : 2;
+            this.faceBytes = 1 + 3 * indexBytes;
+            this.header = header(vertexCount, faceCount, indexBytes == 4 ? "int32" : "int16");
+            this.cornerColors = cornerColors;
+        }
+
+        int size() {
+            return header.length + vertexCount * VERTEX_BYTES + faceCount * faceBytes;
+        }
+
+        /**
+         * Writes in order into a buffer of at least {@link #size()} bytes.
+         */
+        void write(ByteBuffer buffer) {
+            buffer.put(header);
+            putVertices(buffer, 0, vertexCount);
+            putFaces(buffer, 0, faceCount);
+        }
+
+        /**
+         * Writes into a buffer of exactly {@link #size()} bytes. Every vertex and face has a fixed
+         * offset, so ranges of them are written concurrently into disjoint slices.
+         */
+        void writeParallel(ByteBuffer buffer) {
+            buffer.put(header);
+            int verticesStart = header.length;
+            int facesStart = verticesStart + vertexCount * VERTEX_BYTES;
+
+            IntStream.range(0, chunks(vertexCount)).parallel().forEach(chunk -> {
+                int from = chunk * PARALLEL_CHUNK;
+                putVertices(slice(buffer, verticesStart + from * VERTEX_BYTES), from, Math.min(from + PARALLEL_CHUNK, vertexCount));
+            });
+            IntStream.range(0, chunks(faceCount)).parallel().forEach(chunk -> {
+                int from = chunk * PARALLEL_CHUNK;
+                putFaces(slice(buffer, facesStart + from * faceBytes), from, Math.min(from + PARALLEL_CHUNK, faceCount));
+            });
+        }
+
+        /**
+         * Model vertex at a face corner.
+         */
+        int cornerVertex(int corner) {
+            int fi = corner / 3;
+            switch (corner % 3) {
+                case 0:
+                    return model.getFaceIndices1()[fi];
+                case 1:
+                    return model.getFaceIndices2()[fi];
+                default:
+                    return model.getFaceIndices3()[fi];
+            }
+        }
+
+        void putVertex(ByteBuffer out, int vi, int rgb) {
+            // Y is negated, and Y and Z axes are flipped
+            out.putShort((short) (int) model.getVerticesX()[vi]);
+            out.putShort((short) (int) model.getVerticesZ()[vi]);
+            out.putShort((short) (int) -model.getVerticesY()[vi]);
+            out.put((byte) (rgb >> 16));
+            out.put((byte) (rgb >> 8));
+            out.put((byte) rgb);
+        }
+
+        void putFace(ByteBuffer out, int v1, int v2, int v3) {
+            out.put((byte) 3);
+            if (indexBytes == 4) {
+                out.putInt(v1);
+                out.putInt(v2);
+                out.putInt(v3);
+            } else {
+                out.putShort((short) v1);
+                out.putShort((short) v2);
+                out.putShort((short) v3);
+            }
+        }
+
+        /**
+         * Writes output vertices {@code from} (inclusive) to {@code to} (exclusive) at the buffer's position.
+         */
+        abstract void putVertices(ByteBuffer out, int from, int to);
+
+        /**
+         * Writes faces {@code from} (inclusive) to {@code to} (exclusive) at the buffer's position.
+         */
+        abstract void putFaces(ByteBuffer out, int from, int to);
+    }
+
+    /**
+     * Three vertices per face, in face order.
+     */
+    private static final class CornerPly extends Ply {
+        CornerPly(ModelCapture model, boolean parallel) {
+            super(model, model.getFaceCount() * 3, resolveColors(model, parallel));
+        }
+
+        @Override
+        void putVertices(ByteBuffer out, int from, int to) {
+            for (int corner = from; corner < to; corner++) {
+                putVertex(out, cornerVertex(corner), cornerColors[corner]);
+            }
+        }
+
+        @Override
+        void putFaces(ByteBuffer out, int from, int to) {
+            for (int i = from; i < to; ++i) {
+                int vi = i * 3;
+                putFace(out, vi, vi + 1, vi + 2);
+            }
+        }
+    }
+
+    /**
+     * Distinct vertices in order of first use, found before anything is written so the header has the count.
+     * Finding them depends on that order, so it stays sequential even when the rest runs in parallel.
+     */
+    private static final class IndexedPly extends Ply {
+        // Output vertex per face corner, and the first corner that used each output vertex
+        private final int[] cornerVertices;
+        private final int[] vertexCorners;
+
+        private IndexedPly(ModelCapture model, int vertexCount, int[] cornerColors, int[] cornerVertices, int[] vertexCorners) {
+            super(model, vertexCount, cornerColors);
+            this.cornerVertices = cornerVertices;
+            this.vertexCorners = vertexCorners;
+        }
+
+        /**
+         * @param mergePositions whether model vertices at the same int16 position can share an output vertex
+         */
+        static IndexedPly create(ModelCapture model, boolean parallel, boolean mergePositions) {
+            int[] cornerColors = resolveColors(model, parallel);
+            int[] cornerVertices = new int[cornerColors.length];
+            int[] vertexCorners = new int[cornerColors.length];
+            int vertexCount = deduplicate(model, mergePositions, cornerColors, cornerVertices, vertexCorners);
+            return new IndexedPly(model, vertexCount, cornerColors, cornerVertices, vertexCorners);
+        }
+
+        /**
+         * @return the number of distinct vertices
+         */
+        private static int deduplicate(ModelCapture m, boolean mergePositions, int[] cornerColors, int[] cornerVertices, int[] vertexCorners) {
+            float[] verticesX = m.getVerticesX();
+            float[] verticesY = m.getVerticesY();
+            float[] verticesZ = m.getVerticesZ();
+
+            // Model vertices that export to the same int16 position share a position id,
+            // so they can also share an output vertex when their colors match
+            int modelVertexCount = m.getVerticesCount();
+            int[] positionIds = new int[modelVertexCount];
+            if (mergePositions) {
+                LongIntHashMap positions = new LongIntHashMap(modelVertexCount);
+                for (int vi = 0; vi < modelVertexCount; vi++) {
+                    long key = ((long) ((int) verticesX[vi] & 0xFFFF) << 32)
+                            | ((long) ((int) verticesY[vi] & 0xFFFF) << 16)
+                            | ((int) verticesZ[vi] & 0xFFFF);
+                    int id = positions.putIfAbsent(key, positions.size());
+                    positionIds[vi] = id != -1 ? id : positions.size() - 1;
+                }
             } else {
-                if (m.getFaceColors3()[fi] == -1) {
-                    // face should be shaded flat
-                    int colorIndex = m.getFaceColors1()[fi];
-                    int rgbColor = colorPalette[colorIndex];
-                    vc1 = vc2 = vc3 = new Color(rgbColor);
-                } else {
-                    // get color for each vertex
-                    vc1 = new Color(JagexColor.HSLtoRGB((short) m.getFaceColors1()[fi], JagexColor.BRIGHTNESS_MIN));
-                    vc2 = new Color(JagexColor.HSLtoRGB((short) m.getFaceColors2()[fi], JagexColor.BRIGHTNESS_MIN));
-                    vc3 = new Color(JagexColor.HSLtoRGB((short) m.getFaceColors3()[fi], JagexColor.BRIGHTNESS_MIN));
+                for (int vi = 0; vi < modelVertexCount; vi++) {
+                    positionIds[vi] = vi;
                 }
             }
 
-            int vi1 = m.getFaceIndices1()[fi];
-            int vi2 = m.getFaceIndices2()[fi];
-            int vi3 = m.getFaceIndices3()[fi];
-
-            int vx1 = (int) m.getVerticesX()[vi1];
-            int vx2 = (int) m.getVerticesX()[vi2];
-            int vx3 = (int) m.getVerticesX()[vi3];
-            int vy1 = (int) -m.getVerticesY()[vi1];
-            int vy2 = (int) -m.getVerticesY()[vi2];
-            int vy3 = (int) -m.getVerticesY()[vi3];
-            int vz1 = (int) m.getVerticesZ()[vi1];
-            int vz2 = (int) m.getVerticesZ()[vi2];
-            int vz3 = (int) m.getVerticesZ()[vi3];
-
-            vertices.add(new Vertex(vx1, vy1, vz1, vc1.getRed(), vc1.getGreen(), vc1.getBlue()));
-            vertices.add(new Vertex(vx2, vy2, vz2, vc2.getRed(), vc2.getGreen(), vc2.getBlue()));
-            vertices.add(new Vertex(vx3, vy3, vz3, vc3.getRed(), vc3.getGreen(), vc3.getBlue()));
-        }
-
-        ByteArrayOutputStream ply = new ByteArrayOutputStream();
-        PrintWriter plyHeader = new PrintWriter(ply);
-        plyHeader.println("ply");
-        plyHeader.println("format binary_little_endian 1.0");
-        plyHeader.println("element vertex " + vertices.size());
-        plyHeader.println("property int16 x");
-        plyHeader.println("property int16 y");
-        plyHeader.println("property int16 z");
-        plyHeader.println("property uint8 red");
-        plyHeader.println("property uint8 green");
-        plyHeader.println("property uint8 blue");
-        plyHeader.println("element face " + m.getFaceCount());
-        plyHeader.println("property list uint8 int16 vertex_indices");
-        plyHeader.println("end_header");
-        plyHeader.flush();
-
-        ByteArrayOutputStream w = new ByteArrayOutputStream();
-
-        for (Vertex v : vertices) {
-            // Y and Z axes are flipped
-            w.write(le(v.x));
-            w.write(le(v.z));
-            w.write(le(v.y));
-            w.write((byte) v.r);
-            w.write((byte) v.g);
-            w.write((byte) v.b);
-        }
-
-        for (int i = 0; i < m.getFaceCount(); ++i) {
-            int vi = i * 3;
-            w.write((byte) 3);
-            w.write(le(vi));
-            w.write(le(vi + 1));
-            w.write(le(vi + 2));
-        }
-
-        w.flush();
-        ply.write(w.toByteArray());
-        return ply.toByteArray();
-    }
-
-    // int to little endian byte array
-    private static byte[] le(int n) {
-        byte[] b = new byte[2];
-        b[0] = (byte) n;
-        b[1] = (byte) (n >> 8);
-        return b;
-    }
-
-    private static class Vertex {
-        public int x, y, z;
-        public int r, g, b;
-
-        public Vertex(int x, int y, int z, int r, int g, int b) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-            this.r = r;
-            this.g = g;
-            this.b = b;
+            int[] faceIndices1 = m.getFaceIndices1();
+            int[] faceIndices2 = m.getFaceIndices2();
+            int[] faceIndices3 = m.getFaceIndices3();
+            LongIntHashMap vertices = new LongIntHashMap(cornerVertices.length);
+            for (int corner = 0; corner < cornerVertices.length; corner++) {
+                int fi = corner / 3;
+                int vi = corner % 3 == 0 ? faceIndices1[fi] : corner % 3 == 1 ? faceIndices2[fi] : faceIndices3[fi];
+                // Only the low 24 bits of the color are written
+                long key = ((long) positionIds[vi] << 24) | (cornerColors[corner] & 0xFFFFFF);
+                int index = vertices.putIfAbsent(key, vertices.size());
+                if (index == -1) {
+                    index = vertices.size() - 1;
+                    vertexCorners[index] = corner;
+                }
+                cornerVertices[corner] = index;
+            }
+            return vertices.size();
+        }
+
+        CompactMesh.Mesh toMesh() {
+            int[] colors = new int[vertexCount];
+            for (int i = 0; i < vertexCount; i++) {
+                colors[i] = cornerColors[vertexCorners[i]] & 0xFFFFFF;
+            }
+            short[] positions = positions(model);
+            return new CompactMesh.Mesh(positions, colors, cornerVertices);
+        }
+
+        /**
+         * @return x, y, z of each output vertex, taken from {@code pose} instead of the model it was built from
+         */
+        short[] positions(ModelCapture pose) {
+            float[] verticesX = pose.getVerticesX();
+            float[] verticesY = pose.getVerticesY();
+            float[] verticesZ = pose.getVerticesZ();
+            short[] positions = new short[vertexCount * 3];
+            for (int i = 0; i < vertexCount; i++) {
+                int vi = cornerVertex(vertexCorners[i]);
+                // Same axes and rounding as putVertex
+                positions[i * 3] = (short) (int) verticesX[vi];
+                positions[i * 3 + 1] = (short) (int) verticesZ[vi];
+                positions[i * 3 + 2] = (short) (int) -verticesY[vi];
+            }
+            return positions;
         }
 
         @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            Vertex vertex = (Vertex) o;
-            return x == vertex.x && y == vertex.y && z == vertex.z && r == vertex.r && g == vertex.g && b == vertex.b;
+        void putVertices(ByteBuffer out, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int corner = vertexCorners[i];
+                putVertex(out, cornerVertex(corner), cornerColors[corner]);
+            }
         }
 
         @Override
-        public int hashCode() {
-            return Objects.hash(x, y, z, r, g, b);
+        void putFaces(ByteBuffer out, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int corner = i * 3;
+                putFace(out, cornerVertices[corner], cornerVertices[corner + 1], cornerVertices[corner + 2]);
+            }
+        }
+    }
+
+    /**
+     * @return the color of every face corner, face index * 3 + corner within the face
+     */
+    private static int[] resolveColors(ModelCapture m, boolean parallel) {
+        int faceCount = m.getFaceCount();
+        int[] cornerColors = new int[faceCount * 3];
+        if (parallel) {
+            IntStream.range(0, chunks(faceCount)).parallel().forEach(chunk -> {
+                int from = chunk * PARALLEL_CHUNK;
+                resolveColors(m, cornerColors, from, Math.min(from + PARALLEL_CHUNK, faceCount));
+            });
+        } else {
+            resolveColors(m, cornerColors, 0, faceCount);
+        }
+        return cornerColors;
+    }
+
+    private static void resolveColors(ModelCapture m, int[] cornerColors, int fromFace, int toFace) {
+        short[] faceTextures = m.getFaceTextures();
+        int[] faceTextureColors = m.getFaceTextureColors();
+        int[] faceColors1 = m.getFaceColors1();
+        int[] faceColors2 = m.getFaceColors2();
+        int[] faceColors3 = m.getFaceColors3();
+
+        for (int fi = fromFace; fi < toFace; fi++) {
+            // determine vertex colors (textured or colored?)
+            int rgb1;
+            int rgb2;
+            int rgb3;
+            int textureId = faceTextures != null ? faceTextures[fi] : -1;
+            if (textureId != -1) {
+                // average color of texture, resolved when the model was captured
+                rgb1 = rgb2 = rgb3 = faceTextureColors[fi];
+            } else if (faceColors3[fi] == -1) {
+                // face should be shaded flat
+                rgb1 = rgb2 = rgb3 = colorPalette[faceColors1[fi]];
+            } else {
+                // get color for each vertex, the palette holds HSLtoRGB of every short
+                rgb1 = colorPalette[faceColors1[fi] & 0xFFFF];
+                rgb2 = colorPalette[faceColors2[fi] & 0xFFFF];
+                rgb3 = colorPalette[faceColors3[fi] & 0xFFFF];
+            }
+
+            int corner = fi * 3;
+            cornerColors[corner] = rgb1;
+            cornerColors[corner + 1] = rgb2;
+            cornerColors[corner + 2] = rgb3;
         }
     }
 
-}
\ No newline at end of file
+    private static int chunks(int count) {
+        return (count + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position) {
+        // Duplicates share the bytes but not the position, and don't keep the byte order
+        ByteBuffer slice = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        slice.position(position);
+        return slice;
+    }
+
+    private static byte[] header(int vertexCount, int faceCount, String indexType) {
+        String nl = System.lineSeparator();
+        String header = "ply" + nl
+                + "format binary_little_endian 1.0" + nl
+                + "element vertex " + vertexCount + nl
+                + "property int16 x" + nl
+                + "property int16 y" + nl
+                + "property int16 z" + nl
+                + "property uint8 red" + nl
+                + "property uint8 green" + nl
+                + "property uint8 blue" + nl
+                + "element face " + faceCount + nl
+                + "property list uint8 " + indexType + " vertex_indices" + nl
+                + "end_header" + nl;
+        return header.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,73 @@
+package com.runeprofile.modelexporter;
+
+/**
+ * 64-bit hash of everything {@link ModelExporter} reads from a model capture: geometry, faces, colors, textures
+ * and the average color resolved for each textured face. The averages depend on the client's brightness when the
+ * capture was taken, so the same model captured at another brightness hashes differently.
+ * <p>
+ * Captures that export to different bytes get different hashes unless they collide, which at 64 bits is unlikely
+ * enough to skip an export or upload on. One pass over the capture's arrays, with no allocation.
+ */
+public final class ModelHash {
+    private static final long SEED = 0x52504D48L; // "RPMH"
+    private static final long C1 = 0x9E3779B97F4A7C15L;
+    private static final long C2 = 0xBF58476D1CE4E5B9L;
+
+    private ModelHash() {
+    }
+
+    public static long of(ModelCapture m) {
+        // Capture arrays are exactly as long as the counts
+        int faceCount = m.getFaceCount();
+        int vertexCount = m.getVerticesCount();
+
+        long h = mix(SEED, faceCount);
+        h = mix(h, vertexCount);
+        h = mix(h, m.getVerticesX(), vertexCount);
+        h = mix(h, m.getVerticesY(), vertexCount);
+        h = mix(h, m.getVerticesZ(), vertexCount);
+        h = mix(h, m.getFaceIndices1(), faceCount);
+        h = mix(h, m.getFaceIndices2(), faceCount);
+        h = mix(h, m.getFaceIndices3(), faceCount);
+        h = mix(h, m.getFaceColors1(), faceCount);
+        h = mix(h, m.getFaceColors2(), faceCount);
+        h = mix(h, m.getFaceColors3(), faceCount);
+
+        short[] faceTextures = m.getFaceTextures();
+        if (faceTextures == null) {
+            h = mix(h, -1);
+        } else {
+            int[] faceTextureColors = m.getFaceTextureColors();
+            for (int i = 0; i < faceCount; i++) {
+                h = mix(h, faceTextures[i]);
+                if (faceTextures[i] != -1) {
+                    h = mix(h, faceTextureColors[i]);
+                }
+            }
+        }
+
+        // Final avalanche so nearby inputs give unrelated hashes
+        h ^= h >>> 33;
+        h *= C2;
+        h ^= h >>> 29;
+        return h;
+    }
+
+    private static long mix(long h, int value) {
+        return Long.rotateLeft(h ^ (value * C1), 29) * C2;
+    }
+
+    private static long mix(long h, int[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            h = mix(h, values[i]);
+        }
+        return h;
+    }
+
+    private static long mix(long h, float[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            h = mix(h, Float.floatToRawIntBits(values[i]));
+        }
+        return h;
+    }
+}
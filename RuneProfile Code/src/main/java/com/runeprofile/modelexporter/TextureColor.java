@@ -27,20 +27,106 @@ package com.runeprofile.modelexporter;
 
 import lombok.NonNull;
 import net.runelite.api.Client;
+import net.runelite.api.TextureProvider;
 
 import java.awt.Color;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
+/**
+ * Average color of each texture, as opaque ARGB like {@link Color#getRGB()}.
+ * <p>
+ * Averages are kept in a fixed array indexed by texture id, so lookups are lock-free and nothing is boxed.
+ * Textures load at the texture provider's brightness, so the averages are dropped when it changes.
+ * {@link #snapshot} and {@link #restore} let the averages be saved between sessions.
+ */
 public class TextureColor {
-    private static final Map<Integer, Color> colorCache = new HashMap<>();
+    // Face texture ids are shorts
+    private static final int MAX_TEXTURES = Short.MAX_VALUE + 1;
+    // No average has alpha 0, so 0 marks a texture that hasn't been averaged yet
+    private static final int UNKNOWN = 0;
+    private static final int OPAQUE = 0xFF000000;
+
+    private static final AtomicIntegerArray averages = new AtomicIntegerArray(MAX_TEXTURES);
+    // Brightness the averages were taken at, NaN until the first one
+    private static volatile double brightness = Double.NaN;
 
     // get single average color from Jagex texture id
     public static Color getColor(@NonNull Client client, int textureId) {
-        if (colorCache.containsKey(textureId))
-            return colorCache.get(textureId);
+        return new Color(getRgb(client, textureId), true);
+    }
+
+    /**
+     * Must be called on the client thread unless the texture is already cached.
+     */
+    public static int getRgb(@NonNull Client client, int textureId) {
+        TextureProvider textureProvider = client.getTextureProvider();
+        useBrightness(textureProvider.getBrightness());
+
+        if (textureId < 0 || textureId >= MAX_TEXTURES) {
+            return average(textureProvider.load(textureId));
+        }
+
+        int rgb = averages.get(textureId);
+        if (rgb == UNKNOWN) {
+            rgb = average(textureProvider.load(textureId));
+            averages.set(textureId, rgb);
+        }
+        return rgb;
+    }
+
+    public static boolean isCached(int textureId) {
+        return textureId >= 0 && textureId < MAX_TEXTURES && averages.get(textureId) != UNKNOWN;
+    }
+
+    /**
+     * @return the averages of the first {@code textureCount} textures, 0 where not cached yet
+     */
+    public static int[] snapshot(int textureCount) {
+        int[] rgbs = new int[Math.min(textureCount, MAX_TEXTURES)];
+        for (int i = 0; i < rgbs.length; i++) {
+            rgbs[i] = averages.get(i);
+        }
+        return rgbs;
+    }
+
+    /**
+     * Fills in averages saved by {@link #snapshot}, unless they were taken at another brightness.
+     */
+    public static void restore(double savedBrightness, int[] rgbs) {
+        useBrightness(savedBrightness);
+        synchronized (TextureColor.class) {
+            if (brightness != savedBrightness) {
+                return;
+            }
+            for (int i = 0; i < Math.min(rgbs.length, MAX_TEXTURES); i++) {
+                if (rgbs[i] != UNKNOWN) {
+                    averages.compareAndSet(i, UNKNOWN, rgbs[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the brightness if there isn't one yet, or drops the averages if it changed.
+     */
+    private static void useBrightness(double current) {
+        if (current == brightness) {
+            return;
+        }
+        synchronized (TextureColor.class) {
+            if (current != brightness) {
+                for (int i = 0; i < MAX_TEXTURES; i++) {
+                    averages.set(i, UNKNOWN);
+                }
+                brightness = current;
+            }
+        }
+    }
 
-        int[] pixels = client.getTextureProvider().load(textureId);
+    private static int average(int[] pixels) {
+        if (pixels == null) {
+            return OPAQUE;
+        }
 
         int r = 0;
         int g = 0;
@@ -51,16 +137,16 @@ public class TextureColor {
             if (pixel == 0)
                 continue;
 
-            Color c = new Color(pixel);
-            r += c.getRed();
-            g += c.getGreen();
-            b += c.getBlue();
+            r += pixel >> 16 & 0xFF;
+            g += pixel >> 8 & 0xFF;
+            b += pixel & 0xFF;
             n++;
         }
 
-        Color c = new Color(r / n, g / n, b / n);
-        colorCache.put(textureId, c);
-        return c;
+        // a fully transparent texture averages to black
+        if (n == 0) {
+            return OPAQUE;
+        }
+        return OPAQUE | (r / n) << 16 | (g / n) << 8 | (b / n);
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package com.runeprofile.modelexporter;
+
+import java.io.IOException;
+
+/**
+ * Unsigned LEB128 varints over a byte array, with zigzag for signed values.
+ * Writing doesn't check for room, so the array has to be sized for the worst case.
+ */
+final class Varints {
+    // Longest encoding of an int
+    static final int MAX_BYTES = 5;
+
+    final byte[] bytes;
+    int position;
+
+    Varints(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    void putByte(int value) {
+        bytes[position++] = (byte) value;
+    }
+
+    void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+    }
+
+    void putZigzag(int value) {
+        putVarint((value << 1) ^ (value >> 31));
+    }
+
+    int getByte() throws IOException {
+        if (position >= bytes.length) {
+            throw new IOException("Mesh data is truncated");
+        }
+        return bytes[position++] & 0xFF;
+    }
+
+    int getVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = getByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Mesh varint is too long");
+    }
+
+    /**
+     * Reads a count of items, each at least {@code minBytes} long, that has to fit in what's left.
+     */
+    int getCount(int minBytes) throws IOException {
+        int count = getVarint();
+        if (count < 0 || count > (bytes.length - position) / minBytes) {
+            throw new IOException("Mesh count is out of range");
+        }
+        return count;
+    }
+
+    int getZigzag() throws IOException {
+        int value = getVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
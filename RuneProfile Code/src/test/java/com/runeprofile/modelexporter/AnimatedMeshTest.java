@@ -0,0 +1,121 @@
+package com.runeprofile.modelexporter;
+
+import net.runelite.api.Model;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnimatedMeshTest {
+    private static final int[] SWAYS = {0, 3, 6, 9, 12, 9, 6, 3};
+
+    @Test
+    public void roundTripMatchesEachPose() throws IOException {
+        List<ModelCapture> frames = sway(24, 48);
+        int[] durations = new int[frames.size()];
+        Arrays.fill(durations, 5);
+
+        AnimatedMesh.Animation animation = AnimatedMesh.decode(ModelExporter.toAnimatedBytes(frames, durations));
+        assertArrayEquals(durations, animation.getDurations());
+        assertEquals(frames.size() - 1, animation.getFramePositions().length);
+
+        for (int i = 0; i < frames.size(); i++) {
+            short[] positions = i == 0 ? animation.getKeyframe().getPositions() : animation.getFramePositions()[i - 1];
+            assertArrayEquals(corners(ModelExporter.toMesh(frames.get(i))), corners(animation.getKeyframe(), positions));
+        }
+    }
+
+    @Test
+    public void posesTakenInPlaceExportLikeFullCaptures() throws IOException {
+        ModelCapture keyframe = TestModels.capture(TestModels.sphere(24, 48));
+        List<ModelCapture> full = sway(24, 48);
+        List<ModelCapture> poses = new ArrayList<>();
+        poses.add(keyframe);
+        for (int i = 1; i < SWAYS.length; i++) {
+            Model model = TestModels.sphere(24, 48, SWAYS[i]);
+            assertTrue(keyframe.hasSameCounts(model));
+            assertFalse(poses.get(i - 1).hasSameVertices(model));
+
+            ModelCapture pose = keyframe.pose(model);
+            assertTrue(pose.hasSameVertices(model));
+            assertTrue(pose.hasSameFaces(full.get(i)));
+            poses.add(pose);
+        }
+
+        int[] durations = new int[SWAYS.length];
+        Arrays.fill(durations, 5);
+        assertArrayEquals(ModelExporter.toAnimatedBytes(full, durations), ModelExporter.toAnimatedBytes(poses, durations));
+    }
+
+    @Test
+    public void verticesSharingAPositionCanMoveApart() throws IOException {
+        // Vertices 1 and 2 start at the same position, so a static export would merge them, then 2 moves away
+        float[] x = {0, 10, 10, 0, 20, 20};
+        float[] y = new float[6];
+        int[] i1 = {0, 2};
+        int[] i2 = {1, 4};
+        int[] i3 = {3, 5};
+        int[] colors = {100, 100};
+        List<ModelCapture> frames = new ArrayList<>();
+        frames.add(TestModels.capture(TestModels.model(6, x, y, new float[]{0, 0, 0, 10, 0, 10}, 2, i1, i2, i3, colors, colors, colors)));
+        frames.add(TestModels.capture(TestModels.model(6, x, y, new float[]{0, 0, 8, 10, 0, 10}, 2, i1, i2, i3, colors, colors, colors)));
+
+        AnimatedMesh.Animation animation = AnimatedMesh.decode(ModelExporter.toAnimatedBytes(frames, new int[]{1, 1}));
+        assertArrayEquals(corners(ModelExporter.toMesh(frames.get(1))), corners(animation.getKeyframe(), animation.getFramePositions()[0]));
+    }
+
+    @Test
+    public void laterFramesCostFarLessThanTheKeyframe() {
+        List<ModelCapture> frames = sway(48, 96);
+        int[] durations = new int[frames.size()];
+        Arrays.fill(durations, 5);
+
+        int keyframe = ModelExporter.toCompactBytes(frames.get(0)).length;
+        int animated = ModelExporter.toAnimatedBytes(frames, durations).length;
+        // Sending every pose as its own mesh would cost frames.size() keyframes
+        assertTrue("animated " + animated + " bytes, keyframe " + keyframe + " bytes", animated < keyframe * 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFramesWithDifferentFaces() {
+        List<ModelCapture> frames = new ArrayList<>();
+        frames.add(TestModels.capture(TestModels.sphere(8, 16)));
+        frames.add(TestModels.capture(TestModels.sphere(8, 17)));
+        ModelExporter.toAnimatedBytes(frames, new int[]{1, 1});
+    }
+
+    private static List<ModelCapture> sway(int rings, int segments) {
+        List<ModelCapture> frames = new ArrayList<>();
+        for (int sway : SWAYS) {
+            frames.add(TestModels.capture(TestModels.sphere(rings, segments, sway)));
+        }
+        return frames;
+    }
+
+    private static int[] corners(CompactMesh.Mesh mesh) {
+        return corners(mesh, mesh.getPositions());
+    }
+
+    /**
+     * @return x, y, z and color of every face corner, which is what the mesh looks like regardless of how it's indexed
+     */
+    private static int[] corners(CompactMesh.Mesh mesh, short[] positions) {
+        int[] indices = mesh.getIndices();
+        int[] corners = new int[indices.length * 4];
+        for (int i = 0; i < indices.length; i++) {
+            int v = indices[i];
+            corners[i * 4] = positions[v * 3];
+            corners[i * 4 + 1] = positions[v * 3 + 1];
+            corners[i * 4 + 2] = positions[v * 3 + 2];
+            corners[i * 4 + 3] = mesh.getColors()[v];
+        }
+        return corners;
+    }
+}
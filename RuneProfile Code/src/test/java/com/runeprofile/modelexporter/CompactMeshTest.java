@@ -0,0 +1,103 @@
+package com.runeprofile.modelexporter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompactMeshTest {
+    @Test
+    public void roundTripMatchesPly() throws IOException {
+        ModelCapture capture = TestModels.capture(TestModels.sphere(48, 96));
+        assertSameMesh(readPly(ModelExporter.toBytes(capture)), CompactMesh.decode(ModelExporter.toCompactBytes(capture)));
+    }
+
+    @Test
+    public void roundTripMatchesPlyWithInt32Indices() throws IOException {
+        ModelCapture capture = TestModels.capture(TestModels.scattered(30000, 40000));
+        assertSameMesh(readPly(ModelExporter.toBytes(capture)), CompactMesh.decode(ModelExporter.toCompactBytes(capture)));
+    }
+
+    @Test
+    public void roundTripEmptyModel() throws IOException {
+        ModelCapture capture = TestModels.capture(TestModels.scattered(0, 0));
+        CompactMesh.Mesh mesh = CompactMesh.decode(ModelExporter.toCompactBytes(capture));
+        assertEquals(0, mesh.getVertexCount());
+        assertEquals(0, mesh.getFaceCount());
+    }
+
+    @Test
+    public void compactIsSeveralTimesSmallerThanPly() throws IOException {
+        ModelCapture capture = TestModels.capture(TestModels.sphere(48, 96));
+        int ply = ModelExporter.toBytes(capture).length;
+        int compact = ModelExporter.toCompactBytes(capture).length;
+        assertTrue("compact " + compact + " bytes, ply " + ply + " bytes", compact * 3 < ply);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsPly() throws IOException {
+        CompactMesh.decode(ModelExporter.toBytes(TestModels.capture(TestModels.sphere(4, 8))));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedData() throws IOException {
+        byte[] data = ModelExporter.toCompactBytes(TestModels.capture(TestModels.sphere(16, 32)));
+        byte[] truncated = new byte[data.length / 2];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        CompactMesh.decode(truncated);
+    }
+
+    private static void assertSameMesh(CompactMesh.Mesh expected, CompactMesh.Mesh actual) {
+        assertArrayEquals(expected.getPositions(), actual.getPositions());
+        assertArrayEquals(expected.getColors(), actual.getColors());
+        assertArrayEquals(expected.getIndices(), actual.getIndices());
+    }
+
+    /**
+     * Reads the binary PLY written by {@link ModelExporter}.
+     */
+    private static CompactMesh.Mesh readPly(byte[] ply) {
+        String text = new String(ply, StandardCharsets.US_ASCII);
+        int headerEnd = text.indexOf("end_header") + "end_header".length() + System.lineSeparator().length();
+        String[] header = text.substring(0, headerEnd).split(System.lineSeparator());
+
+        int vertexCount = 0;
+        int faceCount = 0;
+        boolean int32 = false;
+        for (String line : header) {
+            if (line.startsWith("element vertex ")) {
+                vertexCount = Integer.parseInt(line.substring("element vertex ".length()));
+            } else if (line.startsWith("element face ")) {
+                faceCount = Integer.parseInt(line.substring("element face ".length()));
+            } else if (line.startsWith("property list uint8 ")) {
+                int32 = line.contains("int32");
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(ply, headerEnd, ply.length - headerEnd).order(ByteOrder.LITTLE_ENDIAN);
+        short[] positions = new short[vertexCount * 3];
+        int[] colors = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            positions[i * 3] = buffer.getShort();
+            positions[i * 3 + 1] = buffer.getShort();
+            positions[i * 3 + 2] = buffer.getShort();
+            colors[i] = (buffer.get() & 0xFF) << 16 | (buffer.get() & 0xFF) << 8 | buffer.get() & 0xFF;
+        }
+
+        int[] indices = new int[faceCount * 3];
+        for (int i = 0; i < faceCount; i++) {
+            assertEquals(3, buffer.get());
+            for (int j = 0; j < 3; j++) {
+                indices[i * 3 + j] = int32 ? buffer.getInt() : buffer.getShort();
+            }
+        }
+        assertEquals(0, buffer.remaining());
+        return new CompactMesh.Mesh(positions, colors, indices);
+    }
+}
@@ -0,0 +1,100 @@
+package com.runeprofile.modelexporter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ModelExporterTest {
+    private static final int THRESHOLD = ModelExporter.PARALLEL_FACE_THRESHOLD;
+
+    @Test
+    public void parallelMatchesSequentialJustBelowTheThreshold() throws IOException {
+        assertParallelMatchesSequential(TestModels.capture(TestModels.scattered(THRESHOLD - 1, 6000)), "int16");
+    }
+
+    @Test
+    public void parallelMatchesSequentialJustAboveTheThreshold() throws IOException {
+        assertParallelMatchesSequential(TestModels.capture(TestModels.scattered(THRESHOLD + 1, 6000)), "int16");
+    }
+
+    @Test
+    public void parallelMatchesSequentialWithSharedVertices() throws IOException {
+        // Rings * segments * 2 faces, just past the threshold, with most corners sharing a vertex
+        assertParallelMatchesSequential(TestModels.capture(TestModels.sphere(64, 65)), "int16");
+    }
+
+    @Test
+    public void parallelMatchesSequentialWithInt32Indices() throws IOException {
+        // Random colors keep nearly every corner distinct, so both layouts need more than 32768 vertices
+        assertParallelMatchesSequential(TestModels.capture(TestModels.scattered(40000, 30000)), "int32");
+    }
+
+    @Test
+    public void defaultMatchesBothPaths() throws IOException {
+        for (int faces : new int[]{THRESHOLD - 1, THRESHOLD}) {
+            ModelCapture capture = TestModels.capture(TestModels.scattered(faces, 6000));
+            for (boolean indexed : new boolean[]{true, false}) {
+                assertArrayEquals(ModelExporter.toBytes(capture, indexed, false), ModelExporter.toBytes(capture, indexed));
+            }
+        }
+    }
+
+    /**
+     * The corner layout of a small model, byte for byte what the exporter wrote before indexed and parallel export.
+     */
+    @Test
+    public void cornerLayoutMatchesTheOriginalExport() throws IOException {
+        ModelCapture capture = TestModels.capture(TestModels.model(4,
+                new float[]{0, 100, -30, 40.9f}, new float[]{0, -50, 80.5f, 40}, new float[]{0, 20, -60, -120},
+                4, new int[]{0, 0, 1, 2}, new int[]{1, 3, 3, 3}, new int[]{2, 1, 2, 0},
+                new int[]{927, 22000, 43210, 61000}, new int[]{5000, 0, 127, 0}, new int[]{33000, -1, 64000, -1}));
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        String nl = System.lineSeparator();
+        byte[] header = ("ply" + nl
+                + "format binary_little_endian 1.0" + nl
+                + "element vertex 12" + nl
+                + "property int16 x" + nl
+                + "property int16 y" + nl
+                + "property int16 z" + nl
+                + "property uint8 red" + nl
+                + "property uint8 green" + nl
+                + "property uint8 blue" + nl
+                + "element face 4" + nl
+                + "property list uint8 int16 vertex_indices" + nl
+                + "end_header" + nl).getBytes(StandardCharsets.US_ASCII);
+        expected.write(header);
+        expected.write(hex("000000000000810c04640014003200261101e2ffc4ffb0ffccdbdc000000000000d6efd6280088ffd8ffd6efd6"
+                + "640014003200d6efd66400140032008889af280088ffd8fffefdfde2ffc4ffb0ff000001e2ffc4ffb0ffd35a8e"
+                + "280088ffd8ffd35a8e000000000000d35a8e0300000100020003030004000500030600070008000309000a000b00"));
+
+        assertArrayEquals(expected.toByteArray(), ModelExporter.toBytes(capture, false, false));
+        assertArrayEquals(expected.toByteArray(), ModelExporter.toBytes(capture, false, true));
+    }
+
+    private static void assertParallelMatchesSequential(ModelCapture capture, String indexType) throws IOException {
+        for (boolean indexed : new boolean[]{true, false}) {
+            byte[] sequential = ModelExporter.toBytes(capture, indexed, false);
+            assertArrayEquals("indexed " + indexed, sequential, ModelExporter.toBytes(capture, indexed, true));
+            assertTrue("indexed " + indexed, header(sequential).contains("property list uint8 " + indexType + " vertex_indices"));
+        }
+    }
+
+    private static String header(byte[] ply) {
+        String text = new String(ply, 0, Math.min(ply.length, 400), StandardCharsets.US_ASCII);
+        return text.substring(0, text.indexOf("end_header"));
+    }
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
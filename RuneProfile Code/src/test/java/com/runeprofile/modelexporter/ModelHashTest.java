@@ -0,0 +1,36 @@
+package com.runeprofile.modelexporter;
+
+import net.runelite.api.Model;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+public class ModelHashTest {
+    @Test
+    public void sameModelSameHash() {
+        assertEquals(ModelHash.of(TestModels.capture(TestModels.sphere(12, 16))),
+                ModelHash.of(TestModels.capture(TestModels.sphere(12, 16))));
+    }
+
+    @Test
+    public void poseChangesTheHash() {
+        assertNotEquals(ModelHash.of(TestModels.capture(TestModels.sphere(12, 16))),
+                ModelHash.of(TestModels.capture(TestModels.sphere(12, 16, 5))));
+    }
+
+    @Test
+    public void brightnessChangesTheHashOfTexturedModels() throws Exception {
+        Model model = TestModels.textured(TestModels.sphere(12, 16));
+        ModelCapture dark = TestModels.capture(model, 0.6);
+        ModelCapture light = TestModels.capture(model, 0.9);
+
+        // The exports differ, so the hashes have to
+        assertFalse(Arrays.equals(ModelExporter.toBytes(dark), ModelExporter.toBytes(light)));
+        assertNotEquals(ModelHash.of(dark), ModelHash.of(light));
+        assertEquals(ModelHash.of(light), ModelHash.of(TestModels.capture(model, 0.9)));
+    }
+}
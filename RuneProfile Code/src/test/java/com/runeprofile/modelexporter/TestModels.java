@@ -0,0 +1,186 @@
+package com.runeprofile.modelexporter;
+
+import net.runelite.api.Client;
+import net.runelite.api.Model;
+import net.runelite.api.TextureProvider;
+
+import java.lang.reflect.Proxy;
+import java.util.Random;
+
+/**
+ * Models built from plain arrays for the exporter tests.
+ */
+final class TestModels {
+    private TestModels() {
+    }
+
+    static ModelCapture capture(Model model) {
+        // Only textured models need the client
+        Client client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[]{Client.class},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return ModelCapture.of(client, model);
+    }
+
+    /**
+     * Captures {@code model} with textures that load darker or lighter with {@code brightness}, like the client's.
+     */
+    static ModelCapture capture(Model model, double brightness) {
+        TextureProvider textureProvider = (TextureProvider) Proxy.newProxyInstance(TextureProvider.class.getClassLoader(),
+                new Class<?>[]{TextureProvider.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getBrightness":
+                            return brightness;
+                        case "load":
+                            int shade = (int) (brightness * 200) + (int) args[0];
+                            return new int[]{shade << 16 | shade << 8 | shade};
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        Client client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[]{Client.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getTextureProvider")) {
+                        return textureProvider;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return ModelCapture.of(client, model);
+    }
+
+    /**
+     * {@code model} with every other face textured.
+     */
+    static Model textured(Model model) {
+        short[] faceTextures = new short[model.getFaceCount()];
+        for (int f = 0; f < faceTextures.length; f++) {
+            faceTextures[f] = (short) (f % 2 == 0 ? f % 5 : -1);
+        }
+        return (Model) Proxy.newProxyInstance(Model.class.getClassLoader(), new Class<?>[]{Model.class},
+                (proxy, method, args) -> method.getName().equals("getFaceTextures")
+                        ? faceTextures
+                        : method.invoke(model, args));
+    }
+
+    /**
+     * Latitude/longitude sphere, smooth shaded in a few bands with every eighth face flat, like a typical model.
+     */
+    static Model sphere(int rings, int segments) {
+        return sphere(rings, segments, 0);
+    }
+
+    /**
+     * {@link #sphere(int, int)} with its lower half swayed sideways by {@code sway} units, as a pose of an animation.
+     */
+    static Model sphere(int rings, int segments, int sway) {
+        int vertexCount = (rings + 1) * segments;
+        float[] x = new float[vertexCount];
+        float[] y = new float[vertexCount];
+        float[] z = new float[vertexCount];
+        for (int r = 0; r <= rings; r++) {
+            double theta = Math.PI * r / rings;
+            for (int s = 0; s < segments; s++) {
+                double phi = 2 * Math.PI * s / segments;
+                int v = r * segments + s;
+                x[v] = (float) (Math.sin(theta) * Math.cos(phi) * 120) + (r > rings / 2 ? sway : 0);
+                y[v] = (float) (Math.cos(theta) * -200);
+                z[v] = (float) (Math.sin(theta) * Math.sin(phi) * 120);
+            }
+        }
+
+        int faceCount = rings * segments * 2;
+        int[] i1 = new int[faceCount];
+        int[] i2 = new int[faceCount];
+        int[] i3 = new int[faceCount];
+        int[] c1 = new int[faceCount];
+        int[] c2 = new int[faceCount];
+        int[] c3 = new int[faceCount];
+        int f = 0;
+        for (int r = 0; r < rings; r++) {
+            int hsl = JagexColor.packHSL(r * 7 % 64, 5, 40 + r % 4 * 10) & 0xFFFF;
+            for (int s = 0; s < segments; s++) {
+                int a = r * segments + s;
+                int b = r * segments + (s + 1) % segments;
+                int c = a + segments;
+                int d = b + segments;
+                for (int[] face : new int[][]{{a, c, b}, {b, c, d}}) {
+                    i1[f] = face[0];
+                    i2[f] = face[1];
+                    i3[f] = face[2];
+                    c1[f] = c2[f] = hsl;
+                    c3[f] = f % 8 == 0 ? -1 : hsl;
+                    f++;
+                }
+            }
+        }
+        return model(vertexCount, x, y, z, faceCount, i1, i2, i3, c1, c2, c3);
+    }
+
+    /**
+     * Random positions and colors, the worst case for the compact encoding.
+     */
+    static Model scattered(int faceCount, int vertexCount) {
+        Random random = new Random(47);
+        float[] x = new float[vertexCount];
+        float[] y = new float[vertexCount];
+        float[] z = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            x[v] = random.nextInt(2000) - 1000;
+            y[v] = random.nextInt(2000) - 1000;
+            z[v] = random.nextInt(2000) - 1000;
+        }
+
+        int[] i1 = new int[faceCount];
+        int[] i2 = new int[faceCount];
+        int[] i3 = new int[faceCount];
+        int[] c1 = new int[faceCount];
+        int[] c2 = new int[faceCount];
+        int[] c3 = new int[faceCount];
+        for (int f = 0; f < faceCount; f++) {
+            i1[f] = random.nextInt(vertexCount);
+            i2[f] = random.nextInt(vertexCount);
+            i3[f] = random.nextInt(vertexCount);
+            c1[f] = random.nextInt(65536);
+            c2[f] = random.nextInt(65536);
+            c3[f] = random.nextInt(4) == 0 ? -1 : random.nextInt(65536);
+        }
+        return model(vertexCount, x, y, z, faceCount, i1, i2, i3, c1, c2, c3);
+    }
+
+    static Model model(int vertexCount, float[] x, float[] y, float[] z,
+                       int faceCount, int[] i1, int[] i2, int[] i3, int[] c1, int[] c2, int[] c3) {
+        return (Model) Proxy.newProxyInstance(Model.class.getClassLoader(), new Class<?>[]{Model.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getVerticesCount":
+                            return vertexCount;
+                        case "getVerticesX":
+                            return x;
+                        case "getVerticesY":
+                            return y;
+                        case "getVerticesZ":
+                            return z;
+                        case "getFaceCount":
+                            return faceCount;
+                        case "getFaceIndices1":
+                            return i1;
+                        case "getFaceIndices2":
+                            return i2;
+                        case "getFaceIndices3":
+                            return i3;
+                        case "getFaceColors1":
+                            return c1;
+                        case "getFaceColors2":
+                            return c2;
+                        case "getFaceColors3":
+                            return c3;
+                        case "getFaceTextures":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
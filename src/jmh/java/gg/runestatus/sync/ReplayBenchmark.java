@@ -0,0 +1,61 @@
+package gg.runestatus.sync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a recorded session through the plugin. Each operation is one full pass over the recording.
+ * Run with {@code ./gradlew jmh -Pjmh.include=ReplayBenchmark -Precording=<file>}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplayBenchmark
+{
+	// Set by the jmh task from -Precording; the benchmark is excluded when there is none
+	@Param("")
+	public String recording;
+
+	private SessionReplay replay;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		if (recording.isEmpty())
+		{
+			throw new IllegalStateException("No recording given, pass -Precording=<file>");
+		}
+
+		replay = new SessionReplay(SessionReplay.load(new File(recording)));
+		replay.startUp();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		replay.shutDown();
+	}
+
+	@Benchmark
+	public int replay()
+	{
+		return replay.replay();
+	}
+}
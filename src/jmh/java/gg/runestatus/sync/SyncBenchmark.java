@@ -0,0 +1,104 @@
+package gg.runestatus.sync;
+
+import com.google.gson.Gson;
+import com.google.inject.Injector;
+import gg.runestatus.sync.capture.PlayerCapture;
+import gg.runestatus.sync.data.PlayerSyncData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the client thread half of a sync against a {@link FakeClient}.
+ * Run with {@code ./gradlew jmh}; the task enables the GC profiler so
+ * {@code gc.alloc.rate.norm} is reported next to ns/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyncBenchmark
+{
+	private DataCollector dataCollector;
+	private RuneStatusPlugin plugin;
+	private Gson gson;
+	private PlayerSyncData snapshot;
+	private byte[] storedSnapshot;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		Injector injector = TestInjector.create(FakeClient.create());
+		dataCollector = injector.getInstance(DataCollector.class);
+		plugin = injector.getInstance(RuneStatusPlugin.class);
+		gson = injector.getInstance(Gson.class);
+		snapshot = plugin.buildSyncData();
+		storedSnapshot = SnapshotCodec.encode(snapshot);
+	}
+
+	@Benchmark
+	public PlayerCapture.PlayerCaptureBuilder captureSkills()
+	{
+		PlayerCapture.PlayerCaptureBuilder builder = PlayerCapture.builder();
+		dataCollector.captureSkills(builder);
+		return builder;
+	}
+
+	@Benchmark
+	public PlayerCapture.PlayerCaptureBuilder captureQuests()
+	{
+		PlayerCapture.PlayerCaptureBuilder builder = PlayerCapture.builder();
+		dataCollector.captureQuests(builder);
+		return builder;
+	}
+
+	@Benchmark
+	public PlayerCapture.PlayerCaptureBuilder captureDiaries()
+	{
+		PlayerCapture.PlayerCaptureBuilder builder = PlayerCapture.builder();
+		dataCollector.captureDiaries(builder);
+		return builder;
+	}
+
+	@Benchmark
+	public PlayerCapture capture()
+	{
+		return plugin.capture(PlayerCapture.TRIGGER_SYNC);
+	}
+
+	@Benchmark
+	public PlayerSyncData buildSyncData()
+	{
+		return plugin.buildSyncData();
+	}
+
+	@Benchmark
+	public String serializeSnapshot()
+	{
+		return gson.toJson(snapshot);
+	}
+
+	@Benchmark
+	public byte[] encodeStoredSnapshot() throws IOException
+	{
+		return SnapshotCodec.encode(snapshot);
+	}
+
+	@Benchmark
+	public PlayerSyncData decodeStoredSnapshot() throws IOException
+	{
+		return SnapshotCodec.decode(storedSnapshot);
+	}
+}
@@ -0,0 +1,280 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.data.Boss;
+import gg.runestatus.sync.jfr.JfrSupport;
+import gg.runestatus.sync.jfr.LocalStoreEvent;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.util.Text;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tracks boss kill counts from "Your X kill count is: N" chat messages.
+ * Counts are kept in a {@link KillCountTable} that is persisted per account between sessions,
+ * and only the counts changed since the last acknowledged sync are sent to RuneStatus.
+ * Kill count messages never trigger a sync on their own; they ride along with the next one.
+ */
+@Slf4j
+@Singleton
+public class BossKillCountTracker
+{
+	private static final String STORE_NAME = "boss kill counts";
+
+	// Covers "kill count", "completion count", "chest count" and the raid "completed X count" variants
+	private static final Pattern KILL_COUNT_PATTERN = Pattern.compile(
+		"^Your (?:completed )?(.+?) (?:kill |completion |chest |harvest )?count is: ?([0-9,]+)");
+
+	private final Client client;
+	private final EventBus eventBus;
+	private final ScheduledExecutorService executor;
+	private final RuneStatusConfig config;
+	private final ClientThreadWatchdog watchdog;
+	private final File dataDirectory;
+
+	private final KillCountTable table = new KillCountTable();
+
+	// Chat messages are only delivered on the client thread, so a single matcher can be reused
+	private final Matcher killCountMatcher = KILL_COUNT_PATTERN.matcher("");
+
+	// Written on the client thread, read again when a sync is acknowledged on an OkHttp thread
+	private volatile long loadedAccountHash = -1;
+
+	@Inject
+	public BossKillCountTracker(Client client, EventBus eventBus, ScheduledExecutorService executor, RuneStatusConfig config,
+		ClientThreadWatchdog watchdog, @Named(RuneStatusPlugin.DATA_DIRECTORY) File dataDirectory)
+	{
+		this.client = client;
+		this.eventBus = eventBus;
+		this.executor = executor;
+		this.config = config;
+		this.watchdog = watchdog;
+		this.dataDirectory = dataDirectory;
+	}
+
+	public void startUp()
+	{
+		eventBus.register(this);
+
+		// Enabled while already logged in, so there won't be a login event to load on
+		if (client.getGameState() == GameState.LOGGED_IN && client.getAccountHash() != -1)
+		{
+			load(client.getAccountHash());
+		}
+	}
+
+	public void shutDown()
+	{
+		eventBus.unregister(this);
+		saveAsync();
+	}
+
+	/**
+	 * Returns the kill counts changed since the last acknowledged sync, or null if there are none.
+	 */
+	public Map<String, Integer> getPendingChanges()
+	{
+		return table.pendingChanges();
+	}
+
+	/**
+	 * Called once a sync carrying the given kill counts has been accepted by the server.
+	 */
+	public void acknowledge(Map<String, Integer> sent)
+	{
+		if (sent == null)
+		{
+			return;
+		}
+
+		table.acknowledge(sent);
+		saveAsync();
+	}
+
+	@Subscribe
+	public void onGameStateChanged(GameStateChanged event)
+	{
+		watchdog.enter("BossKillCountTracker.onGameStateChanged");
+		try
+		{
+			if (event.getGameState() == GameState.LOGGED_IN)
+			{
+				long accountHash = client.getAccountHash();
+				if (accountHash != -1 && accountHash != loadedAccountHash)
+				{
+					load(accountHash);
+				}
+			}
+			else if (event.getGameState() == GameState.LOGIN_SCREEN)
+			{
+				saveAsync();
+			}
+		}
+		finally
+		{
+			watchdog.exit();
+		}
+	}
+
+	@Subscribe
+	public void onChatMessage(ChatMessage event)
+	{
+		if (event.getType() != ChatMessageType.GAMEMESSAGE)
+		{
+			return;
+		}
+
+		// Cheap pre-filter so the vast majority of game messages never reach the regex
+		String message = event.getMessage();
+		if (!message.startsWith("Your ") || !message.contains("count is:"))
+		{
+			return;
+		}
+
+		watchdog.enter("BossKillCountTracker.onChatMessage");
+		try
+		{
+			recordKillCount(message);
+		}
+		finally
+		{
+			watchdog.exit();
+		}
+	}
+
+	private void recordKillCount(String message)
+	{
+		if (!config.syncBossKillCounts() || loadedAccountHash == -1)
+		{
+			return;
+		}
+
+		if (!killCountMatcher.reset(Text.removeTags(message)).find())
+		{
+			return;
+		}
+
+		Boss boss = Boss.fromName(killCountMatcher.group(1));
+		if (boss == null)
+		{
+			log.debug("Ignoring kill count for unknown boss: {}", killCountMatcher.group(1));
+			return;
+		}
+
+		int count;
+		try
+		{
+			count = Integer.parseInt(killCountMatcher.group(2).replace(",", ""));
+		}
+		catch (NumberFormatException e)
+		{
+			return;
+		}
+
+		if (table.record(boss, count))
+		{
+			log.debug("Recorded {} kill count: {}", boss.getName(), count);
+		}
+	}
+
+	private void load(long accountHash)
+	{
+		table.clear();
+		loadedAccountHash = accountHash;
+
+		File file = getFile(accountHash);
+		if (!file.exists())
+		{
+			return;
+		}
+
+		LocalStoreEvent storeEvent = JfrSupport.AVAILABLE ? LocalStoreEvent.start() : null;
+		try (InputStream in = Files.newInputStream(file.toPath()))
+		{
+			table.read(new DataInputStream(in));
+			log.debug("Loaded boss kill counts from {}", file);
+			if (storeEvent != null)
+			{
+				storeEvent.finish(STORE_NAME, "read", file.length());
+			}
+		}
+		catch (IOException e)
+		{
+			log.warn("Failed to load boss kill counts, starting fresh", e);
+			table.clear();
+		}
+	}
+
+	private void saveAsync()
+	{
+		final long accountHash = loadedAccountHash;
+		if (accountHash == -1 || !table.isDirty())
+		{
+			return;
+		}
+
+		// Serialize under the table lock here, then leave the disk write to the executor
+		final byte[] bytes;
+		try
+		{
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+			table.write(new DataOutputStream(buffer));
+			bytes = buffer.toByteArray();
+		}
+		catch (IOException e)
+		{
+			log.warn("Failed to serialize boss kill counts", e);
+			return;
+		}
+
+		executor.execute(() -> {
+			try
+			{
+				write(getFile(accountHash), bytes);
+			}
+			catch (IOException e)
+			{
+				log.warn("Failed to save boss kill counts", e);
+			}
+		});
+	}
+
+	private void write(File file, byte[] bytes) throws IOException
+	{
+		LocalStoreEvent storeEvent = JfrSupport.AVAILABLE ? LocalStoreEvent.start() : null;
+		Files.createDirectories(dataDirectory.toPath());
+		Path tmp = new File(file.getPath() + ".tmp").toPath();
+		Files.write(tmp, bytes);
+		Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		if (storeEvent != null)
+		{
+			storeEvent.finish(STORE_NAME, "write", bytes.length);
+		}
+	}
+
+	private File getFile(long accountHash)
+	{
+		return new File(dataDirectory, accountHash + ".kc");
+	}
+}
@@ -0,0 +1,39 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.capture.CaptureSink;
+import gg.runestatus.sync.capture.PlayerCapture;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.events.PluginMessage;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Sink that posts every capture as a {@link PluginMessage}, so other plugins that read the same data
+ * (RuneProfile walks the same skills, quests, diaries and combat achievements) can reuse it instead of
+ * running the scripts again. Plugins can also ask for a fresh capture, see {@link PlayerCapture#CAPTURE_REQUEST_MESSAGE}.
+ */
+@Singleton
+public class CaptureBroadcaster implements CaptureSink
+{
+	private final EventBus eventBus;
+	private final RuneStatusConfig config;
+
+	@Inject
+	public CaptureBroadcaster(EventBus eventBus, RuneStatusConfig config)
+	{
+		this.eventBus = eventBus;
+		this.config = config;
+	}
+
+	@Override
+	public void accept(PlayerCapture capture)
+	{
+		if (!config.shareCaptures())
+		{
+			return;
+		}
+
+		eventBus.post(new PluginMessage(PlayerCapture.MESSAGE_NAMESPACE, PlayerCapture.CAPTURE_MESSAGE, capture.toMessage()));
+	}
+}
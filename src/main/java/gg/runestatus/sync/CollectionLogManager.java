@@ -9,11 +9,13 @@ import net.runelite.api.events.ChatMessage;
 import net.runelite.api.events.GameStateChanged;
 import net.runelite.client.eventbus.EventBus;
 import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.util.Text;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Manages collection log drop detection from chat messages.
@@ -23,22 +25,31 @@ import java.util.List;
 @Singleton
 public class CollectionLogManager
 {
+	// Keeps memory bounded if syncs keep failing or are switched off for a long session
+	private static final int MAX_RECENT_DROPS = 100;
+
 	private final Client client;
 	private final EventBus eventBus;
+	private final ClientThreadWatchdog watchdog;
 
 	// Store recent collection log drops detected from chat messages
 	@Getter
 	private final List<String> recentDropNames = new ArrayList<>();
 
+	// Notified of each new drop so it can be sent on the urgent lane
+	private Consumer<String> dropListener;
+
 	@Inject
-	public CollectionLogManager(Client client, EventBus eventBus)
+	public CollectionLogManager(Client client, EventBus eventBus, ClientThreadWatchdog watchdog)
 	{
 		this.client = client;
 		this.eventBus = eventBus;
+		this.watchdog = watchdog;
 	}
 
-	public void startUp()
+	public void startUp(Consumer<String> dropListener)
 	{
+		this.dropListener = dropListener;
 		eventBus.register(this);
 	}
 
@@ -46,6 +57,7 @@ public class CollectionLogManager
 	{
 		eventBus.unregister(this);
 		recentDropNames.clear();
+		dropListener = null;
 	}
 
 	public boolean hasRecentDrops()
@@ -64,10 +76,18 @@ public class CollectionLogManager
 	@Subscribe
 	public void onGameStateChanged(GameStateChanged event)
 	{
-		// Clear drops when logging out
-		if (event.getGameState() == GameState.LOGIN_SCREEN)
+		watchdog.enter("CollectionLogManager.onGameStateChanged");
+		try
 		{
-			recentDropNames.clear();
+			// Clear drops when logging out
+			if (event.getGameState() == GameState.LOGIN_SCREEN)
+			{
+				recentDropNames.clear();
+			}
+		}
+		finally
+		{
+			watchdog.exit();
 		}
 	}
 
@@ -78,6 +98,19 @@ public class CollectionLogManager
 	 */
 	@Subscribe
 	public void onChatMessage(ChatMessage event)
+	{
+		watchdog.enter("CollectionLogManager.onChatMessage");
+		try
+		{
+			handleChatMessage(event);
+		}
+		finally
+		{
+			watchdog.exit();
+		}
+	}
+
+	private void handleChatMessage(ChatMessage event)
 	{
 		if (event.getType() != ChatMessageType.GAMEMESSAGE)
 		{
@@ -91,15 +124,24 @@ public class CollectionLogManager
 		if (message.contains("New item added to your collection log:"))
 		{
 			// Extract item name - the message may have color tags
-			String cleanMessage = message.replaceAll("<[^>]+>", "");
+			String cleanMessage = Text.removeTags(message);
 			int prefixIndex = cleanMessage.indexOf("New item added to your collection log:");
 			if (prefixIndex >= 0)
 			{
 				String itemName = cleanMessage.substring(prefixIndex + "New item added to your collection log:".length()).trim();
 				if (!itemName.isEmpty())
 				{
+					if (recentDropNames.size() >= MAX_RECENT_DROPS)
+					{
+						recentDropNames.remove(0);
+					}
 					recentDropNames.add(itemName);
-					log.info("Detected new collection log item from chat: {}", itemName);
+					log.debug("Detected new collection log item from chat: {}", itemName);
+
+					if (dropListener != null)
+					{
+						dropListener.accept(itemName);
+					}
 				}
 			}
 		}
@@ -1,21 +1,21 @@
 package gg.runestatus.sync;
 
-import gg.runestatus.sync.data.CombatAchievementData;
-import gg.runestatus.sync.data.DiaryData;
-import gg.runestatus.sync.data.SkillData;
+import gg.runestatus.sync.capture.PlayerCapture;
+import gg.runestatus.sync.jfr.JfrSupport;
+import gg.runestatus.sync.jfr.ScriptBatchEvent;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
 import net.runelite.api.Player;
 import net.runelite.api.Quest;
 import net.runelite.api.QuestState;
+import net.runelite.api.ScriptID;
 import net.runelite.api.Skill;
 import net.runelite.api.Varbits;
 import net.runelite.api.gameval.VarPlayerID;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 @Slf4j
 @Singleton
@@ -46,15 +46,6 @@ public class DataCollector
 	// Script 4784 takes tier ID (1=Easy, 2=Medium, 3=Hard, 4=Elite, 5=Master, 6=Grandmaster)
 	private static final int CA_COMPLETED_COUNT_SCRIPT = 4784;
 
-	// Combat Achievement total tasks per tier (as of 2024)
-	private static final int CA_EASY_TOTAL = 33;
-	private static final int CA_MEDIUM_TOTAL = 41;
-	private static final int CA_HARD_TOTAL = 129;
-	private static final int CA_ELITE_TOTAL = 182;
-	private static final int CA_MASTER_TOTAL = 150;
-	private static final int CA_GRANDMASTER_TOTAL = 90;
-	private static final int CA_TOTAL = CA_EASY_TOTAL + CA_MEDIUM_TOTAL + CA_HARD_TOTAL + CA_ELITE_TOTAL + CA_MASTER_TOTAL + CA_GRANDMASTER_TOTAL;
-
 	// VarcInt for time played in minutes
 	private static final int VARC_TIME_PLAYED = 526;
 
@@ -65,6 +56,28 @@ public class DataCollector
 		DIARY_ID_VARROCK, DIARY_ID_WILDERNESS, DIARY_ID_WESTERN, DIARY_ID_KOUREND
 	};
 
+	// Diary names as synced, in ALL_DIARY_IDS order
+	private static final String[] DIARY_NAMES = {
+		"Karamja", "Ardougne", "Falador", "Fremennik",
+		"Kandarin", "Desert", "Lumbridge & Draynor", "Morytania",
+		"Varrock", "Wilderness", "Western Provinces", "Kourend & Kebos"
+	};
+
+	private static final Skill[] SKILLS = Arrays.stream(Skill.values())
+		.filter(skill -> skill != Skill.OVERALL)
+		.toArray(Skill[]::new);
+	private static final String[] SKILL_NAMES = Arrays.stream(SKILLS)
+		.map(Skill::getName)
+		.toArray(String[]::new);
+
+	private static final Quest[] QUESTS = Quest.values();
+	private static final int[] QUEST_IDS = Arrays.stream(QUESTS)
+		.mapToInt(Quest::getId)
+		.toArray();
+	private static final String[] QUEST_NAMES = Arrays.stream(QUESTS)
+		.map(Quest::getName)
+		.toArray(String[]::new);
+
 	@Inject
 	public DataCollector(Client client)
 	{
@@ -86,11 +99,6 @@ public class DataCollector
 		return client.getVarbitValue(Varbits.ACCOUNT_TYPE);
 	}
 
-	public int getWorld()
-	{
-		return client.getWorld();
-	}
-
 	public int getCombatLevel()
 	{
 		Player localPlayer = client.getLocalPlayer();
@@ -101,166 +109,63 @@ public class DataCollector
 		return 0;
 	}
 
-	public int getTotalLevel()
-	{
-		int total = 0;
-		for (Skill skill : Skill.values())
-		{
-			if (skill == Skill.OVERALL)
-			{
-				continue;
-			}
-			total += client.getRealSkillLevel(skill);
-		}
-		return total;
-	}
-
-	public long getTotalXp()
-	{
-		long total = 0;
-		for (Skill skill : Skill.values())
-		{
-			if (skill == Skill.OVERALL)
-			{
-				continue;
-			}
-			total += client.getSkillExperience(skill);
-		}
-		return total;
-	}
-
-	public int getTimePlayedMinutes()
-	{
-		return client.getVarcIntValue(VARC_TIME_PLAYED);
-	}
-
-	/**
-	 * Gets the collection log obtained count from VarPlayer.
-	 * This is available anytime after login, no need to open collection log.
-	 */
-	public int getCollectionLogCount()
-	{
-		return client.getVarpValue(VarPlayerID.COLLECTION_COUNT);
-	}
-
 	/**
-	 * Returns [completed, total] quest counts
+	 * Account details and the summary stats that don't need any scripts.
 	 */
-	public int[] getQuestCounts()
+	public void captureSummary(PlayerCapture.PlayerCaptureBuilder builder)
 	{
-		int completed = 0;
-		int total = 0;
-		for (Quest quest : Quest.values())
-		{
-			total++;
-			if (quest.getState(client) == QuestState.FINISHED)
-			{
-				completed++;
-			}
-		}
-		return new int[] { completed, total };
+		builder
+			.capturedAt(System.currentTimeMillis())
+			.accountHash(client.getAccountHash())
+			.username(getUsername())
+			.accountType(getAccountType())
+			.world(client.getWorld())
+			.combatLevel(getCombatLevel())
+			// Available anytime after login, no need to open the collection log
+			.collectionLogObtained(client.getVarpValue(VarPlayerID.COLLECTION_COUNT))
+			.timePlayedMinutes(client.getVarcIntValue(VARC_TIME_PLAYED));
 	}
 
-	/**
-	 * Returns [completed, total] diary task counts across all regions
-	 */
-	public int[] getDiaryTaskCounts()
+	public void captureSkills(PlayerCapture.PlayerCaptureBuilder builder)
 	{
-		int completed = 0;
-		int total = 0;
-
-		for (int diaryId : ALL_DIARY_IDS)
+		int[] xp = new int[SKILLS.length];
+		int[] levels = new int[SKILLS.length];
+		for (int i = 0; i < SKILLS.length; i++)
 		{
-			client.runScript(DIARY_COMPLETION_SCRIPT, diaryId);
-			int[] stack = client.getIntStack();
-
-			// Easy
-			completed += stack[0];
-			total += stack[1];
-			// Medium
-			completed += stack[3];
-			total += stack[4];
-			// Hard
-			completed += stack[6];
-			total += stack[7];
-			// Elite
-			completed += stack[9];
-			total += stack[10];
+			xp[i] = client.getSkillExperience(SKILLS[i]);
+			levels[i] = client.getRealSkillLevel(SKILLS[i]);
 		}
 
-		return new int[] { completed, total };
-	}
-
-	/**
-	 * Returns [completed, total] combat achievement counts
-	 */
-	public int[] getCombatTaskCounts()
-	{
-		int completed = 0;
-		for (int tier = 1; tier <= 6; tier++)
-		{
-			completed += getCompletedCombatAchievementCount(tier);
-		}
-		return new int[] { completed, CA_TOTAL };
+		builder.skillNames(SKILL_NAMES)
+			.skillXp(xp)
+			.skillLevels(levels);
 	}
 
-	public Map<String, SkillData> collectSkills()
+	public void captureQuests(PlayerCapture.PlayerCaptureBuilder builder)
 	{
-		Map<String, SkillData> skills = new HashMap<>();
-
-		for (Skill skill : Skill.values())
+		ScriptBatchEvent batchEvent = startScriptBatch();
+		byte[] states = new byte[QUESTS.length];
+		for (int i = 0; i < QUESTS.length; i++)
 		{
-			if (skill == Skill.OVERALL)
+			QuestState state = QUESTS[i].getState(client);
+			if (state == QuestState.FINISHED)
 			{
-				continue;
+				states[i] = PlayerCapture.QUEST_FINISHED;
+			}
+			else if (state == QuestState.IN_PROGRESS)
+			{
+				states[i] = PlayerCapture.QUEST_IN_PROGRESS;
 			}
-
-			skills.put(skill.getName(), SkillData.builder()
-				.level(client.getRealSkillLevel(skill))
-				.xp(client.getSkillExperience(skill))
-				.build());
-		}
-
-		return skills;
-	}
-
-	public Map<String, String> collectQuests()
-	{
-		Map<String, String> quests = new HashMap<>();
-
-		for (Quest quest : Quest.values())
-		{
-			QuestState state = quest.getState(client);
-			quests.put(quest.getName(), state.name());
 		}
+		finishScriptBatch(batchEvent, "quests", ScriptID.QUEST_STATUS_GET, QUESTS.length);
 
-		return quests;
-	}
-
-	public Map<String, DiaryData> collectAchievementDiaries()
-	{
-		Map<String, DiaryData> diaries = new HashMap<>();
-
-		// Use script 2200 which is the authoritative source for diary completion
-		// This is the same method used by RuneProfile and other reliable plugins
-		diaries.put("Karamja", getDiaryDataFromScript(DIARY_ID_KARAMJA));
-		diaries.put("Ardougne", getDiaryDataFromScript(DIARY_ID_ARDOUGNE));
-		diaries.put("Falador", getDiaryDataFromScript(DIARY_ID_FALADOR));
-		diaries.put("Fremennik", getDiaryDataFromScript(DIARY_ID_FREMENNIK));
-		diaries.put("Kandarin", getDiaryDataFromScript(DIARY_ID_KANDARIN));
-		diaries.put("Desert", getDiaryDataFromScript(DIARY_ID_DESERT));
-		diaries.put("Lumbridge & Draynor", getDiaryDataFromScript(DIARY_ID_LUMBRIDGE));
-		diaries.put("Morytania", getDiaryDataFromScript(DIARY_ID_MORYTANIA));
-		diaries.put("Varrock", getDiaryDataFromScript(DIARY_ID_VARROCK));
-		diaries.put("Wilderness", getDiaryDataFromScript(DIARY_ID_WILDERNESS));
-		diaries.put("Western Provinces", getDiaryDataFromScript(DIARY_ID_WESTERN));
-		diaries.put("Kourend & Kebos", getDiaryDataFromScript(DIARY_ID_KOUREND));
-
-		return diaries;
+		builder.questIds(QUEST_IDS)
+			.questNames(QUEST_NAMES)
+			.questStates(states);
 	}
 
 	/**
-	 * Gets diary completion data using script 2200.
+	 * Captures diary completion using script 2200, the authoritative source (also used by RuneProfile).
 	 * The script returns completion info in intStack (12 values):
 	 * - stack[0] = easy completed count
 	 * - stack[1] = easy total count
@@ -272,55 +177,60 @@ public class DataCollector
 	 * - stack[10] = elite total count
 	 * Reference: https://github.com/RuneStar/cs2-scripts/blob/master/scripts/%5Bproc%2Cdiary_completion_info%5D.cs2
 	 */
-	private DiaryData getDiaryDataFromScript(int diaryId)
+	public void captureDiaries(PlayerCapture.PlayerCaptureBuilder builder)
 	{
-		client.runScript(DIARY_COMPLETION_SCRIPT, diaryId);
-		int[] stack = client.getIntStack();
+		ScriptBatchEvent batchEvent = startScriptBatch();
+		int[] completed = new int[ALL_DIARY_IDS.length * PlayerCapture.DIARY_TIERS];
+		int[] totals = new int[ALL_DIARY_IDS.length * PlayerCapture.DIARY_TIERS];
 
-		// A tier is complete when completed count >= total count
-		int easyCompleted = stack[0];
-		int easyTotal = stack[1];
-		int mediumCompleted = stack[3];
-		int mediumTotal = stack[4];
-		int hardCompleted = stack[6];
-		int hardTotal = stack[7];
-		int eliteCompleted = stack[9];
-		int eliteTotal = stack[10];
+		for (int diary = 0; diary < ALL_DIARY_IDS.length; diary++)
+		{
+			client.runScript(DIARY_COMPLETION_SCRIPT, ALL_DIARY_IDS[diary]);
+			int[] stack = client.getIntStack();
 
-		boolean easy = easyTotal > 0 && easyCompleted >= easyTotal;
-		boolean medium = mediumTotal > 0 && mediumCompleted >= mediumTotal;
-		boolean hard = hardTotal > 0 && hardCompleted >= hardTotal;
-		boolean elite = eliteTotal > 0 && eliteCompleted >= eliteTotal;
+			for (int tier = 0; tier < PlayerCapture.DIARY_TIERS; tier++)
+			{
+				completed[diary * PlayerCapture.DIARY_TIERS + tier] = stack[tier * 3];
+				totals[diary * PlayerCapture.DIARY_TIERS + tier] = stack[tier * 3 + 1];
+			}
 
-		log.debug("Diary {} - Easy: {}/{}, Medium: {}/{}, Hard: {}/{}, Elite: {}/{}",
-			diaryId, easyCompleted, easyTotal, mediumCompleted, mediumTotal,
-			hardCompleted, hardTotal, eliteCompleted, eliteTotal);
+			log.debug("Diary {} - Easy: {}/{}, Medium: {}/{}, Hard: {}/{}, Elite: {}/{}",
+				ALL_DIARY_IDS[diary], stack[0], stack[1], stack[3], stack[4],
+				stack[6], stack[7], stack[9], stack[10]);
+		}
 
-		return DiaryData.builder()
-			.easy(easy)
-			.medium(medium)
-			.hard(hard)
-			.elite(elite)
-			.build();
+		finishScriptBatch(batchEvent, "diaries", DIARY_COMPLETION_SCRIPT, ALL_DIARY_IDS.length);
+		builder.diaryNames(DIARY_NAMES)
+			.diaryCompleted(completed)
+			.diaryTotals(totals);
 	}
 
-	public CombatAchievementData collectCombatAchievements()
+	public void captureCombatAchievements(PlayerCapture.PlayerCaptureBuilder builder)
 	{
 		// Script 4784 returns the completed task count for a given tier
 		// Tier IDs: 1=Easy, 2=Medium, 3=Hard, 4=Elite, 5=Master, 6=Grandmaster
-		return CombatAchievementData.builder()
-			.easy(getCompletedCombatAchievementCount(1))
-			.medium(getCompletedCombatAchievementCount(2))
-			.hard(getCompletedCombatAchievementCount(3))
-			.elite(getCompletedCombatAchievementCount(4))
-			.master(getCompletedCombatAchievementCount(5))
-			.grandmaster(getCompletedCombatAchievementCount(6))
-			.build();
+		ScriptBatchEvent batchEvent = startScriptBatch();
+		int[] completed = new int[PlayerCapture.COMBAT_ACHIEVEMENT_TIERS];
+		for (int tier = 1; tier <= completed.length; tier++)
+		{
+			client.runScript(CA_COMPLETED_COUNT_SCRIPT, tier);
+			completed[tier - 1] = client.getIntStack()[0];
+		}
+		finishScriptBatch(batchEvent, "combat achievements", CA_COMPLETED_COUNT_SCRIPT, completed.length);
+
+		builder.combatAchievementsCompleted(completed);
 	}
 
-	private int getCompletedCombatAchievementCount(int tierId)
+	private static ScriptBatchEvent startScriptBatch()
 	{
-		client.runScript(CA_COMPLETED_COUNT_SCRIPT, tierId);
-		return client.getIntStack()[0];
+		return JfrSupport.AVAILABLE ? ScriptBatchEvent.start() : null;
+	}
+
+	private static void finishScriptBatch(ScriptBatchEvent event, String section, int scriptId, int invocations)
+	{
+		if (event != null)
+		{
+			event.finish(section, scriptId, invocations);
+		}
 	}
 }
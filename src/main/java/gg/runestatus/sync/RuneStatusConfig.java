@@ -50,6 +50,42 @@ public interface RuneStatusConfig extends Config
 		return 5;
 	}
 
+	@ConfigItem(
+		keyName = "instantEvents",
+		name = "Instant Drop & Level Events",
+		description = "Send new collection log drops and level ups immediately instead of waiting for the next sync",
+		section = syncSection,
+		position = 2
+	)
+	default boolean instantEvents()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+		keyName = "timeSliceSlowSyncs",
+		name = "Spread Out Slow Syncs",
+		description = "If collecting sync data keeps stalling the game, collect it over several frames instead",
+		section = syncSection,
+		position = 3
+	)
+	default boolean timeSliceSlowSyncs()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+		keyName = "shareCaptures",
+		name = "Share Data With Other Plugins",
+		description = "Let other plugins such as RuneProfile reuse the data collected for a sync instead of reading it from the game again",
+		section = syncSection,
+		position = 4
+	)
+	default boolean shareCaptures()
+	{
+		return true;
+	}
+
 	@ConfigSection(
 		name = "Data Options",
 		description = "Choose what data to sync",
@@ -105,6 +141,18 @@ public interface RuneStatusConfig extends Config
 		return true;
 	}
 
+	@ConfigItem(
+		keyName = "syncBossKillCounts",
+		name = "Sync Boss Kill Counts",
+		description = "Sync boss kill counts seen in chat",
+		section = dataSection,
+		position = 4
+	)
+	default boolean syncBossKillCounts()
+	{
+		return true;
+	}
+
 	@ConfigItem(
 		keyName = "syncCollectionLog",
 		name = "Sync Collection Log",
@@ -117,6 +165,18 @@ public interface RuneStatusConfig extends Config
 		return true;
 	}
 
+	@ConfigItem(
+		keyName = "keepXpHistory",
+		name = "Keep Local XP History",
+		description = "Record XP per skill once a minute to .runelite/runestatus/xp for XP/hr graphs. Stays on this computer",
+		section = dataSection,
+		position = 6
+	)
+	default boolean keepXpHistory()
+	{
+		return true;
+	}
+
 	@ConfigSection(
 		name = "Notifications",
 		description = "Configure notifications",
@@ -135,4 +195,49 @@ public interface RuneStatusConfig extends Config
 	{
 		return false;
 	}
+
+	@ConfigItem(
+		keyName = "showSidePanel",
+		name = "Show Sync Panel",
+		description = "Show a side panel with the last sync result, pending requests and sync latency",
+		section = notificationSection,
+		position = 1
+	)
+	default boolean showSidePanel()
+	{
+		return true;
+	}
+
+	@ConfigSection(
+		name = "Diagnostics",
+		description = "Tools for reporting performance problems",
+		position = 3,
+		closedByDefault = true
+	)
+	String diagnosticsSection = "diagnostics";
+
+	@ConfigItem(
+		keyName = "recordSessions",
+		name = "Record Sessions",
+		description = "Record the game events the plugin sees to .runelite/runestatus/recordings, from login to logout.<br>" +
+			"Attach a recording when reporting lag so it can be replayed",
+		section = diagnosticsSection,
+		position = 0
+	)
+	default boolean recordSessions()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "exportSnapshots",
+		name = "Export Snapshots Locally",
+		description = "Keep a copy of every captured snapshot in .runelite/runestatus/exports, for offline history and support",
+		section = diagnosticsSection,
+		position = 1
+	)
+	default boolean exportSnapshots()
+	{
+		return false;
+	}
 }
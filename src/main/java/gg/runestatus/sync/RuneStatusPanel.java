@@ -0,0 +1,265 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.metrics.SyncHealth;
+import gg.runestatus.sync.metrics.SyncMetrics;
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.FontManager;
+import net.runelite.client.ui.PluginPanel;
+
+import javax.inject.Inject;
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.Timer;
+import java.awt.BasicStroke;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GridLayout;
+import java.awt.RenderingHints;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Side panel showing how syncing is going this session.
+ * <p>
+ * Nothing in the sync pipeline touches Swing. While the panel is showing, a Swing timer polls
+ * {@link SyncMetrics#health()} a few times a second and only updates components whose values changed,
+ * so the panel's EDT cost is fixed however many events or syncs happen between polls.
+ */
+class RuneStatusPanel extends PluginPanel
+{
+	private static final int REFRESH_INTERVAL_MS = 250;
+
+	private final SyncMetrics metrics;
+	private final SyncScheduler syncScheduler;
+	private final RuneStatusClient runeStatusClient;
+
+	private final JLabel lastSyncLabel = createValueLabel();
+	private final JLabel lastResultLabel = createValueLabel();
+	private final JLabel stateLabel = createValueLabel();
+	private final JLabel pendingLabel = createValueLabel();
+	private final JLabel bytesSentLabel = createValueLabel();
+	private final JLabel syncCountLabel = createValueLabel();
+	private final Sparkline latencySparkline = new Sparkline();
+	private final JLabel latencyLabel = createValueLabel();
+
+	private final Timer refreshTimer;
+	private SyncHealth lastHealth;
+
+	@Inject
+	RuneStatusPanel(SyncMetrics metrics, SyncScheduler syncScheduler, RuneStatusClient runeStatusClient)
+	{
+		this.metrics = metrics;
+		this.syncScheduler = syncScheduler;
+		this.runeStatusClient = runeStatusClient;
+
+		setLayout(new BorderLayout(0, 10));
+		setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+		JLabel title = new JLabel("Sync Status");
+		title.setFont(FontManager.getRunescapeBoldFont());
+		title.setForeground(Color.WHITE);
+		add(title, BorderLayout.NORTH);
+
+		JPanel rows = new JPanel(new GridLayout(0, 1, 0, 4));
+		rows.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+		rows.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+		rows.add(createRow("Last sync", lastSyncLabel));
+		rows.add(createRow("Result", lastResultLabel));
+		rows.add(createRow("State", stateLabel));
+		rows.add(createRow("Pending requests", pendingLabel));
+		rows.add(createRow("Sent this session", bytesSentLabel));
+		rows.add(createRow("Syncs ok / failed", syncCountLabel));
+
+		JPanel latency = new JPanel(new BorderLayout(0, 4));
+		latency.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+		latency.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+		latency.add(createRow("Sync latency", latencyLabel), BorderLayout.NORTH);
+		latency.add(latencySparkline, BorderLayout.CENTER);
+
+		JPanel content = new JPanel(new BorderLayout(0, 10));
+		content.add(rows, BorderLayout.NORTH);
+		content.add(latency, BorderLayout.CENTER);
+		add(content, BorderLayout.CENTER);
+
+		refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+		// Ticks missed while the EDT was busy collapse into one
+		refreshTimer.setCoalesce(true);
+		refresh();
+	}
+
+	@Override
+	public void onActivate()
+	{
+		refresh();
+		refreshTimer.start();
+	}
+
+	@Override
+	public void onDeactivate()
+	{
+		refreshTimer.stop();
+	}
+
+	private void refresh()
+	{
+		SyncHealth health = metrics.health();
+
+		// Relative times and live state change without the metrics changing
+		lastSyncLabel.setText(health.getLastSyncAt() == 0 ? "Never" : formatAgo(System.currentTimeMillis() - health.getLastSyncAt()));
+		stateLabel.setText(syncScheduler.isInFlight() ? "Syncing" : "Idle");
+		pendingLabel.setText(String.valueOf(runeStatusClient.getPendingRequestCount()));
+
+		if (health.equals(lastHealth))
+		{
+			return;
+		}
+		lastHealth = health;
+
+		lastResultLabel.setText(formatOutcome(health.getLastOutcome()));
+		lastResultLabel.setForeground(health.getLastOutcome() == SyncHealth.Outcome.FAILED
+			? ColorScheme.PROGRESS_ERROR_COLOR : Color.WHITE);
+		bytesSentLabel.setText(formatBytes(health.getBytesSent()));
+		syncCountLabel.setText(health.getSyncsSucceeded() + " / " + health.getSyncsFailed());
+
+		long[] latencies = health.getRecentSyncLatencyMillis();
+		latencyLabel.setText(latencies.length == 0 ? "-" : latencies[latencies.length - 1] + " ms");
+		latencySparkline.setValues(latencies);
+	}
+
+	private static JPanel createRow(String name, JLabel value)
+	{
+		JLabel label = new JLabel(name);
+		label.setFont(FontManager.getRunescapeSmallFont());
+		label.setForeground(ColorScheme.LIGHT_GRAY_COLOR);
+
+		JPanel row = new JPanel(new BorderLayout());
+		row.setOpaque(false);
+		row.add(label, BorderLayout.WEST);
+		row.add(value, BorderLayout.EAST);
+		return row;
+	}
+
+	private static JLabel createValueLabel()
+	{
+		JLabel label = new JLabel("-");
+		label.setFont(FontManager.getRunescapeSmallFont());
+		label.setForeground(Color.WHITE);
+		return label;
+	}
+
+	private static String formatOutcome(SyncHealth.Outcome outcome)
+	{
+		if (outcome == null)
+		{
+			return "-";
+		}
+
+		switch (outcome)
+		{
+			case SUCCEEDED:
+				return "Synced";
+			case FAILED:
+				return "Failed";
+			case UNCHANGED:
+				return "Up to date";
+			default:
+				return outcome.name();
+		}
+	}
+
+	private static String formatAgo(long millis)
+	{
+		long seconds = TimeUnit.MILLISECONDS.toSeconds(Math.max(millis, 0));
+		if (seconds < 5)
+		{
+			return "Just now";
+		}
+		if (seconds < 60)
+		{
+			return seconds + "s ago";
+		}
+		if (seconds < 3600)
+		{
+			return seconds / 60 + "m ago";
+		}
+		return seconds / 3600 + "h ago";
+	}
+
+	private static String formatBytes(long bytes)
+	{
+		if (bytes < 1024)
+		{
+			return bytes + " B";
+		}
+		if (bytes < 1024 * 1024)
+		{
+			return String.format("%.1f KB", bytes / 1024.0);
+		}
+		return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+	}
+
+	/**
+	 * Line of recent values scaled to the largest one, newest on the right.
+	 */
+	private static class Sparkline extends JComponent
+	{
+		private long[] values = new long[0];
+
+		Sparkline()
+		{
+			setPreferredSize(new Dimension(0, 40));
+		}
+
+		void setValues(long[] values)
+		{
+			if (!Arrays.equals(this.values, values))
+			{
+				this.values = values;
+				repaint();
+			}
+		}
+
+		@Override
+		protected void paintComponent(Graphics graphics)
+		{
+			if (values.length < 2)
+			{
+				return;
+			}
+
+			long max = 1;
+			for (long value : values)
+			{
+				max = Math.max(max, value);
+			}
+
+			int width = getWidth() - 1;
+			int height = getHeight() - 1;
+			int[] xs = new int[values.length];
+			int[] ys = new int[values.length];
+			for (int i = 0; i < values.length; i++)
+			{
+				xs[i] = (int) ((long) width * i / (values.length - 1));
+				ys[i] = height - (int) (height * values[i] / max);
+			}
+
+			Graphics2D g = (Graphics2D) graphics.create();
+			try
+			{
+				g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+				g.setColor(ColorScheme.BRAND_ORANGE);
+				g.setStroke(new BasicStroke(1.5f));
+				g.drawPolyline(xs, ys, values.length);
+			}
+			finally
+			{
+				g.dispose();
+			}
+		}
+	}
+}
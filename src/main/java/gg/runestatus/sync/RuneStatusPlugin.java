@@ -1,24 +1,45 @@
 package gg.runestatus.sync;
 
 import com.google.inject.Provides;
+import gg.runestatus.sync.capture.CaptureFanout;
+import gg.runestatus.sync.capture.CaptureSink;
+import gg.runestatus.sync.capture.PlayerCapture;
 import gg.runestatus.sync.data.PlayerSyncData;
+import gg.runestatus.sync.data.SyncEvent;
+import gg.runestatus.sync.jfr.JfrSupport;
+import gg.runestatus.sync.jfr.SnapshotCaptureEvent;
+import gg.runestatus.sync.metrics.SyncMetrics;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
 import net.runelite.api.GameState;
 import net.runelite.api.Skill;
+import net.runelite.api.events.CommandExecuted;
 import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.StatChanged;
+import net.runelite.client.RuneLite;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.events.ConfigChanged;
+import net.runelite.client.events.PluginMessage;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.task.Schedule;
+import net.runelite.client.ui.ClientToolbar;
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.NavigationButton;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.time.temporal.ChronoUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @Slf4j
 @PluginDescriptor(
@@ -28,12 +49,24 @@ import java.util.concurrent.atomic.AtomicLong;
 )
 public class RuneStatusPlugin extends Plugin
 {
+	// Directory under the RuneLite folder holding the plugin's local state
+	public static final String DATA_DIRECTORY = "runestatusDataDirectory";
+
+	private static final Skill[] SKILLS = Skill.values();
+
+	// Watchdog section names
+	private static final String SYNC_SECTION = "performSync";
+	private static final String SYNC_SLICE_SECTION = "performSync (time-sliced)";
+
 	@Inject
 	private Client client;
 
 	@Inject
 	private ClientThread clientThread;
 
+	@Inject
+	private ClientToolbar clientToolbar;
+
 	@Inject
 	private RuneStatusConfig config;
 
@@ -46,70 +79,241 @@ public class RuneStatusPlugin extends Plugin
 	@Inject
 	private CollectionLogManager collectionLogManager;
 
-	private final AtomicLong lastSyncTime = new AtomicLong(0);
-	private volatile boolean isSyncing = false;
+	@Inject
+	private BossKillCountTracker bossKillCountTracker;
+
+	@Inject
+	private SyncMetrics metrics;
+
+	@Inject
+	private ClientThreadWatchdog watchdog;
+
+	@Inject
+	private SyncScheduler syncScheduler;
+
+	@Inject
+	private SessionRecorder sessionRecorder;
+
+	@Inject
+	private SnapshotStore snapshotStore;
+
+	@Inject
+	private XpHistoryTracker xpHistoryTracker;
+
+	@Inject
+	private SnapshotExporter snapshotExporter;
+
+	@Inject
+	private SyncDataEncoder syncDataEncoder;
+
+	@Inject
+	private CaptureFanout captureFanout;
+
+	@Inject
+	private CaptureBroadcaster captureBroadcaster;
+
+	@Inject
+	private RuneStatusPanel panel;
+
+	private NavigationButton navigationButton;
+
 	private boolean loggedIn = false;
 
+	// Last seen real level per skill, used to detect level ups. 0 until the login stat burst arrives
+	private final int[] realLevels = new int[SKILLS.length];
+
+	// The RuneStatus API's own sink, kept so it can be unregistered
+	private final CaptureSink apiSink = this::onCapture;
+
+	// Capture sections in order. A full capture runs them back to back; a time-sliced
+	// capture runs one per client thread callback
+	private final List<Consumer<PlayerCapture.PlayerCaptureBuilder>> captureSteps = Arrays.asList(
+		builder -> dataCollector.captureSummary(builder),
+		builder -> dataCollector.captureQuests(builder),
+		builder -> dataCollector.captureDiaries(builder),
+		builder -> dataCollector.captureCombatAchievements(builder),
+		builder -> dataCollector.captureSkills(builder)
+	);
+
 	@Override
 	protected void startUp()
 	{
 		log.info("RuneStatus Sync started");
 		// Start CollectionLogManager to listen for chat messages (new collection log drops)
-		collectionLogManager.startUp();
+		collectionLogManager.startUp(this::onCollectionLogDrop);
+		bossKillCountTracker.startUp();
+		snapshotStore.startUp();
+		xpHistoryTracker.startUp();
+		sessionRecorder.startUp();
+		watchdog.startUp();
+
+		// Every capture goes to each sink; each decides for itself whether it is due
+		captureFanout.register(apiSink);
+		captureFanout.register(snapshotExporter);
+		captureFanout.register(captureBroadcaster);
+
+		navigationButton = NavigationButton.builder()
+			.tooltip("RuneStatus")
+			.icon(createIcon())
+			.priority(6)
+			.panel(panel)
+			.build();
+		if (config.showSidePanel())
+		{
+			clientToolbar.addNavigation(navigationButton);
+		}
 	}
 
 	@Override
 	protected void shutDown()
 	{
 		log.info("RuneStatus Sync stopped");
+		clientToolbar.removeNavigation(navigationButton);
+		captureFanout.unregister(captureBroadcaster);
+		captureFanout.unregister(snapshotExporter);
+		captureFanout.unregister(apiSink);
 		collectionLogManager.shutDown();
+		bossKillCountTracker.shutDown();
+		snapshotStore.shutDown();
+		xpHistoryTracker.shutDown();
+		snapshotExporter.flush();
+		sessionRecorder.shutDown();
+		watchdog.shutDown();
 		loggedIn = false;
 	}
 
 	@Subscribe
 	public void onGameStateChanged(GameStateChanged event)
 	{
-		if (event.getGameState() == GameState.LOGGED_IN)
+		watchdog.enter("onGameStateChanged");
+		try
 		{
-			if (!loggedIn)
+			if (event.getGameState() == GameState.LOGGED_IN)
+			{
+				if (!loggedIn)
+				{
+					loggedIn = true;
+					// Delay initial sync to ensure all data is loaded
+					clientThread.invokeLater(watchdog.wrap("initial sync", () -> {
+						if (client.getGameState() == GameState.LOGGED_IN)
+						{
+							performSync();
+						}
+					}));
+				}
+			}
+			else if (event.getGameState() == GameState.LOGIN_SCREEN)
 			{
-				loggedIn = true;
-				// Delay initial sync to ensure all data is loaded
-				clientThread.invokeLater(() -> {
-					if (client.getGameState() == GameState.LOGGED_IN)
-					{
-						performSync();
-					}
-				});
+				loggedIn = false;
+				Arrays.fill(realLevels, 0);
+				watchdog.reset();
+				snapshotExporter.flush();
 			}
 		}
-		else if (event.getGameState() == GameState.LOGIN_SCREEN)
+		finally
 		{
-			loggedIn = false;
+			watchdog.exit();
+		}
+	}
+
+	@Subscribe
+	public void onConfigChanged(ConfigChanged event)
+	{
+		if (!"runestatus".equals(event.getGroup()) || !"showSidePanel".equals(event.getKey()))
+		{
+			return;
+		}
+
+		if (config.showSidePanel())
+		{
+			clientToolbar.addNavigation(navigationButton);
+		}
+		else
+		{
+			clientToolbar.removeNavigation(navigationButton);
 		}
 	}
 
 	@Subscribe
 	public void onStatChanged(StatChanged event)
 	{
+		watchdog.enter("onStatChanged");
+		try
+		{
+			handleStatChanged(event);
+		}
+		finally
+		{
+			watchdog.exit();
+		}
+	}
+
+	private void handleStatChanged(StatChanged event)
+	{
+		Skill skill = event.getSkill();
+		int level = event.getLevel();
+		int previousLevel = realLevels[skill.ordinal()];
+		realLevels[skill.ordinal()] = level;
+
 		if (!config.enableSync() || !loggedIn)
 		{
 			return;
 		}
 
-		// Sync on level up (XP change with level change)
-		Skill skill = event.getSkill();
-		int currentLevel = client.getRealSkillLevel(skill);
-		int boostedLevel = event.getLevel();
+		// The first StatChanged for a skill after login only seeds its level
+		if (previousLevel == 0 || level <= previousLevel)
+		{
+			return;
+		}
 
-		// Check if this was a level up by comparing real level
-		if (currentLevel == boostedLevel && shouldSync())
+		if (config.instantEvents())
+		{
+			log.debug("Level up detected in {}, sending event", skill.getName());
+			sendEvent(SyncEvent.Type.LEVEL_UP, skill.getName(), level);
+		}
+		else if (syncScheduler.isPastMinimumGap())
 		{
 			log.debug("Level up detected in {}, triggering sync", skill.getName());
 			performSync();
 		}
 	}
 
+	private void onCollectionLogDrop(String itemName)
+	{
+		if (!config.enableSync() || !config.syncCollectionLog() || !config.instantEvents() || !loggedIn)
+		{
+			return;
+		}
+
+		// The drop is still included in the next snapshot, so a failed event loses nothing
+		sendEvent(SyncEvent.Type.COLLECTION_LOG_DROP, itemName, 0);
+	}
+
+	private void sendEvent(SyncEvent.Type type, String name, int value)
+	{
+		String username = dataCollector.getUsername();
+		if (username == null || username.isEmpty())
+		{
+			return;
+		}
+
+		SyncEvent event = SyncEvent.builder()
+			.type(type)
+			.username(username)
+			.accountType(dataCollector.getAccountType())
+			.name(name)
+			.value(value)
+			.timestamp(System.currentTimeMillis())
+			.build();
+
+		runeStatusClient.sendEvent(event).thenAccept(success -> {
+			if (success)
+			{
+				log.debug("Sent {} event for {}", type, name);
+			}
+		});
+	}
+
 	@Schedule(
 		period = 1,
 		unit = ChronoUnit.MINUTES,
@@ -122,67 +326,200 @@ public class RuneStatusPlugin extends Plugin
 			return;
 		}
 
-		if (shouldSyncByInterval())
+		if (syncScheduler.isDueByInterval(config.syncInterval()))
 		{
-			clientThread.invokeLater(this::performSync);
+			clientThread.invokeLater(watchdog.wrap("periodic sync", this::performSync));
 		}
 	}
 
-	private boolean shouldSync()
+	void performSync()
 	{
-		long now = System.currentTimeMillis();
-		long lastSync = lastSyncTime.get();
-		// Minimum 30 seconds between syncs to prevent spam
-		return (now - lastSync) > 30_000;
+		if (!config.enableSync())
+		{
+			return;
+		}
+
+		String username = dataCollector.getUsername();
+		if (username == null || username.isEmpty())
+		{
+			log.debug("Cannot sync - no username available");
+			metrics.recordSkippedNoPlayer();
+			return;
+		}
+
+		// Prevent concurrent syncs
+		if (!syncScheduler.tryBegin())
+		{
+			metrics.recordSkippedInFlight();
+			return;
+		}
+
+		// A capture that keeps blowing the client thread budget is spread over several callbacks instead
+		if (config.timeSliceSlowSyncs() && watchdog.isDegraded(SYNC_SECTION))
+		{
+			captureSliced(PlayerCapture.builder().trigger(PlayerCapture.TRIGGER_SYNC), 0, 0, captureFanout::publish);
+			return;
+		}
+
+		watchdog.enter(SYNC_SECTION);
+		try
+		{
+			PlayerCapture capture;
+			try
+			{
+				capture = capture(PlayerCapture.TRIGGER_SYNC);
+			}
+			catch (RuntimeException e)
+			{
+				syncScheduler.abort();
+				throw e;
+			}
+			captureFanout.publish(capture);
+		}
+		finally
+		{
+			watchdog.exit();
+		}
 	}
 
-	private boolean shouldSyncByInterval()
+	/**
+	 * Runs one capture step per client thread callback, then hands the finished capture on.
+	 */
+	private void captureSliced(PlayerCapture.PlayerCaptureBuilder builder, int step, long collectNanos,
+		Consumer<PlayerCapture> onCaptured)
 	{
-		long now = System.currentTimeMillis();
-		long lastSync = lastSyncTime.get();
-		long intervalMs = config.syncInterval() * 60_000L;
-		return (now - lastSync) >= intervalMs;
+		clientThread.invokeLater(watchdog.wrap(SYNC_SLICE_SECTION, () -> {
+			if (client.getGameState() != GameState.LOGGED_IN)
+			{
+				syncScheduler.abort();
+				return;
+			}
+
+			long start = System.nanoTime();
+			try
+			{
+				captureSteps.get(step).accept(builder);
+			}
+			catch (RuntimeException e)
+			{
+				syncScheduler.abort();
+				throw e;
+			}
+			long elapsed = collectNanos + System.nanoTime() - start;
+
+			if (step + 1 < captureSteps.size())
+			{
+				captureSliced(builder, step + 1, elapsed, onCaptured);
+				return;
+			}
+
+			metrics.recordCollection(elapsed);
+			// What the capture would have cost in one callback, so the whole sync resumes once it fits again
+			watchdog.recordSplitRun(SYNC_SECTION, elapsed);
+			onCaptured.accept(builder.build());
+		}));
 	}
 
-	private void performSync()
+	/**
+	 * Another plugin asking for a capture, normally so it doesn't have to read the same data itself.
+	 * The capture goes to every sink, so the API and export also get it if they are due.
+	 */
+	@Subscribe
+	public void onPluginMessage(PluginMessage event)
 	{
-		if (!config.enableSync())
+		if (!PlayerCapture.MESSAGE_NAMESPACE.equals(event.getNamespace())
+			|| !PlayerCapture.CAPTURE_REQUEST_MESSAGE.equals(event.getName()))
 		{
 			return;
 		}
 
-		String username = dataCollector.getUsername();
-		if (username == null || username.isEmpty())
+		// Requests are answered synchronously, so the reply is posted before the request returns
+		if (!config.shareCaptures() || !loggedIn || !client.isClientThread() || dataCollector.getUsername() == null)
 		{
-			log.debug("Cannot sync - no username available");
 			return;
 		}
 
-		// Prevent concurrent syncs
-		if (isSyncing)
+		Object from = event.getData().get("from");
+		watchdog.enter("onPluginMessage");
+		try
 		{
+			captureFanout.publish(capture("plugin:" + (from instanceof String ? from : "unknown")));
+		}
+		finally
+		{
+			watchdog.exit();
+		}
+	}
+
+	/**
+	 * Sink for the RuneStatus API. Sends captures taken for its own schedule, and captures
+	 * requested by other plugins when a sync is due anyway.
+	 */
+	private void onCapture(PlayerCapture capture)
+	{
+		if (PlayerCapture.TRIGGER_SYNC.equals(capture.getTrigger()))
+		{
+			// performSync already holds the in-flight slot
+			sendSnapshot(capture);
 			return;
 		}
 
-		isSyncing = true;
-		PlayerSyncData data = buildSyncData();
+		if (config.enableSync() && capture.getUsername() != null
+			&& syncScheduler.isDueByInterval(config.syncInterval()) && syncScheduler.tryBegin())
+		{
+			sendSnapshot(capture);
+		}
+	}
+
+	/**
+	 * Sends a capture while holding the in-flight slot. The slot is released when the server answers,
+	 * or straight away if the snapshot can't be built or sent.
+	 */
+	private void sendSnapshot(PlayerCapture capture)
+	{
+		String username = capture.getUsername();
+		long accountHash = capture.getAccountHash();
+		PlayerSyncData data;
+		CompletableFuture<Boolean> response;
+		try
+		{
+			data = syncDataEncoder.encode(capture);
 
-		runeStatusClient.syncPlayerData(data).thenAccept(success -> {
-			lastSyncTime.set(System.currentTimeMillis());
-			isSyncing = false;
+			// Nothing changed since the server last accepted a snapshot, possibly in an earlier session
+			if (snapshotStore.isUnchanged(data))
+			{
+				log.debug("Skipping sync for {}, nothing changed since the last acknowledged snapshot", username);
+				metrics.recordSkippedUnchanged();
+				syncScheduler.complete();
+				return;
+			}
+
+			response = runeStatusClient.syncPlayerData(data);
+		}
+		catch (RuntimeException e)
+		{
+			// Left to the fanout to log
+			syncScheduler.abort();
+			throw e;
+		}
+
+		response.thenAccept(success -> {
+			syncScheduler.complete();
 
 			if (success)
 			{
 				log.debug("Successfully synced data for {}", username);
 				// Clear recent drops after successful sync
 				collectionLogManager.clearRecentDrops();
+				bossKillCountTracker.acknowledge(data.getBossKillCounts());
+				snapshotStore.acknowledge(accountHash, data);
 
 				if (config.showSyncNotification())
 				{
-					clientThread.invokeLater(() ->
+					clientThread.invokeLater(watchdog.wrap("sync notification", () ->
 						client.addChatMessage(ChatMessageType.GAMEMESSAGE, "",
 							"RuneStatus: Data synced successfully!", null)
-					);
+					));
 				}
 			}
 			else
@@ -192,59 +529,78 @@ public class RuneStatusPlugin extends Plugin
 		});
 	}
 
-	private PlayerSyncData buildSyncData()
+	@Subscribe
+	public void onCommandExecuted(CommandExecuted event)
 	{
-		// Get summary counts
-		int[] questCounts = dataCollector.getQuestCounts();
-		int[] diaryCounts = dataCollector.getDiaryTaskCounts();
-		int[] combatCounts = dataCollector.getCombatTaskCounts();
-
-		PlayerSyncData.PlayerSyncDataBuilder builder = PlayerSyncData.builder()
-			.username(dataCollector.getUsername())
-			.accountType(dataCollector.getAccountType())
-			.world(dataCollector.getWorld())
-			.lastSyncedAt(System.currentTimeMillis())
-			// Summary stats - always included
-			.combatLevel(dataCollector.getCombatLevel())
-			.totalLevel(dataCollector.getTotalLevel())
-			.totalXp(dataCollector.getTotalXp())
-			.questsCompleted(questCounts[0])
-			.questsTotal(questCounts[1])
-			.diaryTasksCompleted(diaryCounts[0])
-			.diaryTasksTotal(diaryCounts[1])
-			.combatTasksCompleted(combatCounts[0])
-			.combatTasksTotal(combatCounts[1])
-			.collectionLogObtained(dataCollector.getCollectionLogCount())
-			.timePlayedMinutes(dataCollector.getTimePlayedMinutes());
-
-		if (config.syncSkills())
+		if (!"rsmetrics".equalsIgnoreCase(event.getCommand()))
 		{
-			builder.skills(dataCollector.collectSkills());
+			return;
 		}
 
-		if (config.syncQuests())
+		watchdog.enter("onCommandExecuted");
+		try
 		{
-			builder.quests(dataCollector.collectQuests());
+			for (String line : metrics.summary().split("\n"))
+			{
+				client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "RuneStatus: " + line, null);
+			}
 		}
-
-		if (config.syncDiaries())
+		finally
 		{
-			builder.achievementDiaries(dataCollector.collectAchievementDiaries());
+			watchdog.exit();
 		}
+	}
+
+	/**
+	 * Runs every capture step back to back.
+	 */
+	PlayerCapture capture(String trigger)
+	{
+		SnapshotCaptureEvent captureEvent = JfrSupport.AVAILABLE ? SnapshotCaptureEvent.start() : null;
+		long collectStart = System.nanoTime();
 
-		if (config.syncCombatAchievements())
+		PlayerCapture.PlayerCaptureBuilder builder = PlayerCapture.builder().trigger(trigger);
+		for (Consumer<PlayerCapture.PlayerCaptureBuilder> step : captureSteps)
 		{
-			builder.combatAchievements(dataCollector.collectCombatAchievements());
+			step.accept(builder);
 		}
+		PlayerCapture capture = builder.build();
 
-		// Include recent drops detected from chat messages
-		if (config.syncCollectionLog() && collectionLogManager.hasRecentDrops())
+		metrics.recordCollection(System.nanoTime() - collectStart);
+		if (captureEvent != null)
 		{
-			builder.recentDrops(collectionLogManager.getRecentDropNames());
-			log.debug("Including {} recent drops from chat", collectionLogManager.getRecentDropNames().size());
+			captureEvent.finish(capture.getAccountType(), capture.getWorld());
 		}
+		return capture;
+	}
+
+	/**
+	 * The snapshot a sync would send right now.
+	 */
+	PlayerSyncData buildSyncData()
+	{
+		return syncDataEncoder.encode(capture(PlayerCapture.TRIGGER_SYNC));
+	}
 
-		return builder.build();
+	/**
+	 * Three rising bars, drawn rather than loaded so the plugin needs no image resources.
+	 */
+	private static BufferedImage createIcon()
+	{
+		BufferedImage icon = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = icon.createGraphics();
+		try
+		{
+			g.setColor(ColorScheme.BRAND_ORANGE);
+			g.fillRect(1, 9, 4, 6);
+			g.fillRect(6, 5, 4, 10);
+			g.fillRect(11, 1, 4, 14);
+		}
+		finally
+		{
+			g.dispose();
+		}
+		return icon;
 	}
 
 	@Provides
@@ -252,4 +608,11 @@ public class RuneStatusPlugin extends Plugin
 	{
 		return configManager.getConfig(RuneStatusConfig.class);
 	}
+
+	@Provides
+	@Named(DATA_DIRECTORY)
+	File provideDataDirectory()
+	{
+		return new File(RuneLite.RUNELITE_DIR, "runestatus");
+	}
 }
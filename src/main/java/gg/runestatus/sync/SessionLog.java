@@ -0,0 +1,58 @@
+package gg.runestatus.sync;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary format shared by {@link SessionRecorder} and {@link SessionLogReader}.
+ * <p>
+ * A session log is one or more concatenated gzip members. Together they decompress to a
+ * header (magic, version, start time in epoch millis) followed by records. Each record is
+ * a one byte type followed by its fields. Ids and counts are unsigned varints. Values that
+ * can be negative are zigzag varints. Enums are stored by their game id rather than their
+ * ordinal so recordings survive RuneLite updates.
+ */
+final class SessionLog
+{
+	static final int MAGIC = 0x52535243; // "RSRC"
+	static final int VERSION = 1;
+
+	static final String FILE_EXTENSION = ".rsrec";
+
+	static final int GAME_TICK = 0;
+	static final int GAME_STATE_CHANGED = 1;
+	static final int STAT_CHANGED = 2;
+	static final int VARBIT_CHANGED = 3;
+	static final int CHAT_MESSAGE = 4;
+	static final int SCRIPT_PRE_FIRED = 5;
+	static final int LOOT_RECEIVED = 6;
+
+	static final int ARG_INT = 0;
+	static final int ARG_STRING = 1;
+	static final int ARG_OTHER = 2;
+
+	private SessionLog()
+	{
+	}
+
+	static void writeVarInt(DataOutput out, int value) throws IOException
+	{
+		Varints.writeVarInt(out, value);
+	}
+
+	static void writeSignedVarInt(DataOutput out, int value) throws IOException
+	{
+		Varints.writeVarInt(out, Varints.zigzag(value));
+	}
+
+	static int readVarInt(DataInput in) throws IOException
+	{
+		return Varints.readVarInt(in);
+	}
+
+	static int readSignedVarInt(DataInput in) throws IOException
+	{
+		return Varints.unzigzag(Varints.readVarInt(in));
+	}
+}
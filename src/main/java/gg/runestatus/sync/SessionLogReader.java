@@ -0,0 +1,225 @@
+package gg.runestatus.sync;
+
+import lombok.Value;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.GameState;
+import net.runelite.api.ScriptEvent;
+import net.runelite.api.Skill;
+import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.ScriptPreFired;
+import net.runelite.api.events.StatChanged;
+import net.runelite.api.events.VarbitChanged;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decodes a session log written by {@link SessionRecorder} back into the events it was recorded from,
+ * so a session can be replayed through an {@link net.runelite.client.eventbus.EventBus}.
+ * Loot is decoded into {@link RecordedLoot}; nothing in this plugin consumes loot events, so they
+ * are only kept for bug reports.
+ */
+public final class SessionLogReader
+{
+	private SessionLogReader()
+	{
+	}
+
+	/**
+	 * A {@code LootReceived} as it was recorded.
+	 */
+	@Value
+	public static class RecordedLoot
+	{
+		String name;
+		int combatLevel;
+		String type;
+		int amount;
+		int[] itemIds;
+		int[] quantities;
+	}
+
+	/**
+	 * Reads every record in the file and hands the decoded event to {@code consumer}, in order.
+	 *
+	 * @return the session start time in epoch millis
+	 */
+	public static long read(File file, Consumer<Object> consumer) throws IOException
+	{
+		try (InputStream in = Files.newInputStream(file.toPath()))
+		{
+			return read(in, consumer);
+		}
+	}
+
+	public static long read(InputStream in, Consumer<Object> consumer) throws IOException
+	{
+		DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+
+		if (data.readInt() != SessionLog.MAGIC)
+		{
+			throw new IOException("Not a session log");
+		}
+		int version = data.readUnsignedShort();
+		if (version != SessionLog.VERSION)
+		{
+			throw new IOException("Unsupported session log version " + version);
+		}
+		long startTime = data.readLong();
+
+		Skill[] skills = new Skill[SessionLog.readVarInt(data)];
+		for (int i = 0; i < skills.length; i++)
+		{
+			String name = data.readUTF();
+			try
+			{
+				skills[i] = Skill.valueOf(name);
+			}
+			catch (IllegalArgumentException e)
+			{
+				// Recorded by a client with a skill this one doesn't know about; its stat changes are dropped
+				skills[i] = null;
+			}
+		}
+
+		// Events are stateless apart from ticks, so one instance is enough
+		GameTick tick = new GameTick();
+
+		while (true)
+		{
+			int type;
+			try
+			{
+				type = data.readUnsignedByte();
+			}
+			catch (EOFException e)
+			{
+				// A client that crashed mid-session leaves no terminator, so EOF between records is normal
+				return startTime;
+			}
+
+			switch (type)
+			{
+				case SessionLog.GAME_TICK:
+					consumer.accept(tick);
+					break;
+				case SessionLog.GAME_STATE_CHANGED:
+				{
+					GameStateChanged event = new GameStateChanged();
+					event.setGameState(GameState.of(SessionLog.readSignedVarInt(data)));
+					consumer.accept(event);
+					break;
+				}
+				case SessionLog.STAT_CHANGED:
+				{
+					Skill skill = skills[SessionLog.readVarInt(data)];
+					int xp = SessionLog.readVarInt(data);
+					int level = SessionLog.readVarInt(data);
+					int boostedLevel = SessionLog.readVarInt(data);
+					if (skill != null)
+					{
+						consumer.accept(new StatChanged(skill, xp, level, boostedLevel));
+					}
+					break;
+				}
+				case SessionLog.VARBIT_CHANGED:
+				{
+					VarbitChanged event = new VarbitChanged();
+					event.setVarpId(SessionLog.readSignedVarInt(data));
+					event.setVarbitId(SessionLog.readSignedVarInt(data));
+					event.setValue(SessionLog.readSignedVarInt(data));
+					consumer.accept(event);
+					break;
+				}
+				case SessionLog.CHAT_MESSAGE:
+				{
+					ChatMessage event = new ChatMessage();
+					event.setType(ChatMessageType.of(SessionLog.readVarInt(data)));
+					event.setName(data.readUTF());
+					event.setSender(data.readUTF());
+					event.setMessage(data.readUTF());
+					consumer.accept(event);
+					break;
+				}
+				case SessionLog.SCRIPT_PRE_FIRED:
+				{
+					ScriptPreFired event = new ScriptPreFired(SessionLog.readVarInt(data));
+					Object[] args = new Object[SessionLog.readVarInt(data)];
+					for (int i = 0; i < args.length; i++)
+					{
+						switch (data.readUnsignedByte())
+						{
+							case SessionLog.ARG_INT:
+								args[i] = SessionLog.readSignedVarInt(data);
+								break;
+							case SessionLog.ARG_STRING:
+								args[i] = data.readUTF();
+								break;
+							default:
+								args[i] = null;
+								break;
+						}
+					}
+					event.setScriptEvent(scriptEvent(args));
+					consumer.accept(event);
+					break;
+				}
+				case SessionLog.LOOT_RECEIVED:
+				{
+					String name = data.readUTF();
+					int combatLevel = SessionLog.readVarInt(data);
+					String lootType = data.readUTF();
+					int amount = SessionLog.readVarInt(data);
+					int[] itemIds = new int[SessionLog.readVarInt(data)];
+					int[] quantities = new int[itemIds.length];
+					for (int i = 0; i < itemIds.length; i++)
+					{
+						itemIds[i] = SessionLog.readVarInt(data);
+						quantities[i] = SessionLog.readVarInt(data);
+					}
+					consumer.accept(new RecordedLoot(name, combatLevel, lootType, amount, itemIds, quantities));
+					break;
+				}
+				default:
+					throw new IOException("Unknown record type " + type);
+			}
+		}
+	}
+
+	private static ScriptEvent scriptEvent(Object[] args)
+	{
+		// Only the arguments survive recording; everything else reads as zero
+		return (ScriptEvent) Proxy.newProxyInstance(SessionLogReader.class.getClassLoader(), new Class<?>[]{ScriptEvent.class},
+			(proxy, method, methodArgs) -> {
+				if (method.getName().equals("getArguments"))
+				{
+					return args;
+				}
+
+				Class<?> returnType = method.getReturnType();
+				if (returnType == int.class)
+				{
+					return 0;
+				}
+				if (returnType == char.class)
+				{
+					return (char) 0;
+				}
+				if (returnType == boolean.class)
+				{
+					return false;
+				}
+				return null;
+			});
+	}
+}
@@ -0,0 +1,385 @@
+package gg.runestatus.sync;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.GameState;
+import net.runelite.api.ScriptEvent;
+import net.runelite.api.Skill;
+import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.ScriptPreFired;
+import net.runelite.api.events.StatChanged;
+import net.runelite.api.events.VarbitChanged;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.events.ConfigChanged;
+import net.runelite.client.game.ItemStack;
+import net.runelite.client.plugins.loottracker.LootReceived;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records the events the plugin reacts to into a compact binary session log, see {@link SessionLog}.
+ * Recording is opt-in and runs from login to logout. Records are encoded into a small buffer on the
+ * client thread; compressing and appending each full buffer to disk is left to the executor.
+ */
+@Slf4j
+@Singleton
+public class SessionRecorder
+{
+	// Flushed to disk as a separate gzip member once this much has been buffered
+	private static final int FLUSH_BYTES = 32 * 1024;
+
+	private final EventBus eventBus;
+	private final ScheduledExecutorService executor;
+	private final RuneStatusConfig config;
+	private final File recordingDirectory;
+
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(FLUSH_BYTES + 1024);
+	private final DataOutputStream out = new DataOutputStream(buffer);
+
+	private File recording;
+
+	@Inject
+	public SessionRecorder(EventBus eventBus, ScheduledExecutorService executor, RuneStatusConfig config,
+		@Named(RuneStatusPlugin.DATA_DIRECTORY) File dataDirectory)
+	{
+		this.eventBus = eventBus;
+		this.executor = executor;
+		this.config = config;
+		this.recordingDirectory = new File(dataDirectory, "recordings");
+	}
+
+	public void startUp()
+	{
+		eventBus.register(this);
+	}
+
+	public void shutDown()
+	{
+		eventBus.unregister(this);
+		stop();
+	}
+
+	public boolean isRecording()
+	{
+		return recording != null;
+	}
+
+	@Subscribe
+	public void onGameStateChanged(GameStateChanged event)
+	{
+		GameState state = event.getGameState();
+		if (state == GameState.LOGGED_IN && recording == null && config.recordSessions())
+		{
+			start();
+		}
+
+		if (recording == null)
+		{
+			return;
+		}
+
+		try
+		{
+			out.writeByte(SessionLog.GAME_STATE_CHANGED);
+			SessionLog.writeSignedVarInt(out, state.getState());
+		}
+		catch (IOException e)
+		{
+			fail(e);
+			return;
+		}
+
+		if (state == GameState.LOGIN_SCREEN)
+		{
+			stop();
+		}
+		else
+		{
+			flushIfFull();
+		}
+	}
+
+	@Subscribe
+	public void onConfigChanged(ConfigChanged event)
+	{
+		if ("runestatus".equals(event.getGroup()) && "recordSessions".equals(event.getKey()) && !config.recordSessions())
+		{
+			stop();
+		}
+	}
+
+	@Subscribe
+	public void onGameTick(GameTick event)
+	{
+		if (recording == null)
+		{
+			return;
+		}
+
+		try
+		{
+			out.writeByte(SessionLog.GAME_TICK);
+		}
+		catch (IOException e)
+		{
+			fail(e);
+			return;
+		}
+		flushIfFull();
+	}
+
+	@Subscribe
+	public void onStatChanged(StatChanged event)
+	{
+		if (recording == null)
+		{
+			return;
+		}
+
+		try
+		{
+			out.writeByte(SessionLog.STAT_CHANGED);
+			SessionLog.writeVarInt(out, event.getSkill().ordinal());
+			SessionLog.writeVarInt(out, event.getXp());
+			SessionLog.writeVarInt(out, event.getLevel());
+			SessionLog.writeVarInt(out, event.getBoostedLevel());
+		}
+		catch (IOException e)
+		{
+			fail(e);
+			return;
+		}
+		flushIfFull();
+	}
+
+	@Subscribe
+	public void onVarbitChanged(VarbitChanged event)
+	{
+		if (recording == null)
+		{
+			return;
+		}
+
+		try
+		{
+			out.writeByte(SessionLog.VARBIT_CHANGED);
+			SessionLog.writeSignedVarInt(out, event.getVarpId());
+			SessionLog.writeSignedVarInt(out, event.getVarbitId());
+			SessionLog.writeSignedVarInt(out, event.getValue());
+		}
+		catch (IOException e)
+		{
+			fail(e);
+			return;
+		}
+		flushIfFull();
+	}
+
+	@Subscribe
+	public void onChatMessage(ChatMessage event)
+	{
+		if (recording == null)
+		{
+			return;
+		}
+
+		try
+		{
+			out.writeByte(SessionLog.CHAT_MESSAGE);
+			SessionLog.writeVarInt(out, event.getType().getType());
+			out.writeUTF(nullToEmpty(event.getName()));
+			out.writeUTF(nullToEmpty(event.getSender()));
+			out.writeUTF(nullToEmpty(event.getMessage()));
+		}
+		catch (IOException e)
+		{
+			fail(e);
+			return;
+		}
+		flushIfFull();
+	}
+
+	@Subscribe
+	public void onScriptPreFired(ScriptPreFired event)
+	{
+		if (recording == null)
+		{
+			return;
+		}
+
+		ScriptEvent scriptEvent = event.getScriptEvent();
+		Object[] args = scriptEvent != null ? scriptEvent.getArguments() : null;
+
+		try
+		{
+			out.writeByte(SessionLog.SCRIPT_PRE_FIRED);
+			SessionLog.writeVarInt(out, event.getScriptId());
+			SessionLog.writeVarInt(out, args != null ? args.length : 0);
+			if (args != null)
+			{
+				for (Object arg : args)
+				{
+					if (arg instanceof Integer)
+					{
+						out.writeByte(SessionLog.ARG_INT);
+						SessionLog.writeSignedVarInt(out, (Integer) arg);
+					}
+					else if (arg instanceof String)
+					{
+						out.writeByte(SessionLog.ARG_STRING);
+						out.writeUTF((String) arg);
+					}
+					else
+					{
+						// Widgets and listeners can't be meaningfully replayed
+						out.writeByte(SessionLog.ARG_OTHER);
+					}
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			fail(e);
+			return;
+		}
+		flushIfFull();
+	}
+
+	@Subscribe
+	public void onLootReceived(LootReceived event)
+	{
+		if (recording == null)
+		{
+			return;
+		}
+
+		Collection<ItemStack> items = event.getItems();
+		try
+		{
+			out.writeByte(SessionLog.LOOT_RECEIVED);
+			out.writeUTF(nullToEmpty(event.getName()));
+			SessionLog.writeVarInt(out, event.getCombatLevel());
+			out.writeUTF(event.getType().name());
+			SessionLog.writeVarInt(out, event.getAmount());
+			SessionLog.writeVarInt(out, items.size());
+			for (ItemStack item : items)
+			{
+				SessionLog.writeVarInt(out, item.getId());
+				SessionLog.writeVarInt(out, item.getQuantity());
+			}
+		}
+		catch (IOException e)
+		{
+			fail(e);
+			return;
+		}
+		flushIfFull();
+	}
+
+	private void start()
+	{
+		String name = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + SessionLog.FILE_EXTENSION;
+		recording = new File(recordingDirectory, name);
+		buffer.reset();
+
+		try
+		{
+			long now = System.currentTimeMillis();
+			out.writeInt(SessionLog.MAGIC);
+			out.writeShort(SessionLog.VERSION);
+			out.writeLong(now);
+
+			// Skill ordinals shift when skills are added, so the names are stored once up front
+			Skill[] skills = Skill.values();
+			SessionLog.writeVarInt(out, skills.length);
+			for (Skill skill : skills)
+			{
+				out.writeUTF(skill.name());
+			}
+		}
+		catch (IOException e)
+		{
+			fail(e);
+			return;
+		}
+
+		log.debug("Recording session to {}", recording);
+	}
+
+	private void stop()
+	{
+		if (recording == null)
+		{
+			return;
+		}
+
+		flush();
+		log.debug("Finished recording session to {}", recording);
+		recording = null;
+	}
+
+	private void flushIfFull()
+	{
+		if (buffer.size() >= FLUSH_BYTES)
+		{
+			flush();
+		}
+	}
+
+	private void flush()
+	{
+		if (buffer.size() == 0)
+		{
+			return;
+		}
+
+		final File file = recording;
+		final byte[] bytes = buffer.toByteArray();
+		buffer.reset();
+
+		executor.execute(() -> {
+			try
+			{
+				Files.createDirectories(recordingDirectory.toPath());
+				try (OutputStream fileOut = Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+					GZIPOutputStream gzip = new GZIPOutputStream(fileOut))
+				{
+					gzip.write(bytes);
+				}
+			}
+			catch (IOException e)
+			{
+				log.warn("Failed to write session recording {}", file, e);
+			}
+		});
+	}
+
+	private void fail(IOException e)
+	{
+		// Only a string too long for writeUTF gets here; a partly written record would corrupt the rest of the log
+		log.warn("Stopping session recording", e);
+		buffer.reset();
+		recording = null;
+	}
+
+	private static String nullToEmpty(String s)
+	{
+		return s != null ? s : "";
+	}
+}
@@ -0,0 +1,138 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.capture.CaptureSink;
+import gg.runestatus.sync.capture.PlayerCapture;
+import gg.runestatus.sync.data.PlayerSyncData;
+import gg.runestatus.sync.export.ColumnarSnapshotWriter;
+import gg.runestatus.sync.jfr.JfrSupport;
+import gg.runestatus.sync.jfr.LocalStoreEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Optional local sink that appends every capture to a columnar export file,
+ * one file per account per month, so synced history can be inspected offline.
+ * Captures are buffered, then encoded and written a block at a time on the executor; see {@link ColumnarSnapshotWriter}.
+ * Every section is exported, whatever is enabled for syncing.
+ */
+@Slf4j
+@Singleton
+public class SnapshotExporter implements CaptureSink
+{
+	static final String FILE_EXTENSION = ".rscol";
+
+	private static final String STORE_NAME = "snapshot export";
+
+	// About five hours of snapshots at the default interval; a partial block is flushed on logout
+	private static final int ROWS_PER_BLOCK = 64;
+
+	private final ScheduledExecutorService executor;
+	private final RuneStatusConfig config;
+	private final SyncDataEncoder encoder;
+	private final File exportDirectory;
+
+	private final List<PlayerCapture> pending = new ArrayList<>(ROWS_PER_BLOCK);
+	private long pendingAccountHash = -1;
+
+	@Inject
+	public SnapshotExporter(ScheduledExecutorService executor, RuneStatusConfig config, SyncDataEncoder encoder,
+		@Named(RuneStatusPlugin.DATA_DIRECTORY) File dataDirectory)
+	{
+		this.executor = executor;
+		this.config = config;
+		this.encoder = encoder;
+		this.exportDirectory = new File(dataDirectory, "exports");
+	}
+
+	@Override
+	public synchronized void accept(PlayerCapture capture)
+	{
+		long accountHash = capture.getAccountHash();
+		if (!config.exportSnapshots() || accountHash == -1)
+		{
+			return;
+		}
+
+		if (accountHash != pendingAccountHash)
+		{
+			flush();
+			pendingAccountHash = accountHash;
+		}
+
+		pending.add(capture);
+		if (pending.size() >= ROWS_PER_BLOCK)
+		{
+			flush();
+		}
+	}
+
+	/**
+	 * Writes whatever is buffered as a (possibly short) block.
+	 */
+	public synchronized void flush()
+	{
+		if (pending.isEmpty())
+		{
+			return;
+		}
+
+		final long accountHash = pendingAccountHash;
+		final List<PlayerCapture> captures = new ArrayList<>(pending);
+		pending.clear();
+
+		executor.execute(() -> {
+			List<PlayerSyncData> rows = new ArrayList<>(captures.size());
+			for (PlayerCapture capture : captures)
+			{
+				rows.add(encoder.encodeState(capture));
+			}
+
+			try
+			{
+				write(accountHash, rows);
+			}
+			catch (IOException e)
+			{
+				log.warn("Failed to export {} snapshots", rows.size(), e);
+			}
+		});
+	}
+
+	private void write(long accountHash, List<PlayerSyncData> rows) throws IOException
+	{
+		LocalStoreEvent storeEvent = JfrSupport.AVAILABLE ? LocalStoreEvent.start() : null;
+
+		File directory = new File(exportDirectory, Long.toString(accountHash));
+		Files.createDirectories(directory.toPath());
+
+		// Blocks go in the file for the month of their first snapshot, so a block never spans two files
+		String month = new SimpleDateFormat("yyyy-MM").format(new Date(rows.get(0).getLastSyncedAt()));
+		File file = new File(directory, month + FILE_EXTENSION);
+
+		long bytes;
+		try (FileChannel channel = ColumnarSnapshotWriter.openForAppend(file.toPath()))
+		{
+			long before = channel.size();
+			ColumnarSnapshotWriter.append(channel, rows);
+			bytes = channel.size() - before;
+		}
+
+		log.debug("Exported {} snapshots ({} bytes) to {}", rows.size(), bytes, file);
+		if (storeEvent != null)
+		{
+			storeEvent.finish(STORE_NAME, "write", bytes);
+		}
+	}
+}
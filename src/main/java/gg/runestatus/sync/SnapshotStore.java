@@ -0,0 +1,208 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.data.PlayerSyncData;
+import gg.runestatus.sync.jfr.JfrSupport;
+import gg.runestatus.sync.jfr.LocalStoreEvent;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Remembers the last snapshot the server acknowledged for each account, across client restarts.
+ * A new snapshot whose account state matches it doesn't need to be sent at all, which is usually
+ * the case for the first sync after a restart and for periodic syncs while idle.
+ */
+@Slf4j
+@Singleton
+public class SnapshotStore
+{
+	private static final String STORE_NAME = "acknowledged snapshot";
+
+	private final Client client;
+	private final EventBus eventBus;
+	private final ScheduledExecutorService executor;
+	private final ClientThreadWatchdog watchdog;
+	private final File dataDirectory;
+
+	// Written from the HTTP callback thread, read on the client thread
+	private volatile PlayerSyncData acknowledged;
+	private volatile long loadedAccountHash = -1;
+
+	@Inject
+	public SnapshotStore(Client client, EventBus eventBus, ScheduledExecutorService executor, ClientThreadWatchdog watchdog,
+		@Named(RuneStatusPlugin.DATA_DIRECTORY) File dataDirectory)
+	{
+		this.client = client;
+		this.eventBus = eventBus;
+		this.executor = executor;
+		this.watchdog = watchdog;
+		this.dataDirectory = dataDirectory;
+	}
+
+	public void startUp()
+	{
+		eventBus.register(this);
+
+		// Enabled while already logged in, so there won't be a login event to load on
+		if (client.getGameState() == GameState.LOGGED_IN)
+		{
+			load(client.getAccountHash());
+		}
+	}
+
+	public void shutDown()
+	{
+		eventBus.unregister(this);
+		acknowledged = null;
+		loadedAccountHash = -1;
+	}
+
+	@Subscribe
+	public void onGameStateChanged(GameStateChanged event)
+	{
+		if (event.getGameState() != GameState.LOGGED_IN)
+		{
+			return;
+		}
+
+		watchdog.enter("SnapshotStore.onGameStateChanged");
+		try
+		{
+			load(client.getAccountHash());
+		}
+		finally
+		{
+			watchdog.exit();
+		}
+	}
+
+	/**
+	 * Whether sending this snapshot would tell the server nothing new. World, play time and the
+	 * capture time don't count as changes on their own; they go out with the next real one.
+	 */
+	public boolean isUnchanged(PlayerSyncData data)
+	{
+		PlayerSyncData last = acknowledged;
+		if (last == null)
+		{
+			return false;
+		}
+
+		if ((data.getRecentDrops() != null && !data.getRecentDrops().isEmpty()) || data.getBossKillCounts() != null)
+		{
+			return false;
+		}
+
+		return Objects.equals(data.getUsername(), last.getUsername())
+			&& data.getAccountType() == last.getAccountType()
+			&& data.getCombatLevel() == last.getCombatLevel()
+			&& data.getTotalLevel() == last.getTotalLevel()
+			&& data.getTotalXp() == last.getTotalXp()
+			&& data.getQuestsCompleted() == last.getQuestsCompleted()
+			&& data.getQuestsTotal() == last.getQuestsTotal()
+			&& data.getDiaryTasksCompleted() == last.getDiaryTasksCompleted()
+			&& data.getDiaryTasksTotal() == last.getDiaryTasksTotal()
+			&& data.getCombatTasksCompleted() == last.getCombatTasksCompleted()
+			&& data.getCombatTasksTotal() == last.getCombatTasksTotal()
+			&& data.getCollectionLogObtained() == last.getCollectionLogObtained()
+			&& Objects.equals(data.getSkills(), last.getSkills())
+			&& Objects.equals(data.getQuests(), last.getQuests())
+			&& Objects.equals(data.getAchievementDiaries(), last.getAchievementDiaries())
+			&& Objects.equals(data.getCombatAchievements(), last.getCombatAchievements());
+	}
+
+	/**
+	 * Called once the server has accepted the given snapshot, captured while logged in to {@code accountHash}.
+	 */
+	public void acknowledge(long accountHash, PlayerSyncData data)
+	{
+		if (accountHash == -1)
+		{
+			return;
+		}
+
+		// The response can arrive after switching accounts; it still belongs in the old account's file
+		if (accountHash == loadedAccountHash)
+		{
+			acknowledged = data;
+		}
+
+		executor.execute(() -> {
+			try
+			{
+				write(getFile(accountHash), SnapshotCodec.encode(data));
+			}
+			catch (IOException e)
+			{
+				log.warn("Failed to save acknowledged snapshot", e);
+			}
+		});
+	}
+
+	private void load(long accountHash)
+	{
+		if (accountHash == -1 || accountHash == loadedAccountHash)
+		{
+			return;
+		}
+
+		acknowledged = null;
+		loadedAccountHash = accountHash;
+
+		File file = getFile(accountHash);
+		if (!file.exists())
+		{
+			return;
+		}
+
+		LocalStoreEvent storeEvent = JfrSupport.AVAILABLE ? LocalStoreEvent.start() : null;
+		long start = System.nanoTime();
+		try
+		{
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			acknowledged = SnapshotCodec.decode(bytes);
+			log.debug("Loaded acknowledged snapshot ({} bytes) in {}us", bytes.length, (System.nanoTime() - start) / 1000);
+			if (storeEvent != null)
+			{
+				storeEvent.finish(STORE_NAME, "read", bytes.length);
+			}
+		}
+		catch (IOException e)
+		{
+			// Worst case the next sync is a full one, which is what would happen without the file
+			log.warn("Discarding unreadable acknowledged snapshot {}", file, e);
+		}
+	}
+
+	private void write(File file, byte[] bytes) throws IOException
+	{
+		LocalStoreEvent storeEvent = JfrSupport.AVAILABLE ? LocalStoreEvent.start() : null;
+		Files.createDirectories(dataDirectory.toPath());
+		Path tmp = new File(file.getPath() + ".tmp").toPath();
+		Files.write(tmp, bytes);
+		Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		if (storeEvent != null)
+		{
+			storeEvent.finish(STORE_NAME, "write", bytes.length);
+		}
+	}
+
+	private File getFile(long accountHash)
+	{
+		return new File(dataDirectory, accountHash + ".snapshot");
+	}
+}
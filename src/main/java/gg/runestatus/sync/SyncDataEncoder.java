@@ -0,0 +1,173 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.capture.PlayerCapture;
+import gg.runestatus.sync.data.CombatAchievementData;
+import gg.runestatus.sync.data.DiaryData;
+import gg.runestatus.sync.data.PlayerSyncData;
+import gg.runestatus.sync.data.SkillData;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns a {@link PlayerCapture} into the {@link PlayerSyncData} the RuneStatus API and the local export expect.
+ * Runs off the capture alone, so it never touches the client.
+ */
+@Slf4j
+@Singleton
+public class SyncDataEncoder
+{
+	// Combat Achievement total tasks per tier (as of 2024)
+	private static final int CA_EASY_TOTAL = 33;
+	private static final int CA_MEDIUM_TOTAL = 41;
+	private static final int CA_HARD_TOTAL = 129;
+	private static final int CA_ELITE_TOTAL = 182;
+	private static final int CA_MASTER_TOTAL = 150;
+	private static final int CA_GRANDMASTER_TOTAL = 90;
+	private static final int CA_TOTAL = CA_EASY_TOTAL + CA_MEDIUM_TOTAL + CA_HARD_TOTAL + CA_ELITE_TOTAL + CA_MASTER_TOTAL + CA_GRANDMASTER_TOTAL;
+
+	// QuestState names, indexed by the capture's quest state
+	private static final String[] QUEST_STATES = {"NOT_STARTED", "IN_PROGRESS", "FINISHED"};
+
+	private final RuneStatusConfig config;
+	private final CollectionLogManager collectionLogManager;
+	private final BossKillCountTracker bossKillCountTracker;
+
+	@Inject
+	public SyncDataEncoder(RuneStatusConfig config, CollectionLogManager collectionLogManager,
+		BossKillCountTracker bossKillCountTracker)
+	{
+		this.config = config;
+		this.collectionLogManager = collectionLogManager;
+		this.bossKillCountTracker = bossKillCountTracker;
+	}
+
+	/**
+	 * The snapshot to sync: the sections enabled in the config, plus the drops and kill counts
+	 * seen since the last acknowledged sync.
+	 */
+	public PlayerSyncData encode(PlayerCapture capture)
+	{
+		PlayerSyncData.PlayerSyncDataBuilder builder = encodeState(capture,
+			config.syncSkills(), config.syncQuests(), config.syncDiaries(), config.syncCombatAchievements());
+
+		// Include recent drops detected from chat messages
+		if (config.syncCollectionLog() && collectionLogManager.hasRecentDrops())
+		{
+			builder.recentDrops(collectionLogManager.getRecentDropNames());
+			log.debug("Including {} recent drops from chat", collectionLogManager.getRecentDropNames().size());
+		}
+
+		// Only kill counts changed since the last acknowledged sync are sent
+		if (config.syncBossKillCounts())
+		{
+			builder.bossKillCounts(bossKillCountTracker.getPendingChanges());
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Every section of the capture regardless of the sync settings, without the per-sync deltas.
+	 * Safe to call from any thread.
+	 */
+	public PlayerSyncData encodeState(PlayerCapture capture)
+	{
+		return encodeState(capture, true, true, true, true).build();
+	}
+
+	private static PlayerSyncData.PlayerSyncDataBuilder encodeState(PlayerCapture capture,
+		boolean skills, boolean quests, boolean diaries, boolean combatAchievements)
+	{
+		PlayerSyncData.PlayerSyncDataBuilder builder = PlayerSyncData.builder()
+			.username(capture.getUsername())
+			.accountType(capture.getAccountType())
+			.world(capture.getWorld())
+			.lastSyncedAt(capture.getCapturedAt())
+			// Summary stats - always included
+			.combatLevel(capture.getCombatLevel())
+			.totalLevel(capture.getTotalLevel())
+			.totalXp(capture.getTotalXp())
+			.collectionLogObtained(capture.getCollectionLogObtained())
+			.timePlayedMinutes(capture.getTimePlayedMinutes())
+			.questsCompleted(capture.getQuestsCompleted())
+			.questsTotal(capture.getQuestCount())
+			.diaryTasksCompleted(capture.getDiaryTasksCompleted())
+			.diaryTasksTotal(capture.getDiaryTasksTotal())
+			.combatTasksCompleted(capture.getCombatTasksCompleted())
+			.combatTasksTotal(CA_TOTAL);
+
+		if (skills)
+		{
+			builder.skills(encodeSkills(capture));
+		}
+		if (quests)
+		{
+			builder.quests(encodeQuests(capture));
+		}
+		if (diaries)
+		{
+			builder.achievementDiaries(encodeDiaries(capture));
+		}
+		if (combatAchievements)
+		{
+			builder.combatAchievements(CombatAchievementData.builder()
+				.easy(capture.getCombatAchievementsCompleted(1))
+				.medium(capture.getCombatAchievementsCompleted(2))
+				.hard(capture.getCombatAchievementsCompleted(3))
+				.elite(capture.getCombatAchievementsCompleted(4))
+				.master(capture.getCombatAchievementsCompleted(5))
+				.grandmaster(capture.getCombatAchievementsCompleted(6))
+				.build());
+		}
+		return builder;
+	}
+
+	private static Map<String, SkillData> encodeSkills(PlayerCapture capture)
+	{
+		Map<String, SkillData> skills = new HashMap<>();
+		for (int i = 0; i < capture.getSkillCount(); i++)
+		{
+			skills.put(capture.getSkillName(i), SkillData.builder()
+				.level(capture.getSkillLevel(i))
+				.xp(capture.getSkillXp(i))
+				.build());
+		}
+		return skills;
+	}
+
+	private static Map<String, String> encodeQuests(PlayerCapture capture)
+	{
+		Map<String, String> quests = new HashMap<>();
+		for (int i = 0; i < capture.getQuestCount(); i++)
+		{
+			quests.put(capture.getQuestName(i), QUEST_STATES[capture.getQuestState(i)]);
+		}
+		return quests;
+	}
+
+	private static Map<String, DiaryData> encodeDiaries(PlayerCapture capture)
+	{
+		Map<String, DiaryData> diaries = new HashMap<>();
+		for (int diary = 0; diary < capture.getDiaryCount(); diary++)
+		{
+			// A tier is complete when completed count >= total count
+			diaries.put(capture.getDiaryName(diary), DiaryData.builder()
+				.easy(isTierComplete(capture, diary, 0))
+				.medium(isTierComplete(capture, diary, 1))
+				.hard(isTierComplete(capture, diary, 2))
+				.elite(isTierComplete(capture, diary, 3))
+				.build());
+		}
+		return diaries;
+	}
+
+	private static boolean isTierComplete(PlayerCapture capture, int diary, int tier)
+	{
+		int total = capture.getDiaryTierTotal(diary, tier);
+		return total > 0 && capture.getDiaryTierCompleted(diary, tier) >= total;
+	}
+}
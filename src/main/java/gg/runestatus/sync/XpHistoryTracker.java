@@ -0,0 +1,223 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.series.XpSeriesStore;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.Skill;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.StatChanged;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.events.ConfigChanged;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Keeps a local per-account history of XP per skill, sampled at most once a minute, for XP/hr graphs
+ * and session history that don't need the server. Samples are only written when some XP changed.
+ */
+@Slf4j
+@Singleton
+public class XpHistoryTracker
+{
+	private static final long SAMPLE_INTERVAL_MS = 60_000;
+
+	// Series are indexed by position in this array. When a skill is added, the store starts a new segment
+	private static final Skill[] SKILLS = Arrays.stream(Skill.values())
+		.filter(skill -> skill != Skill.OVERALL)
+		.toArray(Skill[]::new);
+
+	// Skill ordinal to series index, -1 for skills that aren't tracked
+	private static final int[] SERIES_INDEX = new int[Skill.values().length];
+
+	static
+	{
+		Arrays.fill(SERIES_INDEX, -1);
+		for (int i = 0; i < SKILLS.length; i++)
+		{
+			SERIES_INDEX[SKILLS[i].ordinal()] = i;
+		}
+	}
+
+	private final Client client;
+	private final EventBus eventBus;
+	private final RuneStatusConfig config;
+	private final ClientThreadWatchdog watchdog;
+	private final File historyDirectory;
+
+	private final int[] xp = new int[SKILLS.length];
+	// Set once xp has been filled in from the client, after which stat events keep it current
+	private boolean primed;
+	private boolean changed;
+	private long lastSampleTime;
+
+	// Closed from whichever thread changes the config
+	private volatile XpSeriesStore store;
+	private long storeAccountHash = -1;
+
+	@Inject
+	public XpHistoryTracker(Client client, EventBus eventBus, RuneStatusConfig config, ClientThreadWatchdog watchdog,
+		@Named(RuneStatusPlugin.DATA_DIRECTORY) File dataDirectory)
+	{
+		this.client = client;
+		this.eventBus = eventBus;
+		this.config = config;
+		this.watchdog = watchdog;
+		this.historyDirectory = new File(dataDirectory, "xp");
+	}
+
+	public void startUp()
+	{
+		eventBus.register(this);
+
+		// Enabled while already logged in, so there won't be a login event to open on
+		if (client.getGameState() == GameState.LOGGED_IN)
+		{
+			openForCurrentAccount();
+		}
+	}
+
+	public void shutDown()
+	{
+		eventBus.unregister(this);
+		closeStore();
+	}
+
+	@Subscribe
+	public void onGameStateChanged(GameStateChanged event)
+	{
+		watchdog.enter("XpHistoryTracker.onGameStateChanged");
+		try
+		{
+			if (event.getGameState() == GameState.LOGGED_IN)
+			{
+				openForCurrentAccount();
+			}
+			else if (event.getGameState() == GameState.LOGIN_SCREEN)
+			{
+				// Catch the last partial minute from the values stat events kept current
+				sample(System.currentTimeMillis());
+				closeStore();
+			}
+		}
+		finally
+		{
+			watchdog.exit();
+		}
+	}
+
+	@Subscribe
+	public void onConfigChanged(ConfigChanged event)
+	{
+		// Turning it back on takes effect at the next login
+		if ("runestatus".equals(event.getGroup()) && "keepXpHistory".equals(event.getKey()) && !config.keepXpHistory())
+		{
+			closeStore();
+		}
+	}
+
+	@Subscribe
+	public void onStatChanged(StatChanged event)
+	{
+		changed = true;
+
+		int index = SERIES_INDEX[event.getSkill().ordinal()];
+		if (primed && index != -1)
+		{
+			xp[index] = event.getXp();
+		}
+	}
+
+	@Subscribe
+	public void onGameTick(GameTick event)
+	{
+		if (!changed || store == null)
+		{
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		if (now - lastSampleTime < SAMPLE_INTERVAL_MS)
+		{
+			return;
+		}
+
+		// Read everything from the client so the first sample doesn't depend on the login stat burst being complete
+		for (int i = 0; i < SKILLS.length; i++)
+		{
+			xp[i] = client.getSkillExperience(SKILLS[i]);
+		}
+		primed = true;
+		sample(now);
+	}
+
+	private void sample(long now)
+	{
+		if (!primed || !changed || store == null)
+		{
+			return;
+		}
+
+		try
+		{
+			store.append(now, xp);
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to record XP history, stopping for this session", e);
+			closeStore();
+			return;
+		}
+
+		changed = false;
+		lastSampleTime = now;
+	}
+
+	private void openForCurrentAccount()
+	{
+		long accountHash = client.getAccountHash();
+		if (accountHash != -1 && accountHash != storeAccountHash && config.keepXpHistory())
+		{
+			openStore(accountHash);
+		}
+	}
+
+	private void openStore(long accountHash)
+	{
+		closeStore();
+
+		XpSeriesStore store = new XpSeriesStore(new File(historyDirectory, Long.toString(accountHash)), xp.length);
+		try
+		{
+			store.open();
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to open XP history", e);
+			return;
+		}
+
+		this.store = store;
+		storeAccountHash = accountHash;
+		lastSampleTime = 0;
+	}
+
+	private void closeStore()
+	{
+		XpSeriesStore store = this.store;
+		if (store != null)
+		{
+			store.close();
+			this.store = null;
+		}
+		storeAccountHash = -1;
+		primed = false;
+	}
+}
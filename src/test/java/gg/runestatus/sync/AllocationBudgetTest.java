@@ -0,0 +1,143 @@
+package gg.runestatus.sync;
+
+import com.google.inject.Injector;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.GameState;
+import net.runelite.api.Skill;
+import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.StatChanged;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails the build when a hot path allocates more per operation than its checked-in budget
+ * in allocation-budgets.properties.
+ */
+public class AllocationBudgetTest
+{
+	private static final int WARMUP_ITERATIONS = 20_000;
+	private static final int MEASURED_ITERATIONS = 10_000;
+	private static final int SYNC_WARMUP_ITERATIONS = 500;
+	private static final int SYNC_MEASURED_ITERATIONS = 200;
+
+	private static com.sun.management.ThreadMXBean threadMXBean;
+	private static Properties budgets;
+
+	private RuneStatusPlugin plugin;
+	private CollectionLogManager collectionLogManager;
+
+	@BeforeClass
+	public static void loadBudgets() throws IOException
+	{
+		threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue("Thread allocation accounting is not supported by this JVM", threadMXBean.isThreadAllocatedMemorySupported());
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+		budgets = new Properties();
+		try (InputStream in = AllocationBudgetTest.class.getResourceAsStream("/allocation-budgets.properties"))
+		{
+			budgets.load(in);
+		}
+	}
+
+	@Before
+	public void setUp()
+	{
+		Injector injector = TestInjector.create(FakeClient.create());
+		plugin = injector.getInstance(RuneStatusPlugin.class);
+		collectionLogManager = injector.getInstance(CollectionLogManager.class);
+
+		GameStateChanged loggedIn = new GameStateChanged();
+		loggedIn.setGameState(GameState.LOGGED_IN);
+		plugin.onGameStateChanged(loggedIn);
+	}
+
+	@Test
+	public void statChanged()
+	{
+		StatChanged[] events = new StatChanged[64];
+		for (int i = 0; i < events.length; i++)
+		{
+			Skill skill = Skill.ATTACK;
+			events[i] = new StatChanged(skill, FakeClient.experienceOf(skill) + i, FakeClient.levelOf(skill), FakeClient.levelOf(skill));
+		}
+
+		assertWithinBudget("statChanged", WARMUP_ITERATIONS, MEASURED_ITERATIONS,
+			i -> plugin.onStatChanged(events[i & 63]));
+	}
+
+	@Test
+	public void chatMessageUnrelated()
+	{
+		ChatMessage event = chatMessage("You eat the shark.");
+
+		assertWithinBudget("chatMessage.unrelated", WARMUP_ITERATIONS, MEASURED_ITERATIONS,
+			i -> collectionLogManager.onChatMessage(event));
+	}
+
+	@Test
+	public void chatMessageCollectionLog()
+	{
+		ChatMessage event = chatMessage("New item added to your collection log: <col=ef1020>Pet snakeling</col>");
+
+		assertWithinBudget("chatMessage.collectionLog", WARMUP_ITERATIONS, MEASURED_ITERATIONS,
+			i -> {
+				collectionLogManager.onChatMessage(event);
+				collectionLogManager.clearRecentDrops();
+			});
+	}
+
+	@Test
+	public void syncBuild()
+	{
+		assertWithinBudget("syncBuild", SYNC_WARMUP_ITERATIONS, SYNC_MEASURED_ITERATIONS,
+			i -> plugin.buildSyncData());
+	}
+
+	private static ChatMessage chatMessage(String message)
+	{
+		ChatMessage event = new ChatMessage();
+		event.setType(ChatMessageType.GAMEMESSAGE);
+		event.setName("");
+		event.setMessage(message);
+		return event;
+	}
+
+	private static void assertWithinBudget(String name, int warmupIterations, int measuredIterations, Operation operation)
+	{
+		long budget = Long.parseLong(budgets.getProperty(name));
+
+		// Let the JIT settle first so escape analysis is reflected in the measurement
+		for (int i = 0; i < warmupIterations; i++)
+		{
+			operation.run(i);
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long before = threadMXBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < measuredIterations; i++)
+		{
+			operation.run(i);
+		}
+		long bytesPerOp = (threadMXBean.getThreadAllocatedBytes(threadId) - before) / measuredIterations;
+
+		assertTrue(name + " allocated " + bytesPerOp + " bytes/op, over its budget of " + budget,
+			bytesPerOp <= budget);
+	}
+
+	@FunctionalInterface
+	private interface Operation
+	{
+		void run(int iteration);
+	}
+}
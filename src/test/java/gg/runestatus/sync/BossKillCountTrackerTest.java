@@ -0,0 +1,109 @@
+package gg.runestatus.sync;
+
+import com.google.inject.Injector;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.events.ChatMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BossKillCountTrackerTest
+{
+	private BossKillCountTracker tracker;
+
+	@Before
+	public void setUp()
+	{
+		Injector injector = TestInjector.create(FakeClient.create());
+		tracker = injector.getInstance(BossKillCountTracker.class);
+		// The fake client is already logged in, so this loads the account's (empty) table
+		tracker.startUp();
+	}
+
+	@After
+	public void tearDown()
+	{
+		tracker.shutDown();
+	}
+
+	@Test
+	public void killCount()
+	{
+		assertRecorded("Your Zulrah kill count is: 12.", "Zulrah", 12);
+	}
+
+	@Test
+	public void completedRaidCount()
+	{
+		assertRecorded("Your completed Theatre of Blood count is: 5.", "Theatre of Blood", 5);
+		assertRecorded("Your completed Chambers of Xeric: Challenge Mode count is: 3.",
+			"Chambers of Xeric: Challenge Mode", 3);
+	}
+
+	@Test
+	public void completionCount()
+	{
+		assertRecorded("Your Tombs of Amascut: Expert Mode completion count is: 7.", "Tombs of Amascut: Expert Mode", 7);
+	}
+
+	@Test
+	public void chestCount()
+	{
+		// Recorded under the boss's own name, not the one in the message
+		assertRecorded("Your Barrows chest count is: 250.", "Barrows Chests", 250);
+	}
+
+	@Test
+	public void harvestCount()
+	{
+		assertRecorded("Your Hespori harvest count is: 40.", "Hespori", 40);
+	}
+
+	@Test
+	public void commaGroupedCount()
+	{
+		assertRecorded("Your Vorkath kill count is: <col=ff0000>1,234</col>.", "Vorkath", 1234);
+		assertRecorded("Your Wintertodt kill count is: 12,345,678.", "Wintertodt", 12_345_678);
+	}
+
+	@Test
+	public void ignoresUnknownBosses()
+	{
+		tracker.onChatMessage(chatMessage("Your Goblin kill count is: 3."));
+		assertNull(tracker.getPendingChanges());
+	}
+
+	@Test
+	public void ignoresOtherMessageTypes()
+	{
+		ChatMessage event = chatMessage("Your Zulrah kill count is: 12.");
+		event.setType(ChatMessageType.PUBLICCHAT);
+		tracker.onChatMessage(event);
+		assertNull(tracker.getPendingChanges());
+	}
+
+	private void assertRecorded(String message, String boss, int count)
+	{
+		tracker.onChatMessage(chatMessage(message));
+		Map<String, Integer> pending = tracker.getPendingChanges();
+		assertEquals(Collections.singletonMap(boss, count), pending);
+
+		// Acknowledged counts drop out, so each case only sees its own change
+		tracker.acknowledge(pending);
+	}
+
+	private static ChatMessage chatMessage(String message)
+	{
+		ChatMessage event = new ChatMessage();
+		event.setType(ChatMessageType.GAMEMESSAGE);
+		event.setName("");
+		event.setMessage(message);
+		return event;
+	}
+}
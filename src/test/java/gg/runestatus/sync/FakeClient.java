@@ -0,0 +1,170 @@
+package gg.runestatus.sync;
+
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.Player;
+import net.runelite.api.ScriptID;
+import net.runelite.api.Skill;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Supplier;
+
+/**
+ * A deterministic stand-in for {@link Client} covering the calls made by the sync path.
+ * Every value is derived from its inputs, so repeated captures produce identical snapshots.
+ * Anything not handled returns the type's default value.
+ */
+public final class FakeClient
+{
+	static final String USERNAME = "Fake Player";
+	static final long ACCOUNT_HASH = 1234567890L;
+	static final int WORLD = 302;
+
+	private static final int DIARY_COMPLETION_SCRIPT = 2200;
+	private static final int CA_COMPLETED_COUNT_SCRIPT = 4784;
+
+	private FakeClient()
+	{
+	}
+
+	public static Client create()
+	{
+		return create(GameState.LOGGED_IN);
+	}
+
+	public static Client create(GameState gameState)
+	{
+		return create(() -> gameState);
+	}
+
+	/**
+	 * Creates a client whose game state is read from the supplier on every call,
+	 * for tests that simulate logging in and out.
+	 */
+	public static Client create(Supplier<GameState> gameState)
+	{
+		Player player = (Player) Proxy.newProxyInstance(FakeClient.class.getClassLoader(), new Class<?>[]{Player.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "getName":
+						return USERNAME;
+					case "getCombatLevel":
+						return 110;
+					default:
+						return defaultValue(method);
+				}
+			});
+
+		// runScript stores its result here for the following getIntStack call, as the real client does
+		int[] intStack = new int[16];
+
+		return (Client) Proxy.newProxyInstance(FakeClient.class.getClassLoader(), new Class<?>[]{Client.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "getLocalPlayer":
+						return player;
+					case "getGameState":
+						return gameState.get();
+					case "isClientThread":
+						return true;
+					case "getAccountHash":
+						return ACCOUNT_HASH;
+					case "getWorld":
+						return WORLD;
+					case "getRealSkillLevel":
+					case "getBoostedSkillLevel":
+						return levelOf((Skill) args[0]);
+					case "getSkillExperience":
+						return experienceOf((Skill) args[0]);
+					case "getVarbitValue":
+					case "getVarpValue":
+					case "getVarcIntValue":
+						return ((int) args[0] * 31) & 1023;
+					case "runScript":
+						runScript((Object[]) args[0], intStack);
+						return null;
+					case "getIntStack":
+						return intStack;
+					default:
+						return defaultValue(method);
+				}
+			});
+	}
+
+	static int levelOf(Skill skill)
+	{
+		return 40 + (skill.ordinal() * 7) % 60;
+	}
+
+	static int experienceOf(Skill skill)
+	{
+		return 100_000 + skill.ordinal() * 37_511;
+	}
+
+	private static void runScript(Object[] args, int[] intStack)
+	{
+		int scriptId = (int) args[0];
+		int arg = args.length > 1 ? (int) args[1] : 0;
+
+		if (scriptId == ScriptID.QUEST_STATUS_GET)
+		{
+			// 0 = not started, 1 = in progress, 2 = finished, spread across quest ids
+			intStack[0] = arg % 3;
+		}
+		else if (scriptId == DIARY_COMPLETION_SCRIPT)
+		{
+			for (int tier = 0; tier < 4; tier++)
+			{
+				int total = 10 + tier;
+				intStack[tier * 3] = (arg + tier) % 2 == 0 ? total : tier;
+				intStack[tier * 3 + 1] = total;
+				intStack[tier * 3 + 2] = 0;
+			}
+		}
+		else if (scriptId == CA_COMPLETED_COUNT_SCRIPT)
+		{
+			intStack[0] = arg * 5;
+		}
+	}
+
+	private static Object defaultValue(Method method)
+	{
+		Class<?> type = method.getReturnType();
+		if (type == boolean.class)
+		{
+			return false;
+		}
+		if (type == int.class)
+		{
+			return 0;
+		}
+		if (type == long.class)
+		{
+			return 0L;
+		}
+		if (type == short.class)
+		{
+			return (short) 0;
+		}
+		if (type == byte.class)
+		{
+			return (byte) 0;
+		}
+		if (type == float.class)
+		{
+			return 0f;
+		}
+		if (type == double.class)
+		{
+			return 0d;
+		}
+		if (type == char.class)
+		{
+			return (char) 0;
+		}
+		return null;
+	}
+}
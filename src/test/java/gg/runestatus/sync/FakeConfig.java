@@ -0,0 +1,45 @@
+package gg.runestatus.sync;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds a config instance that answers every item with its declared default.
+ * Defaults are resolved once per item and cached, so reading config doesn't show up
+ * in allocation measurements.
+ */
+public final class FakeConfig
+{
+	private static final Object NULL = new Object();
+
+	private FakeConfig()
+	{
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> T create(Class<T> configClass)
+	{
+		Map<Method, Object> values = new ConcurrentHashMap<>();
+		return (T) Proxy.newProxyInstance(configClass.getClassLoader(), new Class<?>[]{configClass},
+			(proxy, method, args) -> {
+				Object value = values.get(method);
+				if (value == null)
+				{
+					value = method.isDefault() ? invokeDefault(configClass, proxy, method, args) : null;
+					values.put(method, value == null ? NULL : value);
+				}
+				return value == NULL ? null : value;
+			});
+	}
+
+	private static Object invokeDefault(Class<?> configClass, Object proxy, Method method, Object[] args) throws Throwable
+	{
+		return MethodHandles.privateLookupIn(configClass, MethodHandles.lookup())
+			.unreflectSpecial(method, configClass)
+			.bindTo(proxy)
+			.invokeWithArguments(args);
+	}
+}
@@ -0,0 +1,124 @@
+package gg.runestatus.sync;
+
+import com.google.inject.Injector;
+import net.runelite.api.GameState;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+import net.runelite.client.eventbus.EventBus;
+import okhttp3.OkHttpClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a recorded session through the plugin's components against a {@link FakeClient}, as fast
+ * as the components allow. Events are decoded up front so only dispatch and handling are timed.
+ * Client thread callbacks run after each game tick, which is when the real client would have drained them.
+ * Syncs go to a {@link StandInApiServer}, so a replay never reaches the real API.
+ * <p>
+ * Run with {@code ./gradlew replay -Precording=<file>} to print throughput for a recording.
+ */
+public class SessionReplay
+{
+	private final List<Object> events;
+
+	private final StandInApiServer api;
+	private final RuneStatusPlugin plugin;
+	private final TestClientThread clientThread;
+	private final EventBus eventBus;
+
+	private volatile GameState gameState = GameState.LOGIN_SCREEN;
+
+	public SessionReplay(List<Object> events) throws IOException
+	{
+		this.events = events;
+
+		api = StandInApiServer.start();
+		OkHttpClient httpClient = new OkHttpClient.Builder()
+			.addInterceptor(api.interceptor())
+			.build();
+
+		Injector injector = TestInjector.create(FakeClient.create(() -> gameState), httpClient);
+		plugin = injector.getInstance(RuneStatusPlugin.class);
+		clientThread = injector.getInstance(TestClientThread.class);
+		eventBus = injector.getInstance(EventBus.class);
+	}
+
+	public static List<Object> load(File recording) throws IOException
+	{
+		List<Object> events = new ArrayList<>();
+		SessionLogReader.read(recording, events::add);
+		return events;
+	}
+
+	public void startUp()
+	{
+		eventBus.register(plugin);
+		plugin.startUp();
+	}
+
+	public void shutDown()
+	{
+		plugin.shutDown();
+		eventBus.unregister(plugin);
+		api.close();
+	}
+
+	/**
+	 * Posts every event once, in recorded order.
+	 *
+	 * @return the number of events posted
+	 */
+	public int replay()
+	{
+		for (Object event : events)
+		{
+			if (event instanceof GameStateChanged)
+			{
+				gameState = ((GameStateChanged) event).getGameState();
+			}
+
+			eventBus.post(event);
+
+			if (event instanceof GameTick)
+			{
+				clientThread.runPending();
+			}
+		}
+		clientThread.runPending();
+		return events.size();
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 1)
+		{
+			System.err.println("Usage: SessionReplay <recording>");
+			System.exit(1);
+		}
+
+		List<Object> events = load(new File(args[0]));
+		SessionReplay replay = new SessionReplay(events);
+		replay.startUp();
+		try
+		{
+			// The first pass warms up the JIT; the rest are timed
+			replay.replay();
+			for (int pass = 1; pass <= 5; pass++)
+			{
+				long start = System.nanoTime();
+				int count = replay.replay();
+				long elapsed = System.nanoTime() - start;
+				System.out.printf("pass %d: %d events in %.1f ms (%.0f events/s)%n",
+					pass, count, elapsed / 1e6, count * 1e9 / elapsed);
+			}
+		}
+		finally
+		{
+			replay.shutDown();
+		}
+		System.exit(0);
+	}
+}
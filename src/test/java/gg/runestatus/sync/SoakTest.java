@@ -0,0 +1,236 @@
+package gg.runestatus.sync;
+
+import com.google.inject.Injector;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.GameState;
+import net.runelite.api.Skill;
+import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.ScriptPreFired;
+import net.runelite.api.events.StatChanged;
+import net.runelite.client.eventbus.EventBus;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Drives an accelerated eight hour session through the event bus and checks that heap
+ * and thread counts level off. Skipped unless run through the soakTest Gradle task.
+ */
+public class SoakTest
+{
+	// One game tick is 600ms, so an hour is 6000 ticks
+	private static final int TICKS_PER_HOUR = 6000;
+	private static final int HOURS = 8;
+	private static final int SYNC_EVERY_TICKS = 500;
+
+	// Retained heap may grow this much between the end of the first hour and the end of the session
+	private static final long MAX_HEAP_GROWTH_BYTES = 8L * 1024 * 1024;
+	// Headroom for OkHttp connection and dispatcher threads that idle out on their own schedule
+	private static final int MAX_EXTRA_THREADS = 8;
+
+	private static final Skill[] SKILLS = {
+		Skill.ATTACK, Skill.STRENGTH, Skill.DEFENCE, Skill.HITPOINTS, Skill.RANGED, Skill.MAGIC,
+		Skill.SLAYER, Skill.WOODCUTTING, Skill.FISHING, Skill.MINING
+	};
+
+	private static final String[] BOSSES = {"Zulrah", "Vorkath", "General Graardor", "Chambers of Xeric"};
+
+	private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	private StandInApiServer api;
+	private volatile GameState gameState = GameState.LOGIN_SCREEN;
+
+	private RuneStatusPlugin plugin;
+	private CollectionLogManager collectionLogManager;
+	private TestClientThread clientThread;
+	private EventBus eventBus;
+
+	private final int[] experience = new int[SKILLS.length];
+
+	@Before
+	public void setUp() throws Exception
+	{
+		assumeTrue("Enable with -Drunestatus.soak=true", Boolean.getBoolean("runestatus.soak"));
+
+		api = StandInApiServer.start();
+		OkHttpClient httpClient = new OkHttpClient.Builder()
+			.addInterceptor(api.interceptor())
+			.build();
+
+		Injector injector = TestInjector.create(FakeClient.create(() -> gameState), httpClient);
+		plugin = injector.getInstance(RuneStatusPlugin.class);
+		collectionLogManager = injector.getInstance(CollectionLogManager.class);
+		clientThread = injector.getInstance(TestClientThread.class);
+		eventBus = injector.getInstance(EventBus.class);
+
+		for (int i = 0; i < SKILLS.length; i++)
+		{
+			experience[i] = FakeClient.experienceOf(SKILLS[i]);
+		}
+
+		eventBus.register(plugin);
+		plugin.startUp();
+	}
+
+	@After
+	public void tearDown()
+	{
+		if (plugin != null)
+		{
+			plugin.shutDown();
+			eventBus.unregister(plugin);
+		}
+		if (api != null)
+		{
+			api.close();
+		}
+	}
+
+	@Test
+	public void eightHourSession()
+	{
+		setGameState(GameState.LOGGED_IN);
+
+		long baselineHeap = 0;
+		int baselineThreads = 0;
+
+		for (int hour = 0; hour < HOURS; hour++)
+		{
+			// The API is down for the middle of the session so syncs fail and drops pile up
+			api.setStatus(hour == 4 ? 503 : 200);
+
+			for (int i = 0; i < TICKS_PER_HOUR; i++)
+			{
+				tick(hour * TICKS_PER_HOUR + i);
+			}
+
+			long heap = retainedHeap();
+			int threadCount = threads.getThreadCount();
+			System.out.printf("hour %d: heap %d KiB, threads %d, requests %d, pending callbacks %d%n",
+				hour + 1, heap / 1024, threadCount, api.getRequestCount(), clientThread.getPendingCount());
+
+			if (hour == 0)
+			{
+				baselineHeap = heap;
+				baselineThreads = threadCount;
+				continue;
+			}
+
+			assertTrue("Thread count grew from " + baselineThreads + " to " + threadCount + " by hour " + (hour + 1),
+				threadCount <= baselineThreads + MAX_EXTRA_THREADS);
+			assertTrue("Recent drops grew to " + collectionLogManager.getRecentDropNames().size(),
+				collectionLogManager.getRecentDropNames().size() <= 100);
+			assertTrue("Client thread queue grew to " + clientThread.getPendingCount(),
+				clientThread.getPendingCount() <= 16);
+		}
+
+		long growth = retainedHeap() - baselineHeap;
+		assertTrue("Retained heap grew by " + growth / 1024 + " KiB over the session",
+			growth <= MAX_HEAP_GROWTH_BYTES);
+		assertTrue("No snapshots reached the stand-in API", api.getRequestCount() > 0);
+	}
+
+	private void tick(int tick)
+	{
+		// Log out for a minute every two hours, and hop worlds every hour in between
+		int inHour = tick % TICKS_PER_HOUR;
+		int hour = tick / TICKS_PER_HOUR;
+		if (inHour == TICKS_PER_HOUR / 2)
+		{
+			if (hour % 2 == 1)
+			{
+				setGameState(GameState.LOGIN_SCREEN);
+			}
+			else
+			{
+				setGameState(GameState.HOPPING);
+				setGameState(GameState.LOADING);
+				setGameState(GameState.LOGGED_IN);
+			}
+		}
+		else if (inHour == TICKS_PER_HOUR / 2 + 100 && gameState != GameState.LOGGED_IN)
+		{
+			setGameState(GameState.LOGGED_IN);
+		}
+
+		eventBus.post(new GameTick());
+
+		if (gameState == GameState.LOGGED_IN)
+		{
+			int skill = tick % SKILLS.length;
+			experience[skill] += 25 + tick % 40;
+			int level = Math.min(99, FakeClient.levelOf(SKILLS[skill]) + experience[skill] / 200_000);
+			eventBus.post(new StatChanged(SKILLS[skill], experience[skill], level, level));
+
+			if (tick % 5 == 0)
+			{
+				eventBus.post(chatMessage("You eat the shark."));
+			}
+			if (tick % 150 == 0)
+			{
+				eventBus.post(chatMessage("Your " + BOSSES[(tick / 150) % BOSSES.length]
+					+ " kill count is: <col=ff0000>" + (tick / 150 + 1) + "</col>."));
+			}
+			if (tick % 300 == 0)
+			{
+				eventBus.post(chatMessage("New item added to your collection log: <col=ef1020>Item " + tick + "</col>"));
+			}
+			if (tick % 50 == 0)
+			{
+				eventBus.post(new ScriptPreFired(2200));
+			}
+			if (tick % SYNC_EVERY_TICKS == 0)
+			{
+				plugin.performSync();
+			}
+		}
+
+		clientThread.runPending();
+	}
+
+	private void setGameState(GameState state)
+	{
+		gameState = state;
+		GameStateChanged event = new GameStateChanged();
+		event.setGameState(state);
+		eventBus.post(event);
+	}
+
+	private long retainedHeap()
+	{
+		// A couple of passes so finalizable and soft-reachable garbage is gone before measuring
+		for (int i = 0; i < 3; i++)
+		{
+			System.gc();
+			try
+			{
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	private static ChatMessage chatMessage(String message)
+	{
+		ChatMessage event = new ChatMessage();
+		event.setType(ChatMessageType.GAMEMESSAGE);
+		event.setName("");
+		event.setMessage(message);
+		return event;
+	}
+}
@@ -0,0 +1,107 @@
+package gg.runestatus.sync;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for the RuneStatus API so headless tests run offline.
+ * Every request is accepted with the configured status; {@link #interceptor()} points
+ * an OkHttp client at this server in place of the real hosts.
+ */
+public class StandInApiServer implements AutoCloseable
+{
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private volatile int status = 200;
+
+	private StandInApiServer(HttpServer server, ExecutorService executor)
+	{
+		this.server = server;
+		this.executor = executor;
+	}
+
+	public static StandInApiServer start() throws IOException
+	{
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+			Thread thread = new Thread(r, "stand-in-api");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		StandInApiServer standIn = new StandInApiServer(server, executor);
+		server.createContext("/", exchange -> {
+			try (InputStream in = exchange.getRequestBody())
+			{
+				byte[] buffer = new byte[8192];
+				long total = 0;
+				int read;
+				while ((read = in.read(buffer)) != -1)
+				{
+					total += read;
+				}
+				standIn.bytesReceived.addAndGet(total);
+			}
+
+			standIn.requests.incrementAndGet();
+			exchange.sendResponseHeaders(standIn.status, -1);
+			exchange.close();
+		});
+		server.setExecutor(executor);
+		server.start();
+		return standIn;
+	}
+
+	/**
+	 * Rewrites every request to this server, keeping the original path.
+	 */
+	public Interceptor interceptor()
+	{
+		int port = server.getAddress().getPort();
+		return chain -> {
+			HttpUrl url = chain.request().url().newBuilder()
+				.scheme("http")
+				.host(server.getAddress().getHostString())
+				.port(port)
+				.build();
+			return chain.proceed(chain.request().newBuilder().url(url).build());
+		};
+	}
+
+	/**
+	 * Sets the status returned for subsequent requests, for example 503 to simulate an outage.
+	 */
+	public void setStatus(int status)
+	{
+		this.status = status;
+	}
+
+	public long getRequestCount()
+	{
+		return requests.get();
+	}
+
+	public long getBytesReceived()
+	{
+		return bytesReceived.get();
+	}
+
+	@Override
+	public void close()
+	{
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
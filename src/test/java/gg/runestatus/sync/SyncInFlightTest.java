@@ -0,0 +1,101 @@
+package gg.runestatus.sync;
+
+import com.google.inject.Injector;
+import gg.runestatus.sync.capture.PlayerCapture;
+import gg.runestatus.sync.data.PlayerSyncData;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A sync that fails before it is sent must give back the in-flight slot, or no sync is ever sent again.
+ */
+public class SyncInFlightTest
+{
+	private final CountDownLatch sent = new CountDownLatch(1);
+
+	private RuneStatusPlugin plugin;
+	private SyncScheduler syncScheduler;
+	private FailingEncoder encoder;
+
+	@Before
+	public void setUp()
+	{
+		OkHttpClient httpClient = new OkHttpClient.Builder()
+			.addInterceptor(chain -> {
+				sent.countDown();
+				return new Response.Builder()
+					.request(chain.request())
+					.protocol(Protocol.HTTP_1_1)
+					.code(200)
+					.message("OK")
+					.body(ResponseBody.create(null, new byte[0]))
+					.build();
+			})
+			.build();
+
+		Injector injector = TestInjector.create(FakeClient.create(), httpClient,
+			binder -> binder.bind(SyncDataEncoder.class).to(FailingEncoder.class));
+		plugin = injector.getInstance(RuneStatusPlugin.class);
+		syncScheduler = injector.getInstance(SyncScheduler.class);
+		encoder = injector.getInstance(FailingEncoder.class);
+		plugin.startUp();
+	}
+
+	@After
+	public void tearDown()
+	{
+		plugin.shutDown();
+	}
+
+	@Test
+	public void encoderFailureReleasesTheSlot() throws InterruptedException
+	{
+		encoder.failing = true;
+		plugin.performSync();
+
+		assertFalse(syncScheduler.isInFlight());
+		assertEquals(1, sent.getCount());
+
+		// The next sync goes out as normal
+		encoder.failing = false;
+		plugin.performSync();
+		assertTrue(sent.await(5, TimeUnit.SECONDS));
+	}
+
+	@Singleton
+	static class FailingEncoder extends SyncDataEncoder
+	{
+		private volatile boolean failing;
+
+		@Inject
+		FailingEncoder(RuneStatusConfig config, CollectionLogManager collectionLogManager,
+			BossKillCountTracker bossKillCountTracker)
+		{
+			super(config, collectionLogManager, bossKillCountTracker);
+		}
+
+		@Override
+		public PlayerSyncData encode(PlayerCapture capture)
+		{
+			if (failing)
+			{
+				throw new IllegalStateException("encoder failure");
+			}
+			return super.encode(capture);
+		}
+	}
+}
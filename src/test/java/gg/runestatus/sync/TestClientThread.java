@@ -0,0 +1,61 @@
+package gg.runestatus.sync;
+
+import net.runelite.client.callback.ClientThread;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A {@link ClientThread} for headless tests. Callbacks queue up until the test calls
+ * {@link #runPending()}, which stands in for the client's once-per-frame drain.
+ */
+public class TestClientThread extends ClientThread
+{
+	private final Queue<BooleanSupplier> pending = new ConcurrentLinkedQueue<>();
+
+	@Override
+	public void invoke(Runnable r)
+	{
+		r.run();
+	}
+
+	@Override
+	public void invokeLater(Runnable r)
+	{
+		invokeLater(() -> {
+			r.run();
+			return true;
+		});
+	}
+
+	@Override
+	public void invokeLater(BooleanSupplier r)
+	{
+		pending.add(r);
+	}
+
+	/**
+	 * Runs everything queued so far. Callbacks returning false are retried on the next call.
+	 */
+	public void runPending()
+	{
+		for (int i = pending.size(); i > 0; i--)
+		{
+			BooleanSupplier r = pending.poll();
+			if (r == null)
+			{
+				return;
+			}
+			if (!r.getAsBoolean())
+			{
+				pending.add(r);
+			}
+		}
+	}
+
+	public int getPendingCount()
+	{
+		return pending.size();
+	}
+}
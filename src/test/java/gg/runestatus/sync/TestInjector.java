@@ -0,0 +1,94 @@
+package gg.runestatus.sync;
+
+import com.google.gson.Gson;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
+import net.runelite.api.Client;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.eventbus.EventBus;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Wires the plugin's components against a {@link FakeClient} without starting RuneLite,
+ * for benchmarks and headless tests. Client thread callbacks go to a {@link TestClientThread}
+ * and local state is written to a fresh temporary directory.
+ */
+public final class TestInjector
+{
+	private TestInjector()
+	{
+	}
+
+	/**
+	 * Answers every request with an empty 200 without touching the network,
+	 * for callers that don't care what the API sees.
+	 */
+	public static Injector create(Client client)
+	{
+		OkHttpClient httpClient = new OkHttpClient.Builder()
+			.addInterceptor(chain -> new Response.Builder()
+				.request(chain.request())
+				.protocol(Protocol.HTTP_1_1)
+				.code(200)
+				.message("OK")
+				.body(ResponseBody.create(null, new byte[0]))
+				.build())
+			.build();
+		return create(client, httpClient);
+	}
+
+	public static Injector create(Client client, OkHttpClient httpClient)
+	{
+		return create(client, httpClient, binder -> {});
+	}
+
+	/**
+	 * Like {@link #create(Client, OkHttpClient)}, with {@code overrides} replacing any of the plugin's bindings.
+	 */
+	public static Injector create(Client client, OkHttpClient httpClient, Module overrides)
+	{
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "test-executor");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		File dataDirectory;
+		try
+		{
+			dataDirectory = Files.createTempDirectory("runestatus-test").toFile();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+
+		TestClientThread clientThread = new TestClientThread();
+
+		Module module = binder -> {
+			binder.bind(Client.class).toInstance(client);
+			binder.bind(ClientThread.class).toInstance(clientThread);
+			binder.bind(TestClientThread.class).toInstance(clientThread);
+			binder.bind(RuneStatusConfig.class).toInstance(FakeConfig.create(RuneStatusConfig.class));
+			binder.bind(ScheduledExecutorService.class).toInstance(executor);
+			binder.bind(OkHttpClient.class).toInstance(httpClient);
+			binder.bind(Gson.class).toInstance(new Gson());
+			binder.bind(EventBus.class).toInstance(new EventBus());
+			binder.bind(File.class).annotatedWith(Names.named(RuneStatusPlugin.DATA_DIRECTORY)).toInstance(dataDirectory);
+		};
+		return Guice.createInjector(Modules.override(module).with(overrides));
+	}
+}
@@ -0,0 +1,297 @@
+package gg.runestatus.sync;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Times plugin work on the client thread and reports anything that runs over budget.
+ * Sections are entered and exited around event handlers and scheduled callbacks, and may nest,
+ * in which case each is timed against the budget on its own. A sampler
+ * on the executor captures the client thread's stack while an overrunning section is still
+ * running, so the log shows where the time went rather than where it ended.
+ * The sampler only runs while sections are being entered, and parks itself after a second without any.
+ * A section that overruns repeatedly is marked degraded so callers can switch to a cheaper mode,
+ * until it has stayed within budget several times in a row.
+ */
+@Slf4j
+@Singleton
+public class ClientThreadWatchdog
+{
+	private static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+	private static final long SAMPLE_PERIOD_MS = 25;
+	private static final long LOG_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+	private static final int DEGRADE_AFTER_OVERRUNS = 3;
+	private static final int RECOVER_AFTER_RUNS = 10;
+	private static final int IDLE_SAMPLES_BEFORE_PARK = 40;
+	private static final int MAX_DEPTH = 8;
+
+	private final ScheduledExecutorService executor;
+	private final Map<String, SectionStats> stats = new ConcurrentHashMap<>();
+
+	private volatile boolean running;
+	// Whether a sample is scheduled. Cleared by the sampler when it parks, set again by the next enter
+	private final AtomicBoolean sampling = new AtomicBoolean();
+
+	// Only touched by the sampler
+	private int idleSamples;
+
+	// Only touched on the client thread
+	private int depth;
+	private final String[] sectionNames = new String[MAX_DEPTH];
+	private final long[] sectionStarts = new long[MAX_DEPTH];
+
+	// Shared with the sampler
+	private volatile Thread activeThread;
+	private volatile long activeStart;
+	private volatile long activeSequence;
+	private volatile long sampledSequence;
+	private volatile StackTraceElement[] sampledStack;
+
+	@Inject
+	public ClientThreadWatchdog(ScheduledExecutorService executor)
+	{
+		this.executor = executor;
+	}
+
+	public void startUp()
+	{
+		running = true;
+	}
+
+	public void shutDown()
+	{
+		// A scheduled sample sees this and doesn't reschedule
+		running = false;
+		reset();
+	}
+
+	/**
+	 * Clears overrun history and degraded sections, for example on logout.
+	 */
+	public void reset()
+	{
+		stats.clear();
+	}
+
+	/**
+	 * Starts timing a section on the client thread.
+	 */
+	public void enter(String name)
+	{
+		int index = depth++;
+		if (index >= MAX_DEPTH)
+		{
+			return;
+		}
+
+		long now = System.nanoTime();
+		sectionNames[index] = name;
+		sectionStarts[index] = now;
+
+		if (index == 0)
+		{
+			activeThread = Thread.currentThread();
+			activeSequence++;
+			activeStart = now;
+
+			if (!sampling.get() && running && sampling.compareAndSet(false, true))
+			{
+				scheduleSample();
+			}
+		}
+	}
+
+	public void exit()
+	{
+		int index = --depth;
+		if (index >= MAX_DEPTH)
+		{
+			return;
+		}
+
+		long elapsed = System.nanoTime() - sectionStarts[index];
+		String name = sectionNames[index];
+		sectionNames[index] = null;
+
+		if (index == 0)
+		{
+			activeStart = 0;
+			activeThread = null;
+		}
+
+		SectionStats section = stats.computeIfAbsent(name, SectionStats::new);
+		if (elapsed <= BUDGET_NANOS)
+		{
+			onWithinBudget(section);
+			return;
+		}
+
+		StackTraceElement[] stack = sampledSequence == activeSequence ? sampledStack : null;
+		onOverrun(section, elapsed, stack);
+	}
+
+	/**
+	 * Wraps a callback for {@code ClientThread.invokeLater} so it is timed as its own section.
+	 */
+	public Runnable wrap(String name, Runnable task)
+	{
+		return () -> {
+			enter(name);
+			try
+			{
+				task.run();
+			}
+			finally
+			{
+				exit();
+			}
+		};
+	}
+
+	/**
+	 * Counts a run of a section that was split over several callbacks, from what it would have cost in one.
+	 * A degraded section is never entered whole, so this is how it gets back under budget. Nothing is logged.
+	 */
+	public void recordSplitRun(String name, long elapsedNanos)
+	{
+		SectionStats section = stats.computeIfAbsent(name, SectionStats::new);
+		if (elapsedNanos <= BUDGET_NANOS)
+		{
+			onWithinBudget(section);
+		}
+		else
+		{
+			section.consecutiveWithinBudget = 0;
+		}
+	}
+
+	/**
+	 * Whether the section has overrun its budget several times in a row, and not run within it
+	 * several times in a row since.
+	 */
+	public boolean isDegraded(String name)
+	{
+		SectionStats section = stats.get(name);
+		return section != null && section.degraded;
+	}
+
+	private void scheduleSample()
+	{
+		executor.schedule(this::sample, SAMPLE_PERIOD_MS, TimeUnit.MILLISECONDS);
+	}
+
+	private void sample()
+	{
+		if (!running)
+		{
+			sampling.set(false);
+			return;
+		}
+
+		long start = activeStart;
+		Thread thread = activeThread;
+		long sequence = activeSequence;
+		if (thread == null && ++idleSamples >= IDLE_SAMPLES_BEFORE_PARK)
+		{
+			// Park, unless a section was entered after the check above and saw the sampler still running
+			idleSamples = 0;
+			sampling.set(false);
+			if (activeThread == null || !sampling.compareAndSet(false, true))
+			{
+				return;
+			}
+		}
+		else if (thread != null)
+		{
+			idleSamples = 0;
+			if (start != 0 && sampledSequence != sequence && System.nanoTime() - start > BUDGET_NANOS)
+			{
+				sampledStack = thread.getStackTrace();
+				sampledSequence = sequence;
+			}
+		}
+
+		scheduleSample();
+	}
+
+	private static void onWithinBudget(SectionStats section)
+	{
+		section.consecutiveOverruns = 0;
+		if (section.degraded && ++section.consecutiveWithinBudget >= RECOVER_AFTER_RUNS)
+		{
+			section.degraded = false;
+			section.consecutiveWithinBudget = 0;
+			log.info("{} has stayed within its client thread budget {} times in a row, no longer degraded",
+				section.name, RECOVER_AFTER_RUNS);
+		}
+	}
+
+	private void onOverrun(SectionStats section, long elapsed, StackTraceElement[] stack)
+	{
+		section.overruns++;
+		section.consecutiveWithinBudget = 0;
+		if (++section.consecutiveOverruns >= DEGRADE_AFTER_OVERRUNS && !section.degraded)
+		{
+			section.degraded = true;
+			log.warn("{} has exceeded its client thread budget {} times in a row, marking it degraded",
+				section.name, section.consecutiveOverruns);
+		}
+
+		long now = System.nanoTime();
+		if (section.lastLogged != 0 && now - section.lastLogged < LOG_INTERVAL_NANOS)
+		{
+			section.suppressed++;
+			return;
+		}
+
+		StallSample sample = null;
+		if (stack != null)
+		{
+			sample = new StallSample(section.name);
+			sample.setStackTrace(stack);
+		}
+
+		log.warn("{} took {}ms on the client thread (budget {}ms, {} overruns total, {} not logged)",
+			section.name, TimeUnit.NANOSECONDS.toMillis(elapsed), TimeUnit.NANOSECONDS.toMillis(BUDGET_NANOS),
+			section.overruns, section.suppressed, sample);
+
+		section.lastLogged = now;
+		section.suppressed = 0;
+	}
+
+	private static class SectionStats
+	{
+		private final String name;
+		private int overruns;
+		private int consecutiveOverruns;
+		private int consecutiveWithinBudget;
+		private int suppressed;
+		private long lastLogged;
+		private boolean degraded;
+
+		private SectionStats(String name)
+		{
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Carries the client thread stack captured while a section was over budget.
+	 */
+	private static class StallSample extends Throwable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private StallSample(String name)
+		{
+			super("Client thread stack sampled during " + name, null, false, true);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.data.Boss;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fixed-size table of boss kill counts, indexed by {@link Boss} ordinal.
+ * Alongside the current counts it keeps the last counts the server acknowledged,
+ * so a sync only has to carry the entries that changed since then.
+ */
+public class KillCountTable
+{
+	private static final int FORMAT_VERSION = 1;
+
+	private final int[] counts = new int[Boss.count()];
+	private final int[] acknowledged = new int[Boss.count()];
+	private boolean dirty;
+
+	/**
+	 * Records the latest kill count for a boss.
+	 *
+	 * @return true if the count changed
+	 */
+	public synchronized boolean record(Boss boss, int count)
+	{
+		int index = boss.ordinal();
+		if (counts[index] == count)
+		{
+			return false;
+		}
+
+		counts[index] = count;
+		dirty = true;
+		return true;
+	}
+
+	public synchronized int get(Boss boss)
+	{
+		return counts[boss.ordinal()];
+	}
+
+	public synchronized boolean hasPendingChanges()
+	{
+		for (int i = 0; i < counts.length; i++)
+		{
+			if (counts[i] != acknowledged[i])
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the counts that differ from the last acknowledged values, keyed by boss name,
+	 * or null if nothing has changed.
+	 */
+	public synchronized Map<String, Integer> pendingChanges()
+	{
+		Map<String, Integer> changes = null;
+		for (int i = 0; i < counts.length; i++)
+		{
+			if (counts[i] != acknowledged[i])
+			{
+				if (changes == null)
+				{
+					changes = new LinkedHashMap<>();
+				}
+				changes.put(Boss.byIndex(i).getName(), counts[i]);
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Marks the given counts as stored on the server. Counts that were updated again
+	 * after the sync was built stay pending, because only the sent value is acknowledged.
+	 */
+	public synchronized void acknowledge(Map<String, Integer> sent)
+	{
+		if (sent == null)
+		{
+			return;
+		}
+
+		for (Map.Entry<String, Integer> entry : sent.entrySet())
+		{
+			Boss boss = Boss.fromName(entry.getKey());
+			if (boss != null)
+			{
+				acknowledged[boss.ordinal()] = entry.getValue();
+			}
+		}
+		dirty = true;
+	}
+
+	public synchronized void clear()
+	{
+		for (int i = 0; i < counts.length; i++)
+		{
+			counts[i] = 0;
+			acknowledged[i] = 0;
+		}
+		dirty = false;
+	}
+
+	public synchronized boolean isDirty()
+	{
+		return dirty;
+	}
+
+	/**
+	 * Writes all non-zero entries. Entries are keyed by boss name rather than ordinal
+	 * so that adding or reordering bosses doesn't corrupt existing files.
+	 */
+	public synchronized void write(DataOutput out) throws IOException
+	{
+		int entries = 0;
+		for (int i = 0; i < counts.length; i++)
+		{
+			if (counts[i] != 0 || acknowledged[i] != 0)
+			{
+				entries++;
+			}
+		}
+
+		out.writeByte(FORMAT_VERSION);
+		out.writeShort(entries);
+		for (int i = 0; i < counts.length; i++)
+		{
+			if (counts[i] != 0 || acknowledged[i] != 0)
+			{
+				out.writeUTF(Boss.byIndex(i).getName());
+				out.writeInt(counts[i]);
+				out.writeInt(acknowledged[i]);
+			}
+		}
+		dirty = false;
+	}
+
+	public synchronized void read(DataInput in) throws IOException
+	{
+		int version = in.readUnsignedByte();
+		if (version != FORMAT_VERSION)
+		{
+			throw new IOException("Unsupported kill count table version " + version);
+		}
+
+		clear();
+		int entries = in.readUnsignedShort();
+		for (int i = 0; i < entries; i++)
+		{
+			String name = in.readUTF();
+			int count = in.readInt();
+			int acked = in.readInt();
+
+			Boss boss = Boss.fromName(name);
+			if (boss != null)
+			{
+				counts[boss.ordinal()] = count;
+				acknowledged[boss.ordinal()] = acked;
+			}
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package gg.runestatus.sync;
+
+import com.google.gson.Gson;
+import gg.runestatus.sync.data.PlayerSyncData;
+import gg.runestatus.sync.data.SyncEvent;
+import gg.runestatus.sync.jfr.HttpExchangeEvent;
+import gg.runestatus.sync.jfr.JfrSupport;
+import gg.runestatus.sync.jfr.SerializationEvent;
+import gg.runestatus.sync.metrics.SyncMetrics;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends data to RuneStatus over two lanes.
+ * The bulk lane carries full snapshots one at a time with the default timeouts.
+ * The urgent lane carries tiny event payloads immediately, on its own dispatcher
+ * with tight timeouts, so a drop is never queued behind a snapshot upload.
+ */
+@Slf4j
+@Singleton
+public class RuneStatusClient
+{
+	private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+	private static final String API_ENDPOINT = "https://api.runestatus.gg/plugin/sync";
+	private static final String EVENT_ENDPOINT = "https://api.runestatus.gg/plugin/event";
+
+	private static final int URGENT_TIMEOUT_SECONDS = 5;
+	private static final int URGENT_MAX_ATTEMPTS = 2;
+
+	private final OkHttpClient bulkClient;
+	private final OkHttpClient urgentClient;
+	private final Gson gson;
+	private final SyncMetrics metrics;
+
+	@Inject
+	public RuneStatusClient(OkHttpClient httpClient, Gson gson, SyncMetrics metrics)
+	{
+		this.gson = gson;
+		this.metrics = metrics;
+
+		// Both lanes share the injected client's connection pool but not its dispatcher
+		Dispatcher bulkDispatcher = new Dispatcher();
+		bulkDispatcher.setMaxRequests(1);
+		this.bulkClient = httpClient.newBuilder()
+			.dispatcher(bulkDispatcher)
+			.build();
+
+		this.urgentClient = httpClient.newBuilder()
+			.dispatcher(new Dispatcher())
+			.connectTimeout(URGENT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+			.writeTimeout(URGENT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+			.readTimeout(URGENT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+			.build();
+	}
+
+	public CompletableFuture<Boolean> syncPlayerData(PlayerSyncData data)
+	{
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+		byte[] body = serialize("snapshot", data);
+
+		log.debug("Syncing player data for user: {}", data.getUsername());
+
+		Request request = buildRequest(API_ENDPOINT, body);
+
+		final HttpExchangeEvent exchangeEvent = JfrSupport.AVAILABLE ? HttpExchangeEvent.start() : null;
+		final long sentAt = System.nanoTime();
+		bulkClient.newCall(request).enqueue(new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				log.error("Failed to sync player data to RuneStatus", e);
+				finishExchange(exchangeEvent, "bulk", body.length, 0);
+				metrics.recordSyncResponse(System.nanoTime() - sentAt, false);
+				metrics.recordFailure(0);
+				future.complete(false);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response)
+			{
+				try (response)
+				{
+					finishExchange(exchangeEvent, "bulk", body.length, response.code());
+					metrics.recordSyncResponse(System.nanoTime() - sentAt, response.isSuccessful());
+					if (response.isSuccessful())
+					{
+						log.debug("Successfully synced player data to RuneStatus");
+						future.complete(true);
+					}
+					else
+					{
+						log.warn("RuneStatus API returned error: {} {}", response.code(), response.message());
+						metrics.recordFailure(response.code());
+						future.complete(false);
+					}
+				}
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Sends a single event on the urgent lane, retrying once if the connection fails.
+	 */
+	public CompletableFuture<Boolean> sendEvent(SyncEvent event)
+	{
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		enqueueUrgent(buildRequest(EVENT_ENDPOINT, serialize("event", event)), future, 1);
+		return future;
+	}
+
+	private void enqueueUrgent(Request request, CompletableFuture<Boolean> future, int attempt)
+	{
+		final HttpExchangeEvent exchangeEvent = JfrSupport.AVAILABLE ? HttpExchangeEvent.start() : null;
+		final long sentAt = System.nanoTime();
+		urgentClient.newCall(request).enqueue(new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				finishExchange(exchangeEvent, "urgent", contentLength(request), 0);
+				if (attempt < URGENT_MAX_ATTEMPTS)
+				{
+					log.debug("Failed to send event to RuneStatus, retrying", e);
+					metrics.recordRetry();
+					enqueueUrgent(request, future, attempt + 1);
+					return;
+				}
+
+				log.warn("Failed to send event to RuneStatus", e);
+				metrics.recordEventResponse(System.nanoTime() - sentAt, false);
+				metrics.recordFailure(0);
+				future.complete(false);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response)
+			{
+				try (response)
+				{
+					finishExchange(exchangeEvent, "urgent", contentLength(request), response.code());
+					metrics.recordEventResponse(System.nanoTime() - sentAt, response.isSuccessful());
+					if (!response.isSuccessful())
+					{
+						log.warn("RuneStatus API returned error for event: {} {}", response.code(), response.message());
+						metrics.recordFailure(response.code());
+					}
+					future.complete(response.isSuccessful());
+				}
+			}
+		});
+	}
+
+	private byte[] serialize(String payloadName, Object payload)
+	{
+		SerializationEvent serializationEvent = JfrSupport.AVAILABLE ? SerializationEvent.start() : null;
+		long start = System.nanoTime();
+		byte[] bytes = gson.toJson(payload).getBytes(StandardCharsets.UTF_8);
+		metrics.recordSerialization(System.nanoTime() - start, bytes.length);
+		if (serializationEvent != null)
+		{
+			serializationEvent.finish(payloadName, bytes.length);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Requests waiting for or holding a connection on either lane.
+	 */
+	public int getPendingRequestCount()
+	{
+		return bulkClient.dispatcher().queuedCallsCount() + bulkClient.dispatcher().runningCallsCount()
+			+ urgentClient.dispatcher().queuedCallsCount() + urgentClient.dispatcher().runningCallsCount();
+	}
+
+	private void finishExchange(HttpExchangeEvent event, String lane, long requestBytes, int statusCode)
+	{
+		metrics.recordBytesSent(Math.max(requestBytes, 0));
+		if (event != null)
+		{
+			event.finish(lane, requestBytes, statusCode);
+		}
+	}
+
+	private static long contentLength(Request request)
+	{
+		try
+		{
+			return request.body() != null ? request.body().contentLength() : 0;
+		}
+		catch (IOException e)
+		{
+			return -1;
+		}
+	}
+
+	private static Request buildRequest(String url, byte[] body)
+	{
+		return new Request.Builder()
+			.url(url)
+			.post(RequestBody.create(JSON, body))
+			.header("Content-Type", "application/json")
+			.header("User-Agent", "RuneStatus-Sync/1.0")
+			.build();
+	}
+}
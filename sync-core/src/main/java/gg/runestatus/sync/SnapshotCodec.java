@@ -0,0 +1,275 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.data.CombatAchievementData;
+import gg.runestatus.sync.data.DiaryData;
+import gg.runestatus.sync.data.PlayerSyncData;
+import gg.runestatus.sync.data.SkillData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary form of a {@link PlayerSyncData} for keeping the last acknowledged snapshot on disk.
+ * The payload is framed with a magic number, a version and its length, and is followed by a CRC32,
+ * so a torn or corrupted file is rejected instead of being mistaken for what the server has.
+ * <p>
+ * Only account state is stored. Recent drops and kill count changes are per-sync deltas that
+ * the server has already consumed, so they are left out.
+ */
+public final class SnapshotCodec
+{
+	private static final int MAGIC = 0x52535350; // "RSSP"
+	private static final int FORMAT_VERSION = 1;
+
+	// Anything larger than this is corruption, not a snapshot
+	private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+
+	// Quest states are written as one byte when they are one of these
+	private static final String[] QUEST_STATES = {"NOT_STARTED", "IN_PROGRESS", "FINISHED"};
+	private static final int QUEST_STATE_OTHER = 0xFF;
+
+	private static final int ABSENT = -1;
+
+	private SnapshotCodec()
+	{
+	}
+
+	public static byte[] encode(PlayerSyncData data) throws IOException
+	{
+		ByteArrayOutputStream payloadBuffer = new ByteArrayOutputStream(8192);
+		writePayload(data, new DataOutputStream(payloadBuffer));
+		byte[] payload = payloadBuffer.toByteArray();
+
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length + 16);
+		DataOutputStream out = new DataOutputStream(buffer);
+		out.writeInt(MAGIC);
+		out.writeByte(FORMAT_VERSION);
+		out.writeInt(payload.length);
+		out.write(payload);
+		out.writeInt((int) crc.getValue());
+		return buffer.toByteArray();
+	}
+
+	public static PlayerSyncData decode(byte[] bytes) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		if (in.readInt() != MAGIC)
+		{
+			throw new IOException("Not a snapshot file");
+		}
+
+		int version = in.readUnsignedByte();
+		if (version != FORMAT_VERSION)
+		{
+			throw new IOException("Unsupported snapshot format version " + version);
+		}
+
+		int length = in.readInt();
+		if (length < 0 || length > MAX_PAYLOAD_BYTES || length > in.available() - 4)
+		{
+			throw new IOException("Bad snapshot length " + length);
+		}
+
+		byte[] payload = new byte[length];
+		in.readFully(payload);
+		int expected = in.readInt();
+
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+		if ((int) crc.getValue() != expected)
+		{
+			throw new IOException("Snapshot checksum mismatch");
+		}
+
+		return readPayload(new DataInputStream(new ByteArrayInputStream(payload)));
+	}
+
+	private static void writePayload(PlayerSyncData data, DataOutput out) throws IOException
+	{
+		out.writeUTF(data.getUsername() != null ? data.getUsername() : "");
+		out.writeInt(data.getAccountType());
+		out.writeInt(data.getWorld());
+		out.writeLong(data.getLastSyncedAt());
+
+		out.writeInt(data.getCombatLevel());
+		out.writeInt(data.getTotalLevel());
+		out.writeLong(data.getTotalXp());
+		out.writeInt(data.getQuestsCompleted());
+		out.writeInt(data.getQuestsTotal());
+		out.writeInt(data.getDiaryTasksCompleted());
+		out.writeInt(data.getDiaryTasksTotal());
+		out.writeInt(data.getCombatTasksCompleted());
+		out.writeInt(data.getCombatTasksTotal());
+		out.writeInt(data.getCollectionLogObtained());
+		out.writeInt(data.getTimePlayedMinutes());
+
+		Map<String, SkillData> skills = data.getSkills();
+		out.writeShort(skills != null ? skills.size() : ABSENT);
+		if (skills != null)
+		{
+			for (Map.Entry<String, SkillData> entry : skills.entrySet())
+			{
+				out.writeUTF(entry.getKey());
+				out.writeShort(entry.getValue().getLevel());
+				out.writeInt(entry.getValue().getXp());
+			}
+		}
+
+		Map<String, String> quests = data.getQuests();
+		out.writeShort(quests != null ? quests.size() : ABSENT);
+		if (quests != null)
+		{
+			for (Map.Entry<String, String> entry : quests.entrySet())
+			{
+				out.writeUTF(entry.getKey());
+				int state = questStateIndex(entry.getValue());
+				out.writeByte(state);
+				if (state == QUEST_STATE_OTHER)
+				{
+					out.writeUTF(entry.getValue());
+				}
+			}
+		}
+
+		Map<String, DiaryData> diaries = data.getAchievementDiaries();
+		out.writeShort(diaries != null ? diaries.size() : ABSENT);
+		if (diaries != null)
+		{
+			for (Map.Entry<String, DiaryData> entry : diaries.entrySet())
+			{
+				DiaryData diary = entry.getValue();
+				out.writeUTF(entry.getKey());
+				out.writeByte((diary.isEasy() ? 1 : 0)
+					| (diary.isMedium() ? 2 : 0)
+					| (diary.isHard() ? 4 : 0)
+					| (diary.isElite() ? 8 : 0));
+			}
+		}
+
+		CombatAchievementData combatAchievements = data.getCombatAchievements();
+		out.writeBoolean(combatAchievements != null);
+		if (combatAchievements != null)
+		{
+			out.writeShort(combatAchievements.getEasy());
+			out.writeShort(combatAchievements.getMedium());
+			out.writeShort(combatAchievements.getHard());
+			out.writeShort(combatAchievements.getElite());
+			out.writeShort(combatAchievements.getMaster());
+			out.writeShort(combatAchievements.getGrandmaster());
+		}
+	}
+
+	private static PlayerSyncData readPayload(DataInput in) throws IOException
+	{
+		PlayerSyncData.PlayerSyncDataBuilder builder = PlayerSyncData.builder()
+			.username(in.readUTF())
+			.accountType(in.readInt())
+			.world(in.readInt())
+			.lastSyncedAt(in.readLong())
+			.combatLevel(in.readInt())
+			.totalLevel(in.readInt())
+			.totalXp(in.readLong())
+			.questsCompleted(in.readInt())
+			.questsTotal(in.readInt())
+			.diaryTasksCompleted(in.readInt())
+			.diaryTasksTotal(in.readInt())
+			.combatTasksCompleted(in.readInt())
+			.combatTasksTotal(in.readInt())
+			.collectionLogObtained(in.readInt())
+			.timePlayedMinutes(in.readInt());
+
+		int skillCount = in.readShort();
+		if (skillCount != ABSENT)
+		{
+			Map<String, SkillData> skills = new HashMap<>();
+			for (int i = 0; i < skillCount; i++)
+			{
+				String name = in.readUTF();
+				skills.put(name, SkillData.builder()
+					.level(in.readUnsignedShort())
+					.xp(in.readInt())
+					.build());
+			}
+			builder.skills(skills);
+		}
+
+		int questCount = in.readShort();
+		if (questCount != ABSENT)
+		{
+			Map<String, String> quests = new HashMap<>();
+			for (int i = 0; i < questCount; i++)
+			{
+				String name = in.readUTF();
+				int state = in.readUnsignedByte();
+				if (state == QUEST_STATE_OTHER)
+				{
+					quests.put(name, in.readUTF());
+				}
+				else if (state < QUEST_STATES.length)
+				{
+					quests.put(name, QUEST_STATES[state]);
+				}
+				else
+				{
+					throw new IOException("Bad quest state " + state);
+				}
+			}
+			builder.quests(quests);
+		}
+
+		int diaryCount = in.readShort();
+		if (diaryCount != ABSENT)
+		{
+			Map<String, DiaryData> diaries = new HashMap<>();
+			for (int i = 0; i < diaryCount; i++)
+			{
+				String name = in.readUTF();
+				int flags = in.readUnsignedByte();
+				diaries.put(name, DiaryData.builder()
+					.easy((flags & 1) != 0)
+					.medium((flags & 2) != 0)
+					.hard((flags & 4) != 0)
+					.elite((flags & 8) != 0)
+					.build());
+			}
+			builder.achievementDiaries(diaries);
+		}
+
+		if (in.readBoolean())
+		{
+			builder.combatAchievements(CombatAchievementData.builder()
+				.easy(in.readUnsignedShort())
+				.medium(in.readUnsignedShort())
+				.hard(in.readUnsignedShort())
+				.elite(in.readUnsignedShort())
+				.master(in.readUnsignedShort())
+				.grandmaster(in.readUnsignedShort())
+				.build());
+		}
+
+		return builder.build();
+	}
+
+	private static int questStateIndex(String state)
+	{
+		for (int i = 0; i < QUEST_STATES.length; i++)
+		{
+			if (QUEST_STATES[i].equals(state))
+			{
+				return i;
+			}
+		}
+		return QUEST_STATE_OTHER;
+	}
+}
@@ -0,0 +1,64 @@
+package gg.runestatus.sync;
+
+import javax.inject.Singleton;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when a snapshot may be sent. It enforces the configured sync interval and a minimum
+ * gap between triggered syncs, and allows only one snapshot in flight at a time.
+ */
+@Singleton
+public class SyncScheduler
+{
+	// Minimum 30 seconds between triggered syncs to prevent spam
+	private static final long MIN_SYNC_GAP_MS = 30_000;
+
+	private final AtomicLong lastSyncTime = new AtomicLong(0);
+	private final AtomicBoolean inFlight = new AtomicBoolean(false);
+
+	/**
+	 * Whether a triggered sync (for example a level up) is allowed right now.
+	 */
+	public boolean isPastMinimumGap()
+	{
+		return System.currentTimeMillis() - lastSyncTime.get() > MIN_SYNC_GAP_MS;
+	}
+
+	public boolean isDueByInterval(int intervalMinutes)
+	{
+		return System.currentTimeMillis() - lastSyncTime.get() >= intervalMinutes * 60_000L;
+	}
+
+	public boolean isInFlight()
+	{
+		return inFlight.get();
+	}
+
+	/**
+	 * Claims the single in-flight slot.
+	 *
+	 * @return false if another sync is already in flight
+	 */
+	public boolean tryBegin()
+	{
+		return inFlight.compareAndSet(false, true);
+	}
+
+	/**
+	 * Releases the in-flight slot once the server has answered, successfully or not.
+	 */
+	public void complete()
+	{
+		lastSyncTime.set(System.currentTimeMillis());
+		inFlight.set(false);
+	}
+
+	/**
+	 * Releases the in-flight slot for a sync that was abandoned before it was sent.
+	 */
+	public void abort()
+	{
+		inFlight.set(false);
+	}
+}
@@ -0,0 +1,118 @@
+package gg.runestatus.sync;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Variable length integers shared by the binary formats: the session log, the XP series and the columnar export.
+ * <p>
+ * Values are written seven bits at a time, least significant group first, with the high bit set on every
+ * byte but the last. Values that can be negative are zigzag encoded first so small magnitudes stay short.
+ */
+public final class Varints
+{
+	private Varints()
+	{
+	}
+
+	public static long zigzag(long value)
+	{
+		return (value << 1) ^ (value >> 63);
+	}
+
+	public static long unzigzag(long value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static int zigzag(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+
+	public static int unzigzag(int value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static void writeVarLong(DataOutput out, long value) throws IOException
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Writes {@code value} as an unsigned 32 bit number, so negative values take five bytes.
+	 */
+	public static void writeVarInt(DataOutput out, int value) throws IOException
+	{
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	public static long readVarLong(DataInput in) throws IOException
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	public static int readVarInt(DataInput in) throws IOException
+	{
+		long value = readVarLong(in);
+		if ((value >>> 32) != 0)
+		{
+			throw new IOException("Malformed varint");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Writes {@code value} at an absolute position without moving the buffer's own position.
+	 *
+	 * @return the position just after the written bytes
+	 */
+	public static int putVarLong(ByteBuffer out, int position, long value)
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			out.put(position++, (byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put(position++, (byte) value);
+		return position;
+	}
+
+	/**
+	 * Reads a value at the buffer's position and moves past it.
+	 *
+	 * @throws IllegalStateException if the bytes are not a varint
+	 */
+	public static long getVarLong(ByteBuffer in)
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varint");
+	}
+}
@@ -0,0 +1,43 @@
+package gg.runestatus.sync.capture;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hands each capture to every registered {@link CaptureSink}, so one pass over the client serves all of them.
+ * A sink that throws is logged and skipped without affecting the others.
+ */
+@Slf4j
+@Singleton
+public class CaptureFanout
+{
+	private final List<CaptureSink> sinks = new CopyOnWriteArrayList<>();
+
+	public void register(CaptureSink sink)
+	{
+		sinks.add(sink);
+	}
+
+	public void unregister(CaptureSink sink)
+	{
+		sinks.remove(sink);
+	}
+
+	public void publish(PlayerCapture capture)
+	{
+		for (CaptureSink sink : sinks)
+		{
+			try
+			{
+				sink.accept(capture);
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("Capture sink {} failed", sink, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package gg.runestatus.sync.capture;
+
+/**
+ * Consumer of the captures published through a {@link CaptureFanout}, such as the RuneStatus API or the local export.
+ * Each sink decides for itself whether a capture is due for it, and encodes it in its own format.
+ * <p>
+ * Sinks are called on the client thread, so anything slow belongs on the sink's own executor.
+ */
+@FunctionalInterface
+public interface CaptureSink
+{
+	void accept(PlayerCapture capture);
+}
@@ -0,0 +1,227 @@
+package gg.runestatus.sync.capture;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Everything read from the client in one capture pass, before any sink has encoded it.
+ * Built once per trigger on the client thread and then shared read-only by every {@link CaptureSink},
+ * so the arrays are only reachable through the index accessors.
+ * <p>
+ * Only JDK types are used so the capture can also be handed to other plugins, see {@link #toMessage()}.
+ */
+@Builder
+public final class PlayerCapture
+{
+	// PluginMessage namespace and names used to share captures with other plugins
+	public static final String MESSAGE_NAMESPACE = "runestatus";
+	public static final String CAPTURE_MESSAGE = "capture";
+	public static final String CAPTURE_REQUEST_MESSAGE = "capture-request";
+	public static final int MESSAGE_VERSION = 1;
+
+	// Trigger of captures taken for the plugin's own sync schedule
+	public static final String TRIGGER_SYNC = "sync";
+
+	public static final byte QUEST_NOT_STARTED = 0;
+	public static final byte QUEST_IN_PROGRESS = 1;
+	public static final byte QUEST_FINISHED = 2;
+
+	public static final int DIARY_TIERS = 4;
+	public static final int COMBAT_ACHIEVEMENT_TIERS = 6;
+
+	@Getter
+	private final long capturedAt;
+	// What asked for the capture: TRIGGER_SYNC, or the namespace of the plugin that requested it
+	@Getter
+	private final String trigger;
+	@Getter
+	private final long accountHash;
+	@Getter
+	private final String username;
+	@Getter
+	private final int accountType;
+	@Getter
+	private final int world;
+	@Getter
+	private final int combatLevel;
+	@Getter
+	private final int timePlayedMinutes;
+	@Getter
+	private final int collectionLogObtained;
+
+	// Skills in client order, without Overall
+	private final String[] skillNames;
+	private final int[] skillXp;
+	private final int[] skillLevels;
+
+	private final int[] questIds;
+	private final String[] questNames;
+	private final byte[] questStates;
+
+	// Diary tier counts are indexed by diary * DIARY_TIERS + tier, with diaries in script 2200 id order
+	private final String[] diaryNames;
+	private final int[] diaryCompleted;
+	private final int[] diaryTotals;
+
+	// Indexed by tier id - 1
+	private final int[] combatAchievementsCompleted;
+
+	public int getSkillCount()
+	{
+		return skillNames.length;
+	}
+
+	public String getSkillName(int index)
+	{
+		return skillNames[index];
+	}
+
+	public int getSkillXp(int index)
+	{
+		return skillXp[index];
+	}
+
+	public int getSkillLevel(int index)
+	{
+		return skillLevels[index];
+	}
+
+	public int getTotalLevel()
+	{
+		int total = 0;
+		for (int level : skillLevels)
+		{
+			total += level;
+		}
+		return total;
+	}
+
+	public long getTotalXp()
+	{
+		long total = 0;
+		for (int xp : skillXp)
+		{
+			total += xp;
+		}
+		return total;
+	}
+
+	public int getQuestCount()
+	{
+		return questIds.length;
+	}
+
+	public int getQuestId(int index)
+	{
+		return questIds[index];
+	}
+
+	public String getQuestName(int index)
+	{
+		return questNames[index];
+	}
+
+	public byte getQuestState(int index)
+	{
+		return questStates[index];
+	}
+
+	public int getQuestsCompleted()
+	{
+		int completed = 0;
+		for (byte state : questStates)
+		{
+			if (state == QUEST_FINISHED)
+			{
+				completed++;
+			}
+		}
+		return completed;
+	}
+
+	public int getDiaryCount()
+	{
+		return diaryNames.length;
+	}
+
+	public String getDiaryName(int diary)
+	{
+		return diaryNames[diary];
+	}
+
+	public int getDiaryTierCompleted(int diary, int tier)
+	{
+		return diaryCompleted[diary * DIARY_TIERS + tier];
+	}
+
+	public int getDiaryTierTotal(int diary, int tier)
+	{
+		return diaryTotals[diary * DIARY_TIERS + tier];
+	}
+
+	public int getDiaryTasksCompleted()
+	{
+		return sum(diaryCompleted);
+	}
+
+	public int getDiaryTasksTotal()
+	{
+		return sum(diaryTotals);
+	}
+
+	/**
+	 * @param tierId combat achievement tier, 1 (Easy) to 6 (Grandmaster)
+	 */
+	public int getCombatAchievementsCompleted(int tierId)
+	{
+		return combatAchievementsCompleted[tierId - 1];
+	}
+
+	public int getCombatTasksCompleted()
+	{
+		return sum(combatAchievementsCompleted);
+	}
+
+	/**
+	 * The capture as PluginMessage data. Values are boxed primitives, strings and array copies,
+	 * since plugins are loaded by separate classloaders and can't share this class.
+	 */
+	public Map<String, Object> toMessage()
+	{
+		Map<String, Object> data = new HashMap<>(32);
+		data.put("version", MESSAGE_VERSION);
+		data.put("capturedAt", capturedAt);
+		data.put("trigger", trigger);
+		data.put("accountHash", accountHash);
+		data.put("username", username);
+		data.put("accountType", accountType);
+		data.put("world", world);
+		data.put("combatLevel", combatLevel);
+		data.put("timePlayedMinutes", timePlayedMinutes);
+		data.put("collectionLogObtained", collectionLogObtained);
+		data.put("skillNames", skillNames.clone());
+		data.put("skillXp", skillXp.clone());
+		data.put("skillLevels", skillLevels.clone());
+		data.put("questIds", questIds.clone());
+		data.put("questNames", questNames.clone());
+		data.put("questStates", questStates.clone());
+		data.put("diaryNames", diaryNames.clone());
+		data.put("diaryCompleted", diaryCompleted.clone());
+		data.put("diaryTotals", diaryTotals.clone());
+		data.put("combatAchievementsCompleted", combatAchievementsCompleted.clone());
+		return data;
+	}
+
+	private static int sum(int[] values)
+	{
+		int total = 0;
+		for (int value : values)
+		{
+			total += value;
+		}
+		return total;
+	}
+}
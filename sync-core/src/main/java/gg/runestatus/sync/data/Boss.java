@@ -0,0 +1,124 @@
+package gg.runestatus.sync.data;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bosses and activities that report a kill count in chat.
+ * The enum ordinal is used as the index into {@link gg.runestatus.sync.KillCountTable},
+ * while the name is what gets persisted and synced, so entries may be reordered freely.
+ */
+@Getter
+public enum Boss
+{
+	ABYSSAL_SIRE("Abyssal Sire"),
+	ALCHEMICAL_HYDRA("Alchemical Hydra"),
+	AMOXLIATL("Amoxliatl"),
+	ARAXXOR("Araxxor"),
+	ARTIO("Artio"),
+	BARROWS_CHESTS("Barrows Chests", "Barrows"),
+	BRYOPHYTA("Bryophyta"),
+	CALLISTO("Callisto"),
+	CALVARION("Calvar'ion"),
+	CERBERUS("Cerberus"),
+	CHAMBERS_OF_XERIC("Chambers of Xeric"),
+	CHAMBERS_OF_XERIC_CHALLENGE_MODE("Chambers of Xeric: Challenge Mode", "Chambers of Xeric Challenge Mode"),
+	CHAOS_ELEMENTAL("Chaos Elemental"),
+	CHAOS_FANATIC("Chaos Fanatic"),
+	COMMANDER_ZILYANA("Commander Zilyana"),
+	CORPOREAL_BEAST("Corporeal Beast"),
+	CRAZY_ARCHAEOLOGIST("Crazy Archaeologist"),
+	DAGANNOTH_PRIME("Dagannoth Prime"),
+	DAGANNOTH_REX("Dagannoth Rex"),
+	DAGANNOTH_SUPREME("Dagannoth Supreme"),
+	DERANGED_ARCHAEOLOGIST("Deranged Archaeologist"),
+	DUKE_SUCELLUS("Duke Sucellus"),
+	GENERAL_GRAARDOR("General Graardor"),
+	GIANT_MOLE("Giant Mole"),
+	GROTESQUE_GUARDIANS("Grotesque Guardians"),
+	HESPORI("Hespori"),
+	KALPHITE_QUEEN("Kalphite Queen"),
+	KING_BLACK_DRAGON("King Black Dragon"),
+	KRAKEN("Kraken"),
+	KREEARRA("Kree'arra"),
+	KRIL_TSUTSAROTH("K'ril Tsutsaroth"),
+	LUNAR_CHESTS("Lunar Chests", "Lunar Chest"),
+	MIMIC("Mimic"),
+	NEX("Nex"),
+	NIGHTMARE("Nightmare", "The Nightmare"),
+	PHOSANIS_NIGHTMARE("Phosani's Nightmare"),
+	OBOR("Obor"),
+	PHANTOM_MUSPAH("Phantom Muspah"),
+	SARACHNIS("Sarachnis"),
+	SCORPIA("Scorpia"),
+	SCURRIUS("Scurrius"),
+	SKOTIZO("Skotizo"),
+	SOL_HEREDIT("Sol Heredit"),
+	SPINDEL("Spindel"),
+	TEMPOROSS("Tempoross"),
+	THE_GAUNTLET("The Gauntlet", "Gauntlet"),
+	THE_CORRUPTED_GAUNTLET("The Corrupted Gauntlet", "Corrupted Gauntlet"),
+	THE_HUEYCOATL("The Hueycoatl", "Hueycoatl"),
+	THE_LEVIATHAN("The Leviathan", "Leviathan"),
+	THE_WHISPERER("The Whisperer", "Whisperer"),
+	THEATRE_OF_BLOOD("Theatre of Blood"),
+	THEATRE_OF_BLOOD_HARD_MODE("Theatre of Blood: Hard Mode", "Theatre of Blood Hard Mode"),
+	THERMONUCLEAR_SMOKE_DEVIL("Thermonuclear Smoke Devil", "Thermonuclear smoke devil"),
+	TOMBS_OF_AMASCUT("Tombs of Amascut"),
+	TOMBS_OF_AMASCUT_EXPERT("Tombs of Amascut: Expert Mode", "Tombs of Amascut Expert Mode"),
+	TZKAL_ZUK("TzKal-Zuk"),
+	TZTOK_JAD("TzTok-Jad"),
+	VARDORVIS("Vardorvis"),
+	VENENATIS("Venenatis"),
+	VETION("Vet'ion"),
+	VORKATH("Vorkath"),
+	WINTERTODT("Wintertodt", "subdued Wintertodt"),
+	ZALCANO("Zalcano"),
+	ZULRAH("Zulrah");
+
+	private static final Boss[] VALUES = values();
+
+	// Case-insensitive so lookups from chat don't need to allocate a lower-cased copy
+	private static final Map<String, Boss> BY_NAME = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+	static
+	{
+		for (Boss boss : VALUES)
+		{
+			BY_NAME.put(boss.name, boss);
+			for (String alias : boss.chatAliases)
+			{
+				BY_NAME.put(alias, boss);
+			}
+		}
+	}
+
+	private final String name;
+	private final String[] chatAliases;
+
+	Boss(String name, String... chatAliases)
+	{
+		this.name = name;
+		this.chatAliases = chatAliases;
+	}
+
+	/**
+	 * Resolves a boss from the name used in its kill count chat message, or from its display name.
+	 */
+	public static Boss fromName(String name)
+	{
+		return BY_NAME.get(name);
+	}
+
+	public static Boss byIndex(int index)
+	{
+		return VALUES[index];
+	}
+
+	public static int count()
+	{
+		return VALUES.length;
+	}
+}
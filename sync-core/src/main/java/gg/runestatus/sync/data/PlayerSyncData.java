@@ -35,5 +35,8 @@ public class PlayerSyncData
 	// Recent collection log drops detected from chat messages
 	private List<String> recentDrops;
 
+	// Boss kill counts changed since the last acknowledged sync, keyed by boss name
+	private Map<String, Integer> bossKillCounts;
+
 	private long lastSyncedAt;
 }
@@ -0,0 +1,31 @@
+package gg.runestatus.sync.data;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * A small event sent on the urgent lane as soon as it happens,
+ * rather than waiting for the next full snapshot.
+ */
+@Data
+@Builder
+public class SyncEvent
+{
+	public enum Type
+	{
+		COLLECTION_LOG_DROP,
+		LEVEL_UP
+	}
+
+	private Type type;
+	private String username;
+	private int accountType;
+
+	// Item name for drops, skill name for level ups
+	private String name;
+
+	// New level for level ups, unused for drops
+	private int value;
+
+	private long timestamp;
+}
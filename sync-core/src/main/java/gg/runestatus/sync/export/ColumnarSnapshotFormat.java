@@ -0,0 +1,38 @@
+package gg.runestatus.sync.export;
+
+/**
+ * Layout shared by {@link ColumnarSnapshotWriter} and {@link ColumnarSnapshotReader}.
+ * <p>
+ * An export file is a sequence of self-contained blocks, each holding a batch of snapshots column by column:
+ * <pre>
+ * header     magic, version, row count, min and max timestamp, directory length, data length
+ * directory  per column: name, type, offset into data, length, CRC32 of its bytes
+ * data       the column bytes back to back
+ * </pre>
+ * The header is enough to skip a block outside a time range, and the directory lets a scan read
+ * only the columns it asks for. Numeric columns are zigzag varint deltas from the previous row.
+ * Text columns are dictionary encoded against one dictionary per block, stored as its own column,
+ * and hold runs of (length, index) varint pairs, with index 0 meaning the value was absent.
+ */
+final class ColumnarSnapshotFormat
+{
+	static final int BLOCK_MAGIC = 0x52534342; // "RSCB"
+	static final int FORMAT_VERSION = 1;
+
+	// magic, version, rows, min timestamp, max timestamp, directory length, data length
+	static final int HEADER_BYTES = 4 + 1 + 4 + 8 + 8 + 4 + 4;
+
+	static final int TYPE_NUMERIC = 0;
+	static final int TYPE_TEXT = 1;
+	static final int TYPE_DICTIONARY = 2;
+
+	// Numeric value written for a field the snapshot didn't include
+	static final long ABSENT = -1;
+
+	static final String TIMESTAMP = "timestamp";
+	static final String DICTIONARY = "$dictionary";
+
+	private ColumnarSnapshotFormat()
+	{
+	}
+}
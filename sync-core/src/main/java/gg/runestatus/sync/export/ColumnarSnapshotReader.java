@@ -0,0 +1,209 @@
+package gg.runestatus.sync.export;
+
+import gg.runestatus.sync.Varints;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Scans single columns of an export file without decoding whole snapshots, see {@link ColumnarSnapshotFormat}.
+ * Blocks outside the requested time range are skipped from their header alone, and inside a block
+ * only the timestamp column and the requested column are read.
+ * A block cut short by a crash ends the scan. {@link ColumnarSnapshotWriter#openForAppend} cuts such a block off
+ * before writing more, so it can only ever be the last one.
+ */
+public final class ColumnarSnapshotReader
+{
+	/**
+	 * Receives the values of a numeric column, with {@code -1} for rows that didn't include the field.
+	 */
+	@FunctionalInterface
+	public interface NumericVisitor
+	{
+		void value(long timestamp, long value);
+	}
+
+	/**
+	 * Receives the values of a text column, with null for rows that didn't include the field.
+	 */
+	@FunctionalInterface
+	public interface TextVisitor
+	{
+		void value(long timestamp, String value);
+	}
+
+	private ColumnarSnapshotReader()
+	{
+	}
+
+	public static void scanNumeric(File file, String column, long fromMillis, long toMillis, NumericVisitor visitor) throws IOException
+	{
+		scan(file, column, ColumnarSnapshotFormat.TYPE_NUMERIC, fromMillis, toMillis, (timestamps, in, dictionaryIn) -> {
+			long value = 0;
+			for (long timestamp : timestamps)
+			{
+				value += Varints.unzigzag(Varints.readVarLong(in));
+				if (timestamp >= fromMillis && timestamp <= toMillis)
+				{
+					visitor.value(timestamp, value);
+				}
+			}
+		});
+	}
+
+	public static void scanText(File file, String column, long fromMillis, long toMillis, TextVisitor visitor) throws IOException
+	{
+		scan(file, column, ColumnarSnapshotFormat.TYPE_TEXT, fromMillis, toMillis, (timestamps, in, dictionaryIn) -> {
+			String[] dictionary = new String[(int) Varints.readVarLong(dictionaryIn) + 1];
+			for (int i = 1; i < dictionary.length; i++)
+			{
+				dictionary[i] = dictionaryIn.readUTF();
+			}
+
+			int row = 0;
+			while (row < timestamps.length)
+			{
+				int run = (int) Varints.readVarLong(in);
+				String value = dictionary[(int) Varints.readVarLong(in)];
+				for (int end = Math.min(row + run, timestamps.length); row < end; row++)
+				{
+					if (timestamps[row] >= fromMillis && timestamps[row] <= toMillis)
+					{
+						visitor.value(timestamps[row], value);
+					}
+				}
+			}
+		});
+	}
+
+	@FunctionalInterface
+	private interface ColumnDecoder
+	{
+		void decode(long[] timestamps, DataInputStream in, DataInputStream dictionaryIn) throws IOException;
+	}
+
+	private static void scan(File file, String column, int type, long fromMillis, long toMillis, ColumnDecoder decoder) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			long position = 0;
+			ByteBuffer header = ByteBuffer.allocate(ColumnarSnapshotFormat.HEADER_BYTES);
+
+			while (position + ColumnarSnapshotFormat.HEADER_BYTES <= size)
+			{
+				header.clear();
+				readFully(channel, header, position);
+				header.flip();
+
+				if (header.getInt() != ColumnarSnapshotFormat.BLOCK_MAGIC)
+				{
+					throw new IOException("Bad block at offset " + position + " in " + file);
+				}
+				int version = header.get();
+				if (version != ColumnarSnapshotFormat.FORMAT_VERSION)
+				{
+					throw new IOException("Unsupported export version " + version + " in " + file);
+				}
+
+				int rows = header.getInt();
+				long minTimestamp = header.getLong();
+				long maxTimestamp = header.getLong();
+				int directoryLength = header.getInt();
+				int dataLength = header.getInt();
+
+				long directoryStart = position + ColumnarSnapshotFormat.HEADER_BYTES;
+				long dataStart = directoryStart + directoryLength;
+				long next = dataStart + dataLength;
+				if (next > size)
+				{
+					// The last write was interrupted
+					return;
+				}
+
+				if (maxTimestamp >= fromMillis && minTimestamp <= toMillis)
+				{
+					ByteBuffer directory = ByteBuffer.allocate(directoryLength);
+					readFully(channel, directory, directoryStart);
+					DataInputStream directoryIn = new DataInputStream(new ByteArrayInputStream(directory.array()));
+
+					byte[] timestampBytes = null;
+					byte[] columnBytes = null;
+					// Only text columns need the block dictionary
+					byte[] dictionaryBytes = type == ColumnarSnapshotFormat.TYPE_TEXT ? null : new byte[0];
+					int columns = directoryIn.readUnsignedShort();
+					for (int i = 0; i < columns && (timestampBytes == null || columnBytes == null || dictionaryBytes == null); i++)
+					{
+						String name = directoryIn.readUTF();
+						int columnType = directoryIn.readUnsignedByte();
+						int offset = directoryIn.readInt();
+						int length = directoryIn.readInt();
+						int crc = directoryIn.readInt();
+
+						if (name.equals(ColumnarSnapshotFormat.TIMESTAMP))
+						{
+							timestampBytes = readColumn(channel, dataStart + offset, length, crc, file);
+						}
+						if (name.equals(column) && columnType == type)
+						{
+							columnBytes = readColumn(channel, dataStart + offset, length, crc, file);
+						}
+						if (dictionaryBytes == null && columnType == ColumnarSnapshotFormat.TYPE_DICTIONARY)
+						{
+							dictionaryBytes = readColumn(channel, dataStart + offset, length, crc, file);
+						}
+					}
+
+					if (timestampBytes != null && columnBytes != null && dictionaryBytes != null)
+					{
+						long[] timestamps = new long[rows];
+						DataInputStream timestampIn = new DataInputStream(new ByteArrayInputStream(timestampBytes));
+						long timestamp = 0;
+						for (int i = 0; i < rows; i++)
+						{
+							timestamp += Varints.unzigzag(Varints.readVarLong(timestampIn));
+							timestamps[i] = timestamp;
+						}
+
+						decoder.decode(timestamps, new DataInputStream(new ByteArrayInputStream(columnBytes)),
+							new DataInputStream(new ByteArrayInputStream(dictionaryBytes)));
+					}
+				}
+
+				position = next;
+			}
+		}
+	}
+
+	private static byte[] readColumn(FileChannel channel, long position, int length, int expectedCrc, File file) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		readFully(channel, buffer, position);
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, length);
+		if ((int) crc.getValue() != expectedCrc)
+		{
+			throw new IOException("Column checksum mismatch at offset " + position + " in " + file);
+		}
+		return buffer.array();
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0)
+			{
+				throw new IOException("Unexpected end of file");
+			}
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package gg.runestatus.sync.export;
+
+import gg.runestatus.sync.data.CombatAchievementData;
+import gg.runestatus.sync.data.DiaryData;
+import gg.runestatus.sync.data.PlayerSyncData;
+import gg.runestatus.sync.Varints;
+import gg.runestatus.sync.data.SkillData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Encodes batches of snapshots as blocks of the export format, see {@link ColumnarSnapshotFormat}.
+ * <p>
+ * Columns are named after the snapshot fields: {@code totalXp}, {@code questsCompleted} and so on,
+ * {@code skill.<name>.xp} and {@code skill.<name>.level} per skill, {@code quest.<name>} per quest
+ * (text), {@code diary.<name>} per diary (tier bit flags) and {@code ca.<tier>} per combat achievement tier.
+ */
+public final class ColumnarSnapshotWriter
+{
+	private ColumnarSnapshotWriter()
+	{
+	}
+
+	/**
+	 * Opens an export file positioned for {@link #append}, creating it if needed. A block left incomplete
+	 * by a crash is cut off first. Otherwise the next block would be written after it, and a reader
+	 * following the torn block's lengths would land in the middle of the new one.
+	 */
+	public static FileChannel openForAppend(Path path) throws IOException
+	{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			long end = completeLength(channel);
+			if (end < channel.size())
+			{
+				channel.truncate(end);
+				channel.force(false);
+			}
+			channel.position(end);
+			return channel;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Walks the block headers and returns where the last complete block ends.
+	 */
+	static long completeLength(FileChannel channel) throws IOException
+	{
+		long size = channel.size();
+		long position = 0;
+		ByteBuffer header = ByteBuffer.allocate(ColumnarSnapshotFormat.HEADER_BYTES);
+
+		while (position + ColumnarSnapshotFormat.HEADER_BYTES <= size)
+		{
+			header.clear();
+			while (header.hasRemaining())
+			{
+				if (channel.read(header, position + header.position()) < 0)
+				{
+					return position;
+				}
+			}
+			header.flip();
+
+			if (header.getInt() != ColumnarSnapshotFormat.BLOCK_MAGIC)
+			{
+				// Nothing from here on can be found by a reader
+				return position;
+			}
+			int version = header.get();
+			if (version != ColumnarSnapshotFormat.FORMAT_VERSION)
+			{
+				// Written by a newer version, which would rather have its blocks kept
+				throw new IOException("Unsupported export version " + version);
+			}
+
+			header.position(ColumnarSnapshotFormat.HEADER_BYTES - 8);
+			int directoryLength = header.getInt();
+			int dataLength = header.getInt();
+			long next = position + ColumnarSnapshotFormat.HEADER_BYTES + directoryLength + dataLength;
+			if (directoryLength < 0 || dataLength < 0 || next > size)
+			{
+				return position;
+			}
+			position = next;
+		}
+		return position;
+	}
+
+	/**
+	 * Appends one block holding {@code rows} at the channel's position and forces it to disk.
+	 */
+	public static void append(FileChannel channel, List<PlayerSyncData> rows) throws IOException
+	{
+		ByteBuffer block = ByteBuffer.wrap(encodeBlock(rows));
+		while (block.hasRemaining())
+		{
+			channel.write(block);
+		}
+		channel.force(false);
+	}
+
+	public static byte[] encodeBlock(List<PlayerSyncData> rows) throws IOException
+	{
+		int rowCount = rows.size();
+		Map<String, long[]> numeric = new TreeMap<>();
+		Map<String, String[]> text = new TreeMap<>();
+
+		long minTimestamp = Long.MAX_VALUE;
+		long maxTimestamp = Long.MIN_VALUE;
+
+		for (int row = 0; row < rowCount; row++)
+		{
+			PlayerSyncData data = rows.get(row);
+			minTimestamp = Math.min(minTimestamp, data.getLastSyncedAt());
+			maxTimestamp = Math.max(maxTimestamp, data.getLastSyncedAt());
+
+			put(numeric, rowCount, row, ColumnarSnapshotFormat.TIMESTAMP, data.getLastSyncedAt());
+			put(numeric, rowCount, row, "accountType", data.getAccountType());
+			put(numeric, rowCount, row, "world", data.getWorld());
+			put(numeric, rowCount, row, "combatLevel", data.getCombatLevel());
+			put(numeric, rowCount, row, "totalLevel", data.getTotalLevel());
+			put(numeric, rowCount, row, "totalXp", data.getTotalXp());
+			put(numeric, rowCount, row, "questsCompleted", data.getQuestsCompleted());
+			put(numeric, rowCount, row, "questsTotal", data.getQuestsTotal());
+			put(numeric, rowCount, row, "diaryTasksCompleted", data.getDiaryTasksCompleted());
+			put(numeric, rowCount, row, "diaryTasksTotal", data.getDiaryTasksTotal());
+			put(numeric, rowCount, row, "combatTasksCompleted", data.getCombatTasksCompleted());
+			put(numeric, rowCount, row, "combatTasksTotal", data.getCombatTasksTotal());
+			put(numeric, rowCount, row, "collectionLogObtained", data.getCollectionLogObtained());
+			put(numeric, rowCount, row, "timePlayedMinutes", data.getTimePlayedMinutes());
+
+			if (data.getSkills() != null)
+			{
+				for (Map.Entry<String, SkillData> entry : data.getSkills().entrySet())
+				{
+					put(numeric, rowCount, row, "skill." + entry.getKey() + ".xp", entry.getValue().getXp());
+					put(numeric, rowCount, row, "skill." + entry.getKey() + ".level", entry.getValue().getLevel());
+				}
+			}
+
+			if (data.getQuests() != null)
+			{
+				for (Map.Entry<String, String> entry : data.getQuests().entrySet())
+				{
+					text.computeIfAbsent("quest." + entry.getKey(), k -> new String[rowCount])[row] = entry.getValue();
+				}
+			}
+
+			if (data.getAchievementDiaries() != null)
+			{
+				for (Map.Entry<String, DiaryData> entry : data.getAchievementDiaries().entrySet())
+				{
+					DiaryData diary = entry.getValue();
+					put(numeric, rowCount, row, "diary." + entry.getKey(), (diary.isEasy() ? 1 : 0)
+						| (diary.isMedium() ? 2 : 0)
+						| (diary.isHard() ? 4 : 0)
+						| (diary.isElite() ? 8 : 0));
+				}
+			}
+
+			CombatAchievementData ca = data.getCombatAchievements();
+			if (ca != null)
+			{
+				put(numeric, rowCount, row, "ca.easy", ca.getEasy());
+				put(numeric, rowCount, row, "ca.medium", ca.getMedium());
+				put(numeric, rowCount, row, "ca.hard", ca.getHard());
+				put(numeric, rowCount, row, "ca.elite", ca.getElite());
+				put(numeric, rowCount, row, "ca.master", ca.getMaster());
+				put(numeric, rowCount, row, "ca.grandmaster", ca.getGrandmaster());
+			}
+		}
+
+		ByteArrayOutputStream dataBuffer = new ByteArrayOutputStream(rowCount * 512);
+		ByteArrayOutputStream directoryBuffer = new ByteArrayOutputStream(4096);
+		DataOutputStream directory = new DataOutputStream(directoryBuffer);
+		directory.writeShort(numeric.size() + text.size() + 1);
+
+		ByteArrayOutputStream columnBuffer = new ByteArrayOutputStream(256);
+		DataOutputStream column = new DataOutputStream(columnBuffer);
+		CRC32 crc = new CRC32();
+
+		for (Map.Entry<String, long[]> entry : numeric.entrySet())
+		{
+			columnBuffer.reset();
+			long previous = 0;
+			for (long value : entry.getValue())
+			{
+				Varints.writeVarLong(column, Varints.zigzag(value - previous));
+				previous = value;
+			}
+			writeColumn(directory, dataBuffer, columnBuffer, crc, entry.getKey(), ColumnarSnapshotFormat.TYPE_NUMERIC);
+		}
+
+		// Text columns share one dictionary per block and store runs of indexes, since quest states rarely change
+		Map<String, Integer> dictionary = new HashMap<>();
+		for (Map.Entry<String, String[]> entry : text.entrySet())
+		{
+			columnBuffer.reset();
+			String[] values = entry.getValue();
+			int run = 0;
+			int runIndex = -1;
+			for (String value : values)
+			{
+				int index = value == null ? 0 : dictionary.computeIfAbsent(value, v -> dictionary.size() + 1);
+				if (index != runIndex && run > 0)
+				{
+					Varints.writeVarLong(column, run);
+					Varints.writeVarLong(column, runIndex);
+					run = 0;
+				}
+				runIndex = index;
+				run++;
+			}
+			Varints.writeVarLong(column, run);
+			Varints.writeVarLong(column, runIndex);
+			writeColumn(directory, dataBuffer, columnBuffer, crc, entry.getKey(), ColumnarSnapshotFormat.TYPE_TEXT);
+		}
+
+		columnBuffer.reset();
+		String[] entries = new String[dictionary.size()];
+		for (Map.Entry<String, Integer> entry : dictionary.entrySet())
+		{
+			entries[entry.getValue() - 1] = entry.getKey();
+		}
+		Varints.writeVarLong(column, entries.length);
+		for (String value : entries)
+		{
+			column.writeUTF(value);
+		}
+		writeColumn(directory, dataBuffer, columnBuffer, crc, ColumnarSnapshotFormat.DICTIONARY, ColumnarSnapshotFormat.TYPE_DICTIONARY);
+
+		ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream(
+			ColumnarSnapshotFormat.HEADER_BYTES + directoryBuffer.size() + dataBuffer.size());
+		DataOutputStream block = new DataOutputStream(blockBuffer);
+		block.writeInt(ColumnarSnapshotFormat.BLOCK_MAGIC);
+		block.writeByte(ColumnarSnapshotFormat.FORMAT_VERSION);
+		block.writeInt(rowCount);
+		block.writeLong(minTimestamp);
+		block.writeLong(maxTimestamp);
+		block.writeInt(directoryBuffer.size());
+		block.writeInt(dataBuffer.size());
+		directoryBuffer.writeTo(block);
+		dataBuffer.writeTo(block);
+		return blockBuffer.toByteArray();
+	}
+
+	private static void put(Map<String, long[]> columns, int rowCount, int row, String name, long value)
+	{
+		long[] column = columns.get(name);
+		if (column == null)
+		{
+			column = new long[rowCount];
+			Arrays.fill(column, ColumnarSnapshotFormat.ABSENT);
+			columns.put(name, column);
+		}
+		column[row] = value;
+	}
+
+	private static void writeColumn(DataOutputStream directory, ByteArrayOutputStream data, ByteArrayOutputStream column,
+		CRC32 crc, String name, int type) throws IOException
+	{
+		byte[] bytes = column.toByteArray();
+		crc.reset();
+		crc.update(bytes, 0, bytes.length);
+
+		directory.writeUTF(name);
+		directory.writeByte(type);
+		directory.writeInt(data.size());
+		directory.writeInt(bytes.length);
+		directory.writeInt((int) crc.getValue());
+		data.write(bytes);
+	}
+}
@@ -0,0 +1,55 @@
+package gg.runestatus.sync.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One HTTP request to RuneStatus, from enqueue until the response or failure arrives.
+ */
+@Name("gg.runestatus.HttpExchange")
+@Label("HTTP Exchange")
+@Category({"RuneStatus", "Network"})
+@Description("A request to the RuneStatus API, from enqueue to response")
+public class HttpExchangeEvent extends Event
+{
+	private static final EventType TYPE = EventType.getEventType(HttpExchangeEvent.class);
+
+	@Label("Lane")
+	String lane;
+
+	@Label("Request Size")
+	@DataAmount
+	long requestBytes;
+
+	@Label("Status Code")
+	@Description("HTTP status, or 0 if no response was received")
+	int statusCode;
+
+	/**
+	 * Starts timing a request, or returns null without allocating when no recording wants this event.
+	 */
+	public static HttpExchangeEvent start()
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+
+		HttpExchangeEvent event = new HttpExchangeEvent();
+		event.begin();
+		return event;
+	}
+
+	public void finish(String lane, long requestBytes, int statusCode)
+	{
+		this.lane = lane;
+		this.requestBytes = requestBytes;
+		this.statusCode = statusCode;
+		commit();
+	}
+}
@@ -0,0 +1,28 @@
+package gg.runestatus.sync.jfr;
+
+/**
+ * Guards use of the event classes in this package.
+ * Some JREs are built without the jdk.jfr module, so callers check {@link #AVAILABLE}
+ * before touching any event type, which keeps those classes from ever being loaded.
+ */
+public final class JfrSupport
+{
+	public static final boolean AVAILABLE = isAvailable();
+
+	private JfrSupport()
+	{
+	}
+
+	private static boolean isAvailable()
+	{
+		try
+		{
+			Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+			return true;
+		}
+		catch (ClassNotFoundException | LinkageError e)
+		{
+			return false;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package gg.runestatus.sync.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Reading or writing plugin state kept on disk.
+ */
+@Name("gg.runestatus.LocalStore")
+@Label("Local Store I/O")
+@Category({"RuneStatus", "I/O"})
+@Description("Reading or writing plugin state under the RuneLite directory")
+public class LocalStoreEvent extends Event
+{
+	private static final EventType TYPE = EventType.getEventType(LocalStoreEvent.class);
+
+	@Label("Store")
+	String store;
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Size")
+	@DataAmount
+	long bytes;
+
+	/**
+	 * Starts timing an I/O operation, or returns null without allocating when no recording wants this event.
+	 */
+	public static LocalStoreEvent start()
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+
+		LocalStoreEvent event = new LocalStoreEvent();
+		event.begin();
+		return event;
+	}
+
+	public void finish(String store, String operation, long bytes)
+	{
+		this.store = store;
+		this.operation = operation;
+		this.bytes = bytes;
+		commit();
+	}
+}
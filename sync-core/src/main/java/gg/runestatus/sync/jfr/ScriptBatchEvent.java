@@ -0,0 +1,52 @@
+package gg.runestatus.sync.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A batch of client script invocations made while collecting one section of a snapshot.
+ */
+@Name("gg.runestatus.ScriptBatch")
+@Label("Script Batch")
+@Category({"RuneStatus", "Sync"})
+@Description("Client scripts run by DataCollector to read one snapshot section")
+public class ScriptBatchEvent extends Event
+{
+	private static final EventType TYPE = EventType.getEventType(ScriptBatchEvent.class);
+
+	@Label("Section")
+	String section;
+
+	@Label("Script ID")
+	int scriptId;
+
+	@Label("Invocations")
+	int invocations;
+
+	/**
+	 * Starts timing a batch, or returns null without allocating when no recording wants this event.
+	 */
+	public static ScriptBatchEvent start()
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+
+		ScriptBatchEvent event = new ScriptBatchEvent();
+		event.begin();
+		return event;
+	}
+
+	public void finish(String section, int scriptId, int invocations)
+	{
+		this.section = section;
+		this.scriptId = scriptId;
+		this.invocations = invocations;
+		commit();
+	}
+}
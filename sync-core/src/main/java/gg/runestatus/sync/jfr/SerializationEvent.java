@@ -0,0 +1,50 @@
+package gg.runestatus.sync.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Encoding a payload before it is sent.
+ */
+@Name("gg.runestatus.Serialization")
+@Label("Payload Serialization")
+@Category({"RuneStatus", "Sync"})
+@Description("Encoding a sync payload to bytes")
+public class SerializationEvent extends Event
+{
+	private static final EventType TYPE = EventType.getEventType(SerializationEvent.class);
+
+	@Label("Payload")
+	String payload;
+
+	@Label("Size")
+	@DataAmount
+	long bytes;
+
+	/**
+	 * Starts timing serialization, or returns null without allocating when no recording wants this event.
+	 */
+	public static SerializationEvent start()
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+
+		SerializationEvent event = new SerializationEvent();
+		event.begin();
+		return event;
+	}
+
+	public void finish(String payload, long bytes)
+	{
+		this.payload = payload;
+		this.bytes = bytes;
+		commit();
+	}
+}
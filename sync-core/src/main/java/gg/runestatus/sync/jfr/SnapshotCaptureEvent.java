@@ -0,0 +1,48 @@
+package gg.runestatus.sync.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Building a full sync snapshot on the client thread.
+ */
+@Name("gg.runestatus.SnapshotCapture")
+@Label("Snapshot Capture")
+@Category({"RuneStatus", "Sync"})
+@Description("Building a sync snapshot on the client thread")
+public class SnapshotCaptureEvent extends Event
+{
+	private static final EventType TYPE = EventType.getEventType(SnapshotCaptureEvent.class);
+
+	@Label("Account Type")
+	int accountType;
+
+	@Label("World")
+	int world;
+
+	/**
+	 * Starts timing a capture, or returns null without allocating when no recording wants this event.
+	 */
+	public static SnapshotCaptureEvent start()
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+
+		SnapshotCaptureEvent event = new SnapshotCaptureEvent();
+		event.begin();
+		return event;
+	}
+
+	public void finish(int accountType, int world)
+	{
+		this.accountType = accountType;
+		this.world = world;
+		commit();
+	}
+}
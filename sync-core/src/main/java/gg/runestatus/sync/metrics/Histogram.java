@@ -0,0 +1,96 @@
+package gg.runestatus.sync.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram with fixed power-of-two buckets.
+ * Bucket {@code i} holds values in {@code [2^(i-1), 2^i)}, so recording is a couple of
+ * atomic increments with no allocation, and percentiles are accurate to within a factor of two.
+ */
+public class Histogram
+{
+	private static final int BUCKETS = 65;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long value)
+	{
+		if (value < 0)
+		{
+			value = 0;
+		}
+
+		buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long currentMax;
+		while (value > (currentMax = max.get()))
+		{
+			if (max.compareAndSet(currentMax, value))
+			{
+				break;
+			}
+		}
+	}
+
+	public long getCount()
+	{
+		return count.get();
+	}
+
+	public long getSum()
+	{
+		return sum.get();
+	}
+
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	public long getMean()
+	{
+		long n = count.get();
+		return n == 0 ? 0 : sum.get() / n;
+	}
+
+	/**
+	 * Returns the upper bound of the bucket containing the given percentile (0-100).
+	 */
+	public long getPercentile(double percentile)
+	{
+		long n = count.get();
+		if (n == 0)
+		{
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(n * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			seen += buckets.get(i);
+			if (seen >= rank)
+			{
+				return i == 0 ? 0 : Math.min((1L << i) - 1, max.get());
+			}
+		}
+		return max.get();
+	}
+
+	public void reset()
+	{
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+}
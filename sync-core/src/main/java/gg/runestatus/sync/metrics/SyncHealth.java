@@ -0,0 +1,30 @@
+package gg.runestatus.sync.metrics;
+
+import lombok.Value;
+
+/**
+ * Point-in-time copy of the metrics a status display needs, taken by {@link SyncMetrics#health()}.
+ * Cheap enough to take a few times a second, and equal to the previous copy when nothing happened.
+ */
+@Value
+public class SyncHealth
+{
+	public enum Outcome
+	{
+		SUCCEEDED,
+		FAILED,
+		// Nothing had changed since the last acknowledged snapshot, so nothing was sent
+		UNCHANGED
+	}
+
+	// Wall clock time of the last sync outcome, 0 if there hasn't been one this session
+	long lastSyncAt;
+	// Null if there hasn't been a sync this session
+	Outcome lastOutcome;
+	long syncsSucceeded;
+	long syncsFailed;
+	// Request bodies sent on both lanes this session, including retries
+	long bytesSent;
+	// Latencies of the most recent syncs in milliseconds, oldest first
+	long[] recentSyncLatencyMillis;
+}
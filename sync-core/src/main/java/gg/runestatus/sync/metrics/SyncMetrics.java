@@ -0,0 +1,196 @@
+package gg.runestatus.sync.metrics;
+
+import javax.inject.Singleton;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and histograms for every phase of the sync pipeline.
+ * All record methods are lock-free and allocation-free so they can be called on the client thread;
+ * a human-readable summary is only built when {@link #summary()} is asked for.
+ */
+@Singleton
+public class SyncMetrics
+{
+	// Index 0 counts requests that never got a response
+	private static final int MAX_STATUS_CODE = 600;
+
+	// Sync latencies kept individually for the status panel's sparkline
+	private static final int RECENT_SYNCS = 40;
+
+	private final Histogram collectionNanos = new Histogram();
+	private final Histogram serializationNanos = new Histogram();
+	private final Histogram payloadBytes = new Histogram();
+	private final Histogram syncLatencyNanos = new Histogram();
+	private final Histogram eventLatencyNanos = new Histogram();
+
+	private final AtomicLong syncsSucceeded = new AtomicLong();
+	private final AtomicLong syncsFailed = new AtomicLong();
+	private final AtomicLong syncsSkippedInFlight = new AtomicLong();
+	private final AtomicLong syncsSkippedNoPlayer = new AtomicLong();
+	private final AtomicLong syncsSkippedUnchanged = new AtomicLong();
+	private final AtomicLong eventsSent = new AtomicLong();
+	private final AtomicLong eventsFailed = new AtomicLong();
+	private final AtomicLong retries = new AtomicLong();
+	private final AtomicLongArray failuresByStatus = new AtomicLongArray(MAX_STATUS_CODE);
+	private final AtomicLong bytesSent = new AtomicLong();
+
+	private final AtomicLongArray recentSyncLatencyMillis = new AtomicLongArray(RECENT_SYNCS);
+	private final AtomicLong recentSyncCount = new AtomicLong();
+	private volatile long lastSyncAt;
+	private volatile SyncHealth.Outcome lastSyncOutcome;
+
+	/**
+	 * Time spent building a snapshot on the client thread.
+	 */
+	public void recordCollection(long nanos)
+	{
+		collectionNanos.record(nanos);
+	}
+
+	public void recordSerialization(long nanos, long bytes)
+	{
+		serializationNanos.record(nanos);
+		payloadBytes.record(bytes);
+	}
+
+	public void recordSyncResponse(long nanos, boolean success)
+	{
+		syncLatencyNanos.record(nanos);
+		(success ? syncsSucceeded : syncsFailed).incrementAndGet();
+
+		long n = recentSyncCount.getAndIncrement();
+		recentSyncLatencyMillis.set((int) (n % RECENT_SYNCS), TimeUnit.NANOSECONDS.toMillis(nanos));
+		recordOutcome(success ? SyncHealth.Outcome.SUCCEEDED : SyncHealth.Outcome.FAILED);
+	}
+
+	public void recordEventResponse(long nanos, boolean success)
+	{
+		eventLatencyNanos.record(nanos);
+		(success ? eventsSent : eventsFailed).incrementAndGet();
+	}
+
+	/**
+	 * Records a failed request, with status code 0 meaning no response was received.
+	 */
+	public void recordFailure(int statusCode)
+	{
+		failuresByStatus.incrementAndGet(statusCode >= 0 && statusCode < MAX_STATUS_CODE ? statusCode : 0);
+	}
+
+	/**
+	 * A request body handed to the network, counted once per attempt.
+	 */
+	public void recordBytesSent(long bytes)
+	{
+		bytesSent.addAndGet(bytes);
+	}
+
+	public void recordRetry()
+	{
+		retries.incrementAndGet();
+	}
+
+	public void recordSkippedInFlight()
+	{
+		syncsSkippedInFlight.incrementAndGet();
+	}
+
+	public void recordSkippedNoPlayer()
+	{
+		syncsSkippedNoPlayer.incrementAndGet();
+	}
+
+	/**
+	 * A snapshot that matched what the server last acknowledged, so nothing was sent.
+	 */
+	public void recordSkippedUnchanged()
+	{
+		syncsSkippedUnchanged.incrementAndGet();
+		recordOutcome(SyncHealth.Outcome.UNCHANGED);
+	}
+
+	private void recordOutcome(SyncHealth.Outcome outcome)
+	{
+		lastSyncAt = System.currentTimeMillis();
+		lastSyncOutcome = outcome;
+	}
+
+	/**
+	 * Copies what a status display shows. Unlike the record methods this allocates, so it is for polling,
+	 * not for calling per event.
+	 */
+	public SyncHealth health()
+	{
+		long n = recentSyncCount.get();
+		long[] latencies = new long[(int) Math.min(n, RECENT_SYNCS)];
+		for (int i = 0; i < latencies.length; i++)
+		{
+			latencies[i] = recentSyncLatencyMillis.get((int) ((n - latencies.length + i) % RECENT_SYNCS));
+		}
+
+		return new SyncHealth(lastSyncAt, lastSyncOutcome, syncsSucceeded.get(), syncsFailed.get(),
+			bytesSent.get(), latencies);
+	}
+
+	public String summary()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("syncs ok=").append(syncsSucceeded.get())
+			.append(" failed=").append(syncsFailed.get())
+			.append(" skipped(in-flight)=").append(syncsSkippedInFlight.get())
+			.append(" skipped(no player)=").append(syncsSkippedNoPlayer.get())
+			.append(" skipped(unchanged)=").append(syncsSkippedUnchanged.get())
+			.append(" | events ok=").append(eventsSent.get())
+			.append(" failed=").append(eventsFailed.get())
+			.append(" | retries=").append(retries.get())
+			.append(" | bytes sent=").append(bytesSent.get())
+			.append('\n');
+
+		appendTiming(sb, "collect", collectionNanos);
+		appendTiming(sb, "serialize", serializationNanos);
+		appendTiming(sb, "sync latency", syncLatencyNanos);
+		appendTiming(sb, "event latency", eventLatencyNanos);
+
+		sb.append("payload bytes n=").append(payloadBytes.getCount())
+			.append(" mean=").append(payloadBytes.getMean())
+			.append(" p99=").append(payloadBytes.getPercentile(99))
+			.append(" max=").append(payloadBytes.getMax())
+			.append('\n');
+
+		sb.append("failures by status:");
+		boolean any = false;
+		for (int i = 0; i < MAX_STATUS_CODE; i++)
+		{
+			long n = failuresByStatus.get(i);
+			if (n > 0)
+			{
+				sb.append(' ').append(i == 0 ? "io" : String.valueOf(i)).append('=').append(n);
+				any = true;
+			}
+		}
+		if (!any)
+		{
+			sb.append(" none");
+		}
+
+		return sb.toString();
+	}
+
+	private static void appendTiming(StringBuilder sb, String name, Histogram histogram)
+	{
+		sb.append(name)
+			.append(" n=").append(histogram.getCount())
+			.append(" mean=").append(toMicros(histogram.getMean())).append("us")
+			.append(" p50=").append(toMicros(histogram.getPercentile(50))).append("us")
+			.append(" p99=").append(toMicros(histogram.getPercentile(99))).append("us")
+			.append(" max=").append(toMicros(histogram.getMax())).append("us")
+			.append('\n');
+	}
+
+	private static long toMicros(long nanos)
+	{
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+}
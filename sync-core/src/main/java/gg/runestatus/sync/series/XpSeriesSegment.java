@@ -0,0 +1,313 @@
+package gg.runestatus.sync.series;
+
+import gg.runestatus.sync.Varints;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One fixed-capacity segment of an XP series, read and written with positional file I/O.
+ * <p>
+ * Layout: a 20 byte header (magic, version, skill count, start time in epoch seconds and the committed
+ * length) followed by records. Each record is
+ * <ul>
+ * <li>the zigzag varint delta-of-delta of its timestamp in seconds,</li>
+ * <li>a varint bitmask of the skills whose XP changed,</li>
+ * <li>and for each of those, the zigzag varint XP delta.</li>
+ * </ul>
+ * Decoding starts from zero XP at the segment start, so the first record is a keyframe and every segment
+ * can be read on its own. A record only counts once the committed length in the header covers it, so
+ * a crash mid-append loses at most that record.
+ * <p>
+ * The file is written out at its full capacity when created, so the capacity survives a reopen. The whole
+ * segment is also kept in a heap buffer, which at the store's 32 KiB is cheaper than reading it back.
+ * A read-only segment closes its file as soon as it has been read.
+ */
+final class XpSeriesSegment
+{
+	static final String FILE_EXTENSION = ".xps";
+
+	private static final int MAGIC = 0x52535853; // "RSXS"
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int OFFSET_MAGIC = 0;
+	private static final int OFFSET_VERSION = 4;
+	private static final int OFFSET_SKILL_COUNT = 5;
+	private static final int OFFSET_START = 8;
+	private static final int OFFSET_LENGTH = 16;
+	static final int HEADER_BYTES = 20;
+
+	// Anything larger than this is not a segment this store wrote
+	private static final int MAX_CAPACITY = 16 * 1024 * 1024;
+
+	private final File file;
+	// Null for a read-only segment
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final long startSeconds;
+	private final int skillCount;
+	private final int maxRecordBytes;
+
+	// Encoder state, rebuilt by scanning the segment when it is reopened
+	private final int[] lastXp;
+	private long lastSeconds;
+	private long lastDelta;
+	private int length;
+
+	private XpSeriesSegment(File file, FileChannel channel, ByteBuffer buffer, long startSeconds, int skillCount, int length)
+	{
+		this.file = file;
+		this.channel = channel;
+		this.buffer = buffer;
+		this.startSeconds = startSeconds;
+		this.skillCount = skillCount;
+		this.maxRecordBytes = 10 + 10 + skillCount * 5;
+		this.lastXp = new int[skillCount];
+		this.lastSeconds = startSeconds;
+		this.length = length;
+	}
+
+	static XpSeriesSegment create(File file, long startSeconds, int skillCount, int capacity) throws IOException
+	{
+		if (skillCount > Long.SIZE)
+		{
+			throw new IllegalArgumentException("Too many skills for the change mask: " + skillCount);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(capacity);
+		buffer.putInt(OFFSET_MAGIC, MAGIC);
+		buffer.put(OFFSET_VERSION, (byte) FORMAT_VERSION);
+		buffer.put(OFFSET_SKILL_COUNT, (byte) skillCount);
+		buffer.putLong(OFFSET_START, startSeconds);
+		buffer.putInt(OFFSET_LENGTH, HEADER_BYTES);
+
+		FileChannel channel = FileChannel.open(file.toPath(),
+			StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			writeFully(channel, buffer.duplicate(), 0);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+		return new XpSeriesSegment(file, channel, buffer, startSeconds, skillCount, HEADER_BYTES);
+	}
+
+	static XpSeriesSegment open(File file, boolean writable) throws IOException
+	{
+		FileChannel channel = writable
+			? FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)
+			: FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try
+		{
+			long size = channel.size();
+			if (size < HEADER_BYTES || size > MAX_CAPACITY)
+			{
+				throw new IOException("Not an XP series segment: " + file);
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			readFully(channel, buffer, 0);
+			if (buffer.getInt(OFFSET_MAGIC) != MAGIC)
+			{
+				throw new IOException("Not an XP series segment: " + file);
+			}
+			if (buffer.get(OFFSET_VERSION) != FORMAT_VERSION)
+			{
+				throw new IOException("Unsupported XP series version " + buffer.get(OFFSET_VERSION) + ": " + file);
+			}
+
+			int length = buffer.getInt(OFFSET_LENGTH);
+			if (length < HEADER_BYTES || length > buffer.capacity())
+			{
+				throw new IOException("Bad committed length " + length + ": " + file);
+			}
+
+			XpSeriesSegment segment = new XpSeriesSegment(file, writable ? channel : null, buffer,
+				buffer.getLong(OFFSET_START), buffer.get(OFFSET_SKILL_COUNT) & 0xFF, length);
+			if (writable)
+			{
+				// Replaying the records restores the encoder state so appends can carry on where they stopped
+				segment.scan(Long.MIN_VALUE, Long.MAX_VALUE, null);
+			}
+			else
+			{
+				channel.close();
+			}
+			return segment;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	File getFile()
+	{
+		return file;
+	}
+
+	long getStartSeconds()
+	{
+		return startSeconds;
+	}
+
+	int getSkillCount()
+	{
+		return skillCount;
+	}
+
+	int getLength()
+	{
+		return length;
+	}
+
+	boolean hasRoom()
+	{
+		return buffer.capacity() - length >= maxRecordBytes;
+	}
+
+	/**
+	 * Appends a sample. Only skills whose XP differs from the previous sample in this segment are written.
+	 *
+	 * @return false if no skill changed and nothing was written
+	 */
+	boolean append(long seconds, int[] xp) throws IOException
+	{
+		long mask = 0;
+		for (int i = 0; i < skillCount; i++)
+		{
+			if (xp[i] != lastXp[i])
+			{
+				mask |= 1L << i;
+			}
+		}
+		if (mask == 0)
+		{
+			return false;
+		}
+
+		// Timestamps never go backwards within a segment, even if the wall clock does
+		seconds = Math.max(seconds, lastSeconds);
+		long delta = seconds - lastSeconds;
+
+		int position = length;
+		position = Varints.putVarLong(buffer, position, Varints.zigzag(delta - lastDelta));
+		position = Varints.putVarLong(buffer, position, mask);
+		for (int i = 0; i < skillCount; i++)
+		{
+			if ((mask & (1L << i)) != 0)
+			{
+				position = Varints.putVarLong(buffer, position, Varints.zigzag((long) xp[i] - lastXp[i]));
+			}
+		}
+
+		// The record goes to the file before the length that commits it
+		ByteBuffer record = buffer.duplicate();
+		record.limit(position).position(length);
+		writeFully(channel, record, length);
+		ByteBuffer committed = ByteBuffer.allocate(4).putInt(0, position);
+		writeFully(channel, committed, OFFSET_LENGTH);
+
+		// Only now that both writes went through does the encoder move on
+		for (int i = 0; i < skillCount; i++)
+		{
+			lastXp[i] = xp[i];
+		}
+		lastDelta = delta;
+		lastSeconds = seconds;
+		length = position;
+		buffer.putInt(OFFSET_LENGTH, length);
+		return true;
+	}
+
+	/**
+	 * Decodes records in order and hands those with {@code fromSeconds <= time <= toSeconds} to the visitor.
+	 * Records before the range still have to be decoded, since each builds on the last,
+	 * but decoding stops at the first record after it.
+	 */
+	void scan(long fromSeconds, long toSeconds, XpSeriesVisitor visitor)
+	{
+		// A duplicate keeps concurrent readers from sharing a position
+		ByteBuffer in = buffer.duplicate();
+		in.limit(length);
+		in.position(HEADER_BYTES);
+
+		int[] xp = visitor != null ? new int[skillCount] : lastXp;
+		long seconds = startSeconds;
+		long delta = 0;
+
+		while (in.hasRemaining())
+		{
+			delta += Varints.unzigzag(Varints.getVarLong(in));
+			seconds += delta;
+			long mask = Varints.getVarLong(in);
+			for (int i = 0; i < skillCount; i++)
+			{
+				if ((mask & (1L << i)) != 0)
+				{
+					xp[i] += (int) Varints.unzigzag(Varints.getVarLong(in));
+				}
+			}
+
+			if (seconds > toSeconds)
+			{
+				break;
+			}
+			if (visitor != null && seconds >= fromSeconds)
+			{
+				visitor.sample(seconds * 1000, xp);
+			}
+		}
+
+		if (visitor == null)
+		{
+			lastSeconds = seconds;
+			lastDelta = delta;
+		}
+	}
+
+	void close() throws IOException
+	{
+		if (channel == null || !channel.isOpen())
+		{
+			return;
+		}
+
+		try
+		{
+			channel.force(false);
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			int read = channel.read(buffer, position);
+			if (read < 0)
+			{
+				throw new IOException("Unexpected end of file");
+			}
+			position += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			position += channel.write(buffer, position);
+		}
+	}
+}
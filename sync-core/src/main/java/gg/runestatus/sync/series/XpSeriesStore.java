@@ -0,0 +1,232 @@
+package gg.runestatus.sync.series;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only XP history for one account, stored as a directory of {@link XpSeriesSegment} files.
+ * Each segment is named after the epoch second it starts at, so a range query can pick the segments
+ * it needs from the directory listing and only decode those. A week of minute samples is typically
+ * a few segments.
+ * <p>
+ * Methods are synchronized. Appends come from the client thread about once a minute; queries and
+ * {@link #close()} can come from any thread. Once closed, appends are ignored.
+ */
+@Slf4j
+public class XpSeriesStore
+{
+	// Sized so a busy day fits in one or two segments
+	static final int SEGMENT_CAPACITY = 32 * 1024;
+
+	private static final long RETENTION_SECONDS = TimeUnit.DAYS.toSeconds(28);
+
+	private final File directory;
+	private final int skillCount;
+	private final int segmentCapacity;
+
+	private XpSeriesSegment current;
+	private boolean closed;
+
+	public XpSeriesStore(File directory, int skillCount)
+	{
+		this(directory, skillCount, SEGMENT_CAPACITY);
+	}
+
+	XpSeriesStore(File directory, int skillCount, int segmentCapacity)
+	{
+		this.directory = directory;
+		this.skillCount = skillCount;
+		this.segmentCapacity = segmentCapacity;
+	}
+
+	/**
+	 * Reopens the newest segment for appending and drops segments past the retention period.
+	 */
+	public void open() throws IOException
+	{
+		open(System.currentTimeMillis());
+	}
+
+	synchronized void open(long nowMillis) throws IOException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("Unable to create " + directory);
+		}
+
+		File[] files = listSegments();
+		deleteExpired(files, nowMillis / 1000);
+
+		files = listSegments();
+		if (files.length == 0)
+		{
+			return;
+		}
+
+		File newest = files[files.length - 1];
+		try
+		{
+			XpSeriesSegment segment = XpSeriesSegment.open(newest, true);
+			if (segment.getSkillCount() == skillCount && segment.hasRoom())
+			{
+				current = segment;
+			}
+			else
+			{
+				segment.close();
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			// Leave it for queries to skip and start a fresh segment on the next append
+			log.warn("Unable to reopen XP series segment {}", newest, e);
+		}
+	}
+
+	/**
+	 * Appends a sample of every skill's XP, indexed the same way on every call.
+	 */
+	public synchronized void append(long timestampMillis, int[] xp) throws IOException
+	{
+		if (closed)
+		{
+			return;
+		}
+
+		long seconds = timestampMillis / 1000;
+		if (current == null || !current.hasRoom())
+		{
+			roll(seconds);
+		}
+		current.append(seconds, xp);
+	}
+
+	/**
+	 * Visits every sample taken between {@code fromMillis} and {@code toMillis} inclusive, oldest first.
+	 * Segments entirely outside the range are not read.
+	 */
+	public synchronized void query(long fromMillis, long toMillis, XpSeriesVisitor visitor)
+	{
+		long fromSeconds = fromMillis / 1000;
+		long toSeconds = toMillis / 1000;
+
+		File[] files = listSegments();
+		for (int i = 0; i < files.length; i++)
+		{
+			long start = startOf(files[i]);
+			long nextStart = i + 1 < files.length ? startOf(files[i + 1]) : Long.MAX_VALUE;
+			if (start > toSeconds || nextStart < fromSeconds)
+			{
+				continue;
+			}
+
+			if (current != null && files[i].equals(current.getFile()))
+			{
+				current.scan(fromSeconds, toSeconds, visitor);
+				continue;
+			}
+
+			XpSeriesSegment segment = null;
+			try
+			{
+				segment = XpSeriesSegment.open(files[i], false);
+				segment.scan(fromSeconds, toSeconds, visitor);
+			}
+			catch (IOException | RuntimeException e)
+			{
+				log.warn("Skipping unreadable XP series segment {}", files[i], e);
+			}
+			finally
+			{
+				closeQuietly(segment);
+			}
+		}
+	}
+
+	/**
+	 * Flushes and closes the segment being appended to.
+	 */
+	public synchronized void close()
+	{
+		closed = true;
+		closeQuietly(current);
+		current = null;
+	}
+
+	private void roll(long seconds) throws IOException
+	{
+		closeQuietly(current);
+		current = null;
+
+		File file = new File(directory, seconds + XpSeriesSegment.FILE_EXTENSION);
+		while (file.exists())
+		{
+			// Only possible when rolling twice in one second; bump the name rather than clobber it
+			seconds++;
+			file = new File(directory, seconds + XpSeriesSegment.FILE_EXTENSION);
+		}
+		current = XpSeriesSegment.create(file, seconds, skillCount, segmentCapacity);
+	}
+
+	private void deleteExpired(File[] files, long nowSeconds)
+	{
+		// A segment is expired once the one after it started before the cutoff
+		for (int i = 0; i + 1 < files.length; i++)
+		{
+			if (startOf(files[i + 1]) < nowSeconds - RETENTION_SECONDS && !files[i].delete())
+			{
+				log.debug("Unable to delete expired XP series segment {}", files[i]);
+			}
+		}
+	}
+
+	private File[] listSegments()
+	{
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(XpSeriesSegment.FILE_EXTENSION) && startOf(name) >= 0);
+		if (files == null)
+		{
+			return new File[0];
+		}
+
+		Arrays.sort(files, (a, b) -> Long.compare(startOf(a), startOf(b)));
+		return files;
+	}
+
+	private static long startOf(File file)
+	{
+		return startOf(file.getName());
+	}
+
+	private static long startOf(String name)
+	{
+		try
+		{
+			return Long.parseLong(name.substring(0, name.length() - XpSeriesSegment.FILE_EXTENSION.length()));
+		}
+		catch (NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+
+	private static void closeQuietly(XpSeriesSegment segment)
+	{
+		if (segment == null)
+		{
+			return;
+		}
+
+		try
+		{
+			segment.close();
+		}
+		catch (IOException e)
+		{
+			log.debug("Error closing XP series segment {}", segment.getFile(), e);
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package gg.runestatus.sync.series;
+
+/**
+ * Receives samples from {@link XpSeriesStore#query}.
+ */
+@FunctionalInterface
+public interface XpSeriesVisitor
+{
+	/**
+	 * @param timestampMillis when the sample was taken
+	 * @param xp              XP per skill index at that time, for the skills the sample was written with. Skills
+	 *                        added since are missing from the end, so the array can be shorter than the current
+	 *                        skill list. The array is reused between calls, so copy it to keep it
+	 */
+	void sample(long timestampMillis, int[] xp);
+}
@@ -0,0 +1,92 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.data.Boss;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class KillCountTableTest
+{
+	@Test
+	public void onlyChangesArePending()
+	{
+		KillCountTable table = new KillCountTable();
+		assertNull(table.pendingChanges());
+
+		assertTrue(table.record(Boss.ZULRAH, 12));
+		assertFalse(table.record(Boss.ZULRAH, 12));
+		assertTrue(table.record(Boss.VORKATH, 1234));
+
+		Map<String, Integer> expected = new LinkedHashMap<>();
+		expected.put("Vorkath", 1234);
+		expected.put("Zulrah", 12);
+		assertEquals(expected, table.pendingChanges());
+	}
+
+	@Test
+	public void countsRecordedAfterASyncStayPending()
+	{
+		KillCountTable table = new KillCountTable();
+		table.record(Boss.ZULRAH, 12);
+		Map<String, Integer> sent = table.pendingChanges();
+
+		table.record(Boss.ZULRAH, 13);
+		table.acknowledge(sent);
+		assertEquals(Collections.singletonMap("Zulrah", 13), table.pendingChanges());
+
+		table.acknowledge(table.pendingChanges());
+		assertNull(table.pendingChanges());
+	}
+
+	@Test
+	public void writeReadRoundTrip() throws IOException
+	{
+		KillCountTable table = new KillCountTable();
+		table.record(Boss.ZULRAH, 12);
+		table.record(Boss.BARROWS_CHESTS, 250);
+		table.acknowledge(table.pendingChanges());
+		table.record(Boss.ZULRAH, 13);
+		table.record(Boss.THEATRE_OF_BLOOD, 5);
+		assertTrue(table.isDirty());
+
+		byte[] bytes = write(table);
+		assertFalse(table.isDirty());
+
+		KillCountTable read = new KillCountTable();
+		read.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+		for (int i = 0; i < Boss.count(); i++)
+		{
+			Boss boss = Boss.byIndex(i);
+			assertEquals(boss.getName(), table.get(boss), read.get(boss));
+		}
+		assertEquals(table.pendingChanges(), read.pendingChanges());
+		assertFalse(read.isDirty());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsOtherVersions() throws IOException
+	{
+		byte[] bytes = write(new KillCountTable());
+		bytes[0]++;
+		new KillCountTable().read(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	private static byte[] write(KillCountTable table) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		table.write(new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+}
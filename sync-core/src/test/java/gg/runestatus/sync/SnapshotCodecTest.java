@@ -0,0 +1,160 @@
+package gg.runestatus.sync;
+
+import gg.runestatus.sync.data.CombatAchievementData;
+import gg.runestatus.sync.data.DiaryData;
+import gg.runestatus.sync.data.PlayerSyncData;
+import gg.runestatus.sync.data.SkillData;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotCodecTest
+{
+	private static final String[] QUEST_STATES = {"NOT_STARTED", "IN_PROGRESS", "FINISHED"};
+
+	// Offset of the payload, after the magic, version and length
+	private static final int HEADER_BYTES = 4 + 1 + 4;
+
+	@Test
+	public void roundTripKeepsAccountState() throws IOException
+	{
+		PlayerSyncData snapshot = fullSnapshot();
+		assertEquals(snapshot, SnapshotCodec.decode(SnapshotCodec.encode(snapshot)));
+	}
+
+	@Test
+	public void roundTripKeepsMissingSections() throws IOException
+	{
+		PlayerSyncData snapshot = PlayerSyncData.builder()
+			.username("Zezima")
+			.totalLevel(32)
+			.build();
+
+		PlayerSyncData decoded = SnapshotCodec.decode(SnapshotCodec.encode(snapshot));
+		assertEquals(snapshot, decoded);
+		assertNull(decoded.getSkills());
+		assertNull(decoded.getCombatAchievements());
+	}
+
+	@Test
+	public void dropsPerSyncDeltas() throws IOException
+	{
+		PlayerSyncData snapshot = fullSnapshot();
+		snapshot.setRecentDrops(Collections.singletonList("Twisted bow"));
+		snapshot.setBossKillCounts(Collections.singletonMap("Zulrah", 100));
+
+		PlayerSyncData decoded = SnapshotCodec.decode(SnapshotCodec.encode(snapshot));
+		assertNull(decoded.getRecentDrops());
+		assertNull(decoded.getBossKillCounts());
+	}
+
+	@Test
+	public void fullAccountFitsInAFewKilobytes() throws IOException
+	{
+		int size = SnapshotCodec.encode(fullSnapshot()).length;
+		assertTrue("snapshot is " + size + " bytes", size < 8 * 1024);
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsChecksumMismatch() throws IOException
+	{
+		byte[] bytes = SnapshotCodec.encode(fullSnapshot());
+		bytes[HEADER_BYTES + 10] ^= 1;
+		SnapshotCodec.decode(bytes);
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsTruncatedFile() throws IOException
+	{
+		byte[] bytes = SnapshotCodec.encode(fullSnapshot());
+		SnapshotCodec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsFileCutInsideTheHeader() throws IOException
+	{
+		SnapshotCodec.decode(Arrays.copyOf(SnapshotCodec.encode(fullSnapshot()), 6));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsUnknownVersion() throws IOException
+	{
+		byte[] bytes = SnapshotCodec.encode(fullSnapshot());
+		bytes[4]++;
+		SnapshotCodec.decode(bytes);
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws IOException
+	{
+		SnapshotCodec.decode("{\"username\":\"Zezima\"}".getBytes());
+	}
+
+	/**
+	 * An account with every section filled in, about the size of a real one.
+	 */
+	private static PlayerSyncData fullSnapshot()
+	{
+		Map<String, SkillData> skills = new HashMap<>();
+		for (int i = 0; i < 23; i++)
+		{
+			skills.put("Skill " + i, SkillData.builder().level(50 + i).xp(100_000 * (i + 1)).build());
+		}
+
+		Map<String, String> quests = new HashMap<>();
+		for (int i = 0; i < 170; i++)
+		{
+			quests.put("Quest " + i, QUEST_STATES[i % QUEST_STATES.length]);
+		}
+		// Anything else is kept as text
+		quests.put("Unusual quest", "UNKNOWN");
+
+		Map<String, DiaryData> diaries = new HashMap<>();
+		for (int i = 0; i < 12; i++)
+		{
+			diaries.put("Diary " + i, DiaryData.builder()
+				.easy(true)
+				.medium(i % 2 == 0)
+				.hard(i % 3 == 0)
+				.elite(i % 4 == 0)
+				.build());
+		}
+
+		return PlayerSyncData.builder()
+			.username("Zezima")
+			.accountType(2)
+			.world(302)
+			.combatLevel(126)
+			.totalLevel(2277)
+			.totalXp(4_600_000_000L)
+			.questsCompleted(158)
+			.questsTotal(171)
+			.diaryTasksCompleted(492)
+			.diaryTasksTotal(492)
+			.combatTasksCompleted(300)
+			.combatTasksTotal(637)
+			.collectionLogObtained(1200)
+			.timePlayedMinutes(250_000)
+			.skills(skills)
+			.quests(quests)
+			.achievementDiaries(diaries)
+			.combatAchievements(CombatAchievementData.builder()
+				.easy(33)
+				.medium(41)
+				.hard(65)
+				.elite(100)
+				.master(50)
+				.grandmaster(11)
+				.build())
+			.lastSyncedAt(1_700_000_000_000L)
+			.build();
+	}
+}
@@ -0,0 +1,147 @@
+package gg.runestatus.sync;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class VarintsTest
+{
+	private static final long[] LONGS = {
+		0, 1, 63, 64, 127, 128, 300, 16_383, 16_384, Integer.MAX_VALUE, 0xFFFFFFFFL, 1L << 35,
+		Long.MAX_VALUE, -1, -64, -65, Integer.MIN_VALUE, Long.MIN_VALUE
+	};
+
+	private static final int[] INTS = {0, 1, 127, 128, 16_384, Integer.MAX_VALUE, -1, -128, Integer.MIN_VALUE};
+
+	@Test
+	public void zigzagKeepsSmallMagnitudesSmall()
+	{
+		assertEquals(0, Varints.zigzag(0L));
+		assertEquals(1, Varints.zigzag(-1L));
+		assertEquals(2, Varints.zigzag(1L));
+		assertEquals(3, Varints.zigzag(-2L));
+		assertEquals(-1L, Varints.zigzag(Long.MIN_VALUE));
+		assertEquals(-1, Varints.zigzag(Integer.MIN_VALUE));
+
+		for (long value : LONGS)
+		{
+			assertEquals(value, Varints.unzigzag(Varints.zigzag(value)));
+		}
+		for (int value : INTS)
+		{
+			assertEquals(value, Varints.unzigzag(Varints.zigzag(value)));
+			// An int zigzags to the same unsigned number as its long widening
+			assertEquals(Varints.zigzag((long) value), Varints.zigzag(value) & 0xFFFFFFFFL);
+		}
+	}
+
+	@Test
+	public void knownEncodings() throws IOException
+	{
+		assertArrayEquals(new byte[]{0}, write(0));
+		assertArrayEquals(new byte[]{0x7F}, write(127));
+		assertArrayEquals(new byte[]{(byte) 0x80, 0x01}, write(128));
+		assertArrayEquals(new byte[]{(byte) 0xAC, 0x02}, write(300));
+		assertEquals(10, write(-1).length);
+	}
+
+	@Test
+	public void streamRoundTrip() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (long value : LONGS)
+		{
+			Varints.writeVarLong(out, value);
+		}
+		for (int value : INTS)
+		{
+			Varints.writeVarInt(out, value);
+		}
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		for (long value : LONGS)
+		{
+			assertEquals(value, Varints.readVarLong(in));
+		}
+		for (int value : INTS)
+		{
+			assertEquals(value, Varints.readVarInt(in));
+		}
+		assertEquals(0, in.available());
+	}
+
+	@Test
+	public void bufferMatchesStream() throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(LONGS.length * 10);
+		int position = 0;
+		for (long value : LONGS)
+		{
+			int start = position;
+			position = Varints.putVarLong(buffer, position, value);
+
+			byte[] written = new byte[position - start];
+			for (int i = 0; i < written.length; i++)
+			{
+				written[i] = buffer.get(start + i);
+			}
+			assertArrayEquals(write(value), written);
+		}
+		// Absolute puts leave the buffer's own position alone
+		assertEquals(0, buffer.position());
+
+		buffer.limit(position);
+		for (long value : LONGS)
+		{
+			assertEquals(value, Varints.getVarLong(buffer));
+		}
+		assertEquals(position, buffer.position());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsIntsWiderThan32Bits() throws IOException
+	{
+		Varints.readVarInt(new DataInputStream(new ByteArrayInputStream(write(1L << 32))));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsRunawayStream() throws IOException
+	{
+		byte[] bytes = new byte[11];
+		Arrays.fill(bytes, (byte) 0x80);
+		Varints.readVarLong(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsRunawayBuffer()
+	{
+		byte[] bytes = new byte[11];
+		Arrays.fill(bytes, (byte) 0x80);
+		Varints.getVarLong(ByteBuffer.wrap(bytes));
+	}
+
+	@Test(expected = EOFException.class)
+	public void rejectsTruncatedValue() throws IOException
+	{
+		byte[] bytes = write(300);
+		Varints.readVarLong(new DataInputStream(new ByteArrayInputStream(Arrays.copyOf(bytes, 1))));
+	}
+
+	private static byte[] write(long value) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Varints.writeVarLong(new DataOutputStream(bytes), value);
+		return bytes.toByteArray();
+	}
+}
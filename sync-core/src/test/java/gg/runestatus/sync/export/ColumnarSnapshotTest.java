@@ -0,0 +1,182 @@
+package gg.runestatus.sync.export;
+
+import gg.runestatus.sync.data.PlayerSyncData;
+import gg.runestatus.sync.data.SkillData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ColumnarSnapshotTest
+{
+	private static final long START = 1_700_000_000_000L;
+	private static final long HOUR = 3_600_000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTripNumericColumns() throws IOException
+	{
+		File file = folder.newFile("export.rscol");
+		List<PlayerSyncData> rows = rows(0, 20);
+		append(file, rows);
+
+		List<Long> totals = new ArrayList<>();
+		ColumnarSnapshotReader.scanNumeric(file, "totalXp", Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> totals.add(value));
+		List<Long> attack = new ArrayList<>();
+		ColumnarSnapshotReader.scanNumeric(file, "skill.Attack.xp", Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> attack.add(value));
+
+		for (int i = 0; i < rows.size(); i++)
+		{
+			assertEquals(rows.get(i).getTotalXp(), (long) totals.get(i));
+			assertEquals(rows.get(i).getSkills().get("Attack").getXp(), (long) attack.get(i));
+		}
+		assertEquals(rows.size(), totals.size());
+	}
+
+	@Test
+	public void roundTripTextColumnsWithAbsentValues() throws IOException
+	{
+		File file = folder.newFile("export.rscol");
+		List<PlayerSyncData> rows = rows(0, 6);
+		rows.get(2).setQuests(null);
+		append(file, rows);
+
+		List<String> states = new ArrayList<>();
+		ColumnarSnapshotReader.scanText(file, "quest.Cook's Assistant", Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> states.add(value));
+		assertEquals(Arrays.asList("IN_PROGRESS", "IN_PROGRESS", null, "FINISHED", "FINISHED", "FINISHED"), states);
+	}
+
+	@Test
+	public void scanKeepsToTheTimeRange() throws IOException
+	{
+		File file = folder.newFile("export.rscol");
+		append(file, rows(0, 10));
+		append(file, rows(10, 10));
+
+		List<Long> timestamps = new ArrayList<>();
+		ColumnarSnapshotReader.scanNumeric(file, "totalXp", START + 5 * HOUR, START + 12 * HOUR, (timestamp, value) -> timestamps.add(timestamp));
+		assertEquals(8, timestamps.size());
+		assertEquals(START + 5 * HOUR, (long) timestamps.get(0));
+		assertEquals(START + 12 * HOUR, (long) timestamps.get(7));
+	}
+
+	@Test
+	public void appendAfterATornBlockKeepsLaterBlocksReadable() throws IOException
+	{
+		File file = folder.newFile("export.rscol");
+		append(file, rows(0, 10));
+
+		// A crash part way through writing the next block, after the header made it to disk
+		byte[] torn = ColumnarSnapshotWriter.encodeBlock(rows(10, 10));
+		writeRaw(file, Arrays.copyOf(torn, torn.length / 2));
+
+		// Later blocks grow the file past where the torn header says its block ends
+		append(file, rows(20, 10));
+		append(file, rows(30, 10));
+
+		assertEquals(timestamps(0, 20, 30), scanTimestamps(file));
+	}
+
+	@Test
+	public void appendAfterATornHeader() throws IOException
+	{
+		File file = folder.newFile("export.rscol");
+		append(file, rows(0, 10));
+		writeRaw(file, Arrays.copyOf(ColumnarSnapshotWriter.encodeBlock(rows(10, 10)), 7));
+		append(file, rows(20, 10));
+
+		assertEquals(timestamps(0, 20), scanTimestamps(file));
+	}
+
+	@Test
+	public void openForAppendLeavesCompleteFilesAlone() throws IOException
+	{
+		File file = folder.newFile("export.rscol");
+		append(file, rows(0, 10));
+		long length = file.length();
+
+		try (FileChannel channel = ColumnarSnapshotWriter.openForAppend(file.toPath()))
+		{
+			assertEquals(length, channel.size());
+			assertEquals(length, channel.position());
+		}
+	}
+
+	private static void append(File file, List<PlayerSyncData> rows) throws IOException
+	{
+		try (FileChannel channel = ColumnarSnapshotWriter.openForAppend(file.toPath()))
+		{
+			ColumnarSnapshotWriter.append(channel, rows);
+		}
+	}
+
+	private static void writeRaw(File file, byte[] bytes) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.APPEND))
+		{
+			channel.write(ByteBuffer.wrap(bytes));
+		}
+	}
+
+	private static List<Long> scanTimestamps(File file) throws IOException
+	{
+		List<Long> timestamps = new ArrayList<>();
+		ColumnarSnapshotReader.scanNumeric(file, "totalXp", Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> timestamps.add(timestamp));
+		return timestamps;
+	}
+
+	/**
+	 * Timestamps of the ten rows starting at each of the given hours.
+	 */
+	private static List<Long> timestamps(int... firstHours)
+	{
+		List<Long> timestamps = new ArrayList<>();
+		for (int first : firstHours)
+		{
+			for (int hour = first; hour < first + 10; hour++)
+			{
+				timestamps.add(START + hour * HOUR);
+			}
+		}
+		return timestamps;
+	}
+
+	/**
+	 * Hourly snapshots of an account gaining XP, starting {@code firstHour} hours after {@link #START}.
+	 */
+	private static List<PlayerSyncData> rows(int firstHour, int count)
+	{
+		List<PlayerSyncData> rows = new ArrayList<>();
+		for (int hour = firstHour; hour < firstHour + count; hour++)
+		{
+			Map<String, SkillData> skills = new HashMap<>();
+			skills.put("Attack", SkillData.builder().level(60 + hour / 10).xp(300_000 + hour * 1500).build());
+			skills.put("Cooking", SkillData.builder().level(40).xp(40_000).build());
+
+			rows.add(PlayerSyncData.builder()
+				.username("Zezima")
+				.totalLevel(1500 + hour)
+				.totalXp(10_000_000L + hour * 12_345L)
+				.skills(skills)
+				.quests(new HashMap<>(Collections.singletonMap("Cook's Assistant", hour < 3 ? "IN_PROGRESS" : "FINISHED")))
+				.lastSyncedAt(START + hour * HOUR)
+				.build());
+		}
+		return rows;
+	}
+}
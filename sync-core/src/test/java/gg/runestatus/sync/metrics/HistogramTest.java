@@ -0,0 +1,139 @@
+package gg.runestatus.sync.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+public class HistogramTest
+{
+	@Test
+	public void emptyHistogramReportsZero()
+	{
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMean());
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(0, histogram.getMax());
+	}
+
+	@Test
+	public void bucketBoundaries()
+	{
+		assertBucketUpperBound(0, 0);
+		assertBucketUpperBound(1, 1);
+		assertBucketUpperBound(2, 3);
+		assertBucketUpperBound(3, 3);
+		for (int bit = 2; bit < 63; bit++)
+		{
+			long power = 1L << bit;
+			assertBucketUpperBound(power - 1, power - 1);
+			assertBucketUpperBound(power, (power << 1) - 1);
+		}
+		assertBucketUpperBound(Long.MAX_VALUE, Long.MAX_VALUE);
+
+		// Negative values count as zero
+		Histogram histogram = new Histogram();
+		histogram.record(-5);
+		assertEquals(1, histogram.getCount());
+		assertEquals(0, histogram.getSum());
+		assertEquals(0, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void percentilesOfAKnownDistribution()
+	{
+		Histogram histogram = new Histogram();
+		for (int value = 1; value <= 1000; value++)
+		{
+			histogram.record(value);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500_500, histogram.getSum());
+		assertEquals(500, histogram.getMean());
+		assertEquals(1000, histogram.getMax());
+
+		// Each percentile is the top of its power-of-two bucket, capped at the largest value seen
+		assertEquals(1, histogram.getPercentile(0.1));
+		assertEquals(255, histogram.getPercentile(25));
+		assertEquals(511, histogram.getPercentile(50));
+		assertEquals(1000, histogram.getPercentile(90));
+		assertEquals(1000, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void concurrentRecordsAllCount() throws InterruptedException
+	{
+		int threads = 8;
+		int perThread = 100_000;
+		Histogram histogram = new Histogram();
+		CountDownLatch start = new CountDownLatch(1);
+
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++)
+		{
+			int offset = t;
+			Thread worker = new Thread(() -> {
+				try
+				{
+					start.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+				for (int i = 0; i < perThread; i++)
+				{
+					histogram.record(i % 1000 + offset);
+				}
+			});
+			worker.start();
+			workers.add(worker);
+		}
+		start.countDown();
+		for (Thread worker : workers)
+		{
+			worker.join();
+		}
+
+		// Each thread records 0..999 shifted by its index, perThread / 1000 times over
+		long expectedSum = 0;
+		for (int t = 0; t < threads; t++)
+		{
+			expectedSum += (perThread / 1000) * (499_500L + 1000L * t);
+		}
+		assertEquals((long) threads * perThread, histogram.getCount());
+		assertEquals(expectedSum, histogram.getSum());
+		assertEquals(999 + threads - 1, histogram.getMax());
+		assertEquals(histogram.getMax(), histogram.getPercentile(100));
+	}
+
+	@Test
+	public void resetClearsEverything()
+	{
+		Histogram histogram = new Histogram();
+		histogram.record(100);
+		histogram.reset();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getSum());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(100));
+	}
+
+	/**
+	 * Checks which bucket a value lands in. A larger value keeps the percentile from being capped at the max.
+	 */
+	private static void assertBucketUpperBound(long value, long upperBound)
+	{
+		Histogram histogram = new Histogram();
+		histogram.record(value);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals("bucket of " + value, upperBound, histogram.getPercentile(50));
+	}
+}
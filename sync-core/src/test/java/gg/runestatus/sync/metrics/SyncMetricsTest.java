@@ -0,0 +1,78 @@
+package gg.runestatus.sync.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SyncMetricsTest
+{
+	@Test
+	public void healthBeforeAnySync()
+	{
+		SyncHealth health = new SyncMetrics().health();
+		assertEquals(0, health.getLastSyncAt());
+		assertNull(health.getLastOutcome());
+		assertEquals(0, health.getRecentSyncLatencyMillis().length);
+	}
+
+	@Test
+	public void recentLatenciesAreTheNewestOldestFirst()
+	{
+		SyncMetrics metrics = new SyncMetrics();
+		for (int i = 1; i <= 10; i++)
+		{
+			metrics.recordSyncResponse(TimeUnit.MILLISECONDS.toNanos(i), true);
+		}
+		assertArrayEquals(new long[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, metrics.health().getRecentSyncLatencyMillis());
+
+		// Past the 40 kept, the oldest drop off and the order carries on across the wrap
+		for (int i = 11; i <= 97; i++)
+		{
+			metrics.recordSyncResponse(TimeUnit.MILLISECONDS.toNanos(i), i % 3 != 0);
+		}
+		long[] expected = new long[40];
+		for (int i = 0; i < expected.length; i++)
+		{
+			expected[i] = 58 + i;
+		}
+		SyncHealth health = metrics.health();
+		assertArrayEquals(expected, health.getRecentSyncLatencyMillis());
+		// Every third sync from 12 to 96 failed
+		assertEquals(68, health.getSyncsSucceeded());
+		assertEquals(29, health.getSyncsFailed());
+	}
+
+	@Test
+	public void lastOutcomeFollowsTheLatestSync()
+	{
+		SyncMetrics metrics = new SyncMetrics();
+		long before = System.currentTimeMillis();
+
+		metrics.recordSyncResponse(TimeUnit.MILLISECONDS.toNanos(5), true);
+		SyncHealth health = metrics.health();
+		assertEquals(SyncHealth.Outcome.SUCCEEDED, health.getLastOutcome());
+		assertTrue(health.getLastSyncAt() >= before);
+
+		metrics.recordSyncResponse(TimeUnit.MILLISECONDS.toNanos(5), false);
+		assertEquals(SyncHealth.Outcome.FAILED, metrics.health().getLastOutcome());
+
+		// A skipped unchanged snapshot is an outcome, but not a latency
+		metrics.recordSkippedUnchanged();
+		health = metrics.health();
+		assertEquals(SyncHealth.Outcome.UNCHANGED, health.getLastOutcome());
+		assertEquals(2, health.getRecentSyncLatencyMillis().length);
+
+		// Skips that never built a snapshot leave the last outcome alone
+		metrics.recordSkippedInFlight();
+		metrics.recordSkippedNoPlayer();
+		assertEquals(SyncHealth.Outcome.UNCHANGED, metrics.health().getLastOutcome());
+
+		metrics.recordSyncResponse(TimeUnit.MILLISECONDS.toNanos(5), true);
+		assertEquals(SyncHealth.Outcome.SUCCEEDED, metrics.health().getLastOutcome());
+	}
+}
@@ -0,0 +1,165 @@
+package gg.runestatus.sync.series;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class XpSeriesSegmentTest
+{
+	private static final int SKILLS = 23;
+	private static final long START = 1_700_000_000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTripKeepsEverySample() throws IOException
+	{
+		XpSeriesSegment segment = XpSeriesSegment.create(segmentFile(), START, SKILLS, 4096);
+
+		List<long[]> written = new ArrayList<>();
+		int[] xp = new int[SKILLS];
+		for (int minute = 0; minute < 60; minute++)
+		{
+			xp[minute % SKILLS] += 1000 + minute;
+			xp[3] += 25;
+			assertTrue(segment.append(START + minute * 60L, xp));
+			written.add(sample((START + minute * 60L) * 1000, xp));
+		}
+
+		assertSamples(written, scan(segment, Long.MIN_VALUE, Long.MAX_VALUE));
+		segment.close();
+	}
+
+	@Test
+	public void skipsSamplesWithoutChanges() throws IOException
+	{
+		XpSeriesSegment segment = XpSeriesSegment.create(segmentFile(), START, SKILLS, 4096);
+		int[] xp = new int[SKILLS];
+		xp[0] = 100;
+		assertTrue(segment.append(START, xp));
+		int length = segment.getLength();
+
+		assertFalse(segment.append(START + 60, xp));
+		assertEquals(length, segment.getLength());
+		segment.close();
+	}
+
+	@Test
+	public void timestampsNeverGoBackwards() throws IOException
+	{
+		XpSeriesSegment segment = XpSeriesSegment.create(segmentFile(), START, SKILLS, 4096);
+		int[] xp = new int[SKILLS];
+		xp[0] = 100;
+		segment.append(START + 120, xp);
+		xp[0] = 200;
+		segment.append(START + 60, xp);
+
+		List<long[]> samples = scan(segment, Long.MIN_VALUE, Long.MAX_VALUE);
+		assertEquals((START + 120) * 1000, samples.get(1)[0]);
+		segment.close();
+	}
+
+	@Test
+	public void reopenedSegmentCarriesOnAppending() throws IOException
+	{
+		File file = segmentFile();
+		XpSeriesSegment segment = XpSeriesSegment.create(file, START, SKILLS, 4096);
+
+		List<long[]> written = new ArrayList<>();
+		int[] xp = new int[SKILLS];
+		for (int minute = 0; minute < 20; minute++)
+		{
+			xp[minute % 5] += 500;
+			segment.append(START + minute * 60L, xp);
+			written.add(sample((START + minute * 60L) * 1000, xp));
+			if (minute == 9)
+			{
+				segment.close();
+				segment = XpSeriesSegment.open(file, true);
+			}
+		}
+		segment.close();
+
+		XpSeriesSegment reader = XpSeriesSegment.open(file, false);
+		assertSamples(written, scan(reader, Long.MIN_VALUE, Long.MAX_VALUE));
+		reader.close();
+	}
+
+	@Test
+	public void ignoresBytesPastTheCommittedLength() throws IOException
+	{
+		File file = segmentFile();
+		XpSeriesSegment segment = XpSeriesSegment.create(file, START, SKILLS, 4096);
+		int[] xp = new int[SKILLS];
+		xp[0] = 100;
+		segment.append(START, xp);
+		int length = segment.getLength();
+		segment.close();
+
+		// What a crash between writing a record and committing its length leaves behind
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+		{
+			raf.seek(length);
+			raf.write(new byte[]{0x05, 0x01, 0x7F});
+		}
+
+		XpSeriesSegment reader = XpSeriesSegment.open(file, false);
+		assertEquals(1, scan(reader, Long.MIN_VALUE, Long.MAX_VALUE).size());
+		reader.close();
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws IOException
+	{
+		File file = folder.newFile("a");
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+		{
+			raf.write(new byte[64]);
+		}
+		XpSeriesSegment.open(file, false);
+	}
+
+	private File segmentFile()
+	{
+		return new File(folder.getRoot(), START + XpSeriesSegment.FILE_EXTENSION);
+	}
+
+	static long[] sample(long timestampMillis, int[] xp)
+	{
+		long[] sample = new long[xp.length + 1];
+		sample[0] = timestampMillis;
+		for (int i = 0; i < xp.length; i++)
+		{
+			sample[i + 1] = xp[i];
+		}
+		return sample;
+	}
+
+	static void assertSamples(List<long[]> expected, List<long[]> actual)
+	{
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+		{
+			assertArrayEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+	private static List<long[]> scan(XpSeriesSegment segment, long fromSeconds, long toSeconds)
+	{
+		List<long[]> samples = new ArrayList<>();
+		segment.scan(fromSeconds, toSeconds, (timestampMillis, xp) -> samples.add(sample(timestampMillis, xp)));
+		return samples;
+	}
+}
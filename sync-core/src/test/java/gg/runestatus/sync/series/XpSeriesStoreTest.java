@@ -0,0 +1,171 @@
+package gg.runestatus.sync.series;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static gg.runestatus.sync.series.XpSeriesSegmentTest.assertSamples;
+import static gg.runestatus.sync.series.XpSeriesSegmentTest.sample;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class XpSeriesStoreTest
+{
+	private static final int SKILLS = 23;
+	private static final long START_MILLIS = 1_700_000_000_000L;
+	private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+	private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+	// Room for a dozen or so samples, so a few hours roll over many times
+	private static final int SMALL_CAPACITY = XpSeriesSegment.HEADER_BYTES + 256;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void rollsOverWhenASegmentIsFull() throws IOException
+	{
+		XpSeriesStore store = new XpSeriesStore(folder.getRoot(), SKILLS, SMALL_CAPACITY);
+		store.open(START_MILLIS);
+		List<long[]> written = appendMinutes(store, START_MILLIS, 180);
+
+		assertTrue(segmentCount() > 5);
+		assertSamples(written, query(store, Long.MIN_VALUE, Long.MAX_VALUE));
+		store.close();
+	}
+
+	@Test
+	public void reopenedStoreKeepsHistory() throws IOException
+	{
+		XpSeriesStore store = new XpSeriesStore(folder.getRoot(), SKILLS, SMALL_CAPACITY);
+		store.open(START_MILLIS);
+		List<long[]> written = appendMinutes(store, START_MILLIS, 30);
+		store.close();
+
+		store = new XpSeriesStore(folder.getRoot(), SKILLS, SMALL_CAPACITY);
+		store.open(START_MILLIS + 30 * MINUTE);
+		assertSamples(written, query(store, Long.MIN_VALUE, Long.MAX_VALUE));
+		store.close();
+	}
+
+	@Test
+	public void queryIncludesBothEndsAndNothingOutside() throws IOException
+	{
+		XpSeriesStore store = new XpSeriesStore(folder.getRoot(), SKILLS, SMALL_CAPACITY);
+		store.open(START_MILLIS);
+		List<long[]> written = appendMinutes(store, START_MILLIS, 180);
+
+		// Minutes 60 to 120, ending part way through a second so the end is truncated to it
+		long from = START_MILLIS + 60 * MINUTE;
+		long to = START_MILLIS + 120 * MINUTE + 999;
+		assertSamples(written.subList(60, 121), query(store, from, to));
+
+		assertTrue(query(store, START_MILLIS - DAY, START_MILLIS - 1000).isEmpty());
+		assertTrue(query(store, START_MILLIS + DAY, START_MILLIS + 2 * DAY).isEmpty());
+		assertEquals(1, query(store, START_MILLIS + 179 * MINUTE, Long.MAX_VALUE).size());
+		store.close();
+	}
+
+	@Test
+	public void deletesSegmentsPastRetention() throws IOException
+	{
+		long now = START_MILLIS + 60 * DAY;
+		File old = createSegment(now - 40 * DAY);
+		// Still holds samples from inside the 28 days, up to when the next segment started
+		File straddling = createSegment(now - 30 * DAY);
+		File recent = createSegment(now - DAY);
+
+		XpSeriesStore store = new XpSeriesStore(folder.getRoot(), SKILLS, SMALL_CAPACITY);
+		store.open(now);
+		store.close();
+
+		assertFalse(old.exists());
+		assertTrue(straddling.exists());
+		assertTrue(recent.exists());
+	}
+
+	@Test
+	public void queryKeepsSegmentsWrittenWithFewerSkills() throws IOException
+	{
+		XpSeriesStore store = new XpSeriesStore(folder.getRoot(), SKILLS, SMALL_CAPACITY);
+		store.open(START_MILLIS);
+		List<long[]> written = appendMinutes(store, START_MILLIS, 30, SKILLS);
+		store.close();
+
+		// A game update adds a skill; the old segments keep their own skill count
+		long reopenedMillis = START_MILLIS + 30 * MINUTE;
+		store = new XpSeriesStore(folder.getRoot(), SKILLS + 1, SMALL_CAPACITY);
+		store.open(reopenedMillis);
+		written.addAll(appendMinutes(store, reopenedMillis, 30, SKILLS + 1));
+
+		List<long[]> samples = query(store, Long.MIN_VALUE, Long.MAX_VALUE);
+		assertSamples(written, samples);
+		assertEquals(SKILLS + 1, samples.get(29).length);
+		assertEquals(SKILLS + 2, samples.get(30).length);
+		store.close();
+	}
+
+	@Test
+	public void ignoresAppendsOnceClosed() throws IOException
+	{
+		XpSeriesStore store = new XpSeriesStore(folder.getRoot(), SKILLS, SMALL_CAPACITY);
+		store.open(START_MILLIS);
+		store.close();
+		appendMinutes(store, START_MILLIS, 5);
+
+		assertEquals(0, segmentCount());
+	}
+
+	private File createSegment(long startMillis) throws IOException
+	{
+		long seconds = startMillis / 1000;
+		File file = new File(folder.getRoot(), seconds + XpSeriesSegment.FILE_EXTENSION);
+		XpSeriesSegment segment = XpSeriesSegment.create(file, seconds, SKILLS, SMALL_CAPACITY);
+		int[] xp = new int[SKILLS];
+		xp[0] = 1000;
+		segment.append(seconds, xp);
+		segment.close();
+		return file;
+	}
+
+	private int segmentCount()
+	{
+		File[] files = folder.getRoot().listFiles((dir, name) -> name.endsWith(XpSeriesSegment.FILE_EXTENSION));
+		return files != null ? files.length : 0;
+	}
+
+	private static List<long[]> appendMinutes(XpSeriesStore store, long startMillis, int minutes) throws IOException
+	{
+		return appendMinutes(store, startMillis, minutes, SKILLS);
+	}
+
+	private static List<long[]> appendMinutes(XpSeriesStore store, long startMillis, int minutes, int skills)
+		throws IOException
+	{
+		List<long[]> written = new ArrayList<>();
+		int[] xp = new int[skills];
+		for (int minute = 0; minute < minutes; minute++)
+		{
+			long time = startMillis + minute * MINUTE;
+			xp[minute % skills] += 1000;
+			xp[0] += 10;
+			store.append(time, xp);
+			written.add(sample(time, xp));
+		}
+		return written;
+	}
+
+	private static List<long[]> query(XpSeriesStore store, long fromMillis, long toMillis)
+	{
+		List<long[]> samples = new ArrayList<>();
+		store.query(fromMillis, toMillis, (timestampMillis, xp) -> samples.add(sample(timestampMillis, xp)));
+		return samples;
+	}
+}